@@ -1,29 +1,87 @@
 package com.aigreentick.services.storage.config;
 
+import com.aigreentick.services.storage.config.properties.UploadExecutorProperties;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 
 @Slf4j
 @Configuration
 @EnableAsync
+@RequiredArgsConstructor
 public class AsyncConfig {
 
+    private final UploadExecutorProperties properties;
+
     @Bean(name = "mediaUploadExecutor")
     public Executor mediaUploadExecutor() {
+        if (properties.isVirtualThreads()) {
+            log.info("Media upload executor initialized: virtual threads, maxConcurrency={}",
+                    properties.getMaxConcurrency());
+            return new BoundedVirtualThreadExecutor("media-upload-", properties.getMaxConcurrency());
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(10);
-        executor.setMaxPoolSize(30);
-        executor.setQueueCapacity(100);
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(properties.getMaxPoolSize());
+        executor.setQueueCapacity(properties.getQueueCapacity());
         executor.setThreadNamePrefix("media-upload-");
-        executor.setRejectedExecutionHandler((r, e) ->
-                log.error("Media upload task rejected — pool exhausted"));
+        // Fail the submission instead of dropping the task — a silently dropped
+        // task leaves its CompletableFuture incomplete and callers hang on join()
+        executor.setRejectedExecutionHandler((r, e) -> {
+            log.error("Media upload task rejected — pool exhausted");
+            throw new TaskRejectedException("Media upload pool exhausted, try again later");
+        });
         executor.initialize();
-        log.info("Media upload thread pool initialized: core=10, max=30, queue=100");
+        log.info("Media upload thread pool initialized: core={}, max={}, queue={}",
+                properties.getCorePoolSize(), properties.getMaxPoolSize(), properties.getQueueCapacity());
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * Starts one virtual thread per task; a semaphore caps how many run at once.
+     * Waiting tasks are parked virtual threads rather than queue entries, so
+     * submission never blocks and never rejects.
+     */
+    static final class BoundedVirtualThreadExecutor implements Executor {
+
+        private final ThreadFactory threadFactory;
+        private final Semaphore permits;
+
+        BoundedVirtualThreadExecutor(String namePrefix, int maxConcurrency) {
+            this.threadFactory = Thread.ofVirtual().name(namePrefix, 0).factory();
+            this.permits = new Semaphore(maxConcurrency);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            threadFactory.newThread(() -> {
+                boolean permitted;
+                try {
+                    permits.acquire();
+                    permitted = true;
+                } catch (InterruptedException ex) {
+                    // Still run it: a skipped task leaves its CompletableFuture incomplete
+                    // and callers hang on join(). With the interrupt flag kept, blocking
+                    // work inside fails fast and the failure completes the future.
+                    Thread.currentThread().interrupt();
+                    log.warn("Media upload task interrupted while waiting for a permit, running it unthrottled");
+                    permitted = false;
+                }
+                try {
+                    task.run();
+                } finally {
+                    if (permitted) permits.release();
+                }
+            }).start();
+        }
+    }
+}
@@ -2,6 +2,16 @@
 // ── config/StorageProviderConfig.java ────────────────────────────────────────
 package com.aigreentick.services.storage.config;
 
+import com.aigreentick.services.storage.config.properties.SingleFlightProperties;
+import com.aigreentick.services.storage.enums.StorageProviderType;
+import com.aigreentick.services.storage.service.impl.storage.DiskCacheStoragePort;
+import com.aigreentick.services.storage.service.impl.storage.DiskObjectCache;
+import com.aigreentick.services.storage.service.impl.storage.HotObjectCache;
+import com.aigreentick.services.storage.service.impl.storage.HotObjectStoragePort;
+import com.aigreentick.services.storage.service.impl.storage.MeteringStoragePort;
+import com.aigreentick.services.storage.service.impl.storage.SingleFlightStoragePort;
+import com.aigreentick.services.storage.service.port.AsyncStoragePort;
+import com.aigreentick.services.storage.service.port.ChunkedUploadPort;
 import com.aigreentick.services.storage.service.port.StoragePort;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -23,11 +33,67 @@ public class StorageProviderConfig {
     @Value("${storage.active-provider:local}")
     private String activeProvider;
 
+    @Value("${storage.checksum-crc32c:false}")
+    private boolean checksumCrc32c;
+
     private final List<StoragePort> providers;
+    private final HotObjectCache hotObjectCache;
+    private final DiskObjectCache diskObjectCache;
+    private final SingleFlightProperties singleFlightProperties;
+
+    /**
+     * The active provider, exposed as both {@link StoragePort} and
+     * {@link AsyncStoragePort}. Every provider must support the async contract.
+     * Writes are metered (SHA-256 / size / CRC32C) by {@link MeteringStoragePort}.
+     * Reads, innermost first: a remote provider's objects are cached on local
+     * disk ({@link DiskCacheStoragePort}), which also coalesces misses; without
+     * it, concurrent reads of one key share a provider stream
+     * ({@link SingleFlightStoragePort}). Hot small objects are read from memory
+     * ({@link HotObjectStoragePort}).
+     */
+    @Bean
+    @Primary
+    public AsyncStoragePort storagePort() {
+        StoragePort selected = selectProvider();
+        if (!(selected instanceof AsyncStoragePort asyncSelected)) {
+            throw new IllegalStateException(
+                    "Storage provider '" + activeProvider + "' does not implement AsyncStoragePort");
+        }
+
+        log.info("Active storage provider: {} ({})",
+                selected.getProviderType(), selected.getProviderType().getDisplayName());
+        AsyncStoragePort port = asyncSelected;
+        // Copying local storage onto local disk buys nothing
+        boolean diskCached = diskObjectCache.isEnabled() && selected.getProviderType() != StorageProviderType.LOCAL;
+        // The disk cache already coalesces misses; a second layer would write each one to disk twice
+        if (singleFlightProperties.isEnabled() && !diskCached) {
+            port = new SingleFlightStoragePort(port, singleFlightProperties);
+        }
+        if (diskCached) {
+            log.info("Disk cache enabled in front of {}", selected.getProviderType());
+            port = new DiskCacheStoragePort(port, diskObjectCache);
+        }
+        if (hotObjectCache.isEnabled()) {
+            port = new HotObjectStoragePort(port, hotObjectCache);
+        }
+        return new MeteringStoragePort(port, checksumCrc32c);
+    }
 
+    /**
+     * Resumable-upload side of the active provider.
+     */
     @Bean
     @Primary
-    public StoragePort storagePort() {
+    public ChunkedUploadPort chunkedUploadPort() {
+        StoragePort selected = selectProvider();
+        if (!(selected instanceof ChunkedUploadPort chunked)) {
+            throw new IllegalStateException(
+                    "Storage provider '" + activeProvider + "' does not implement ChunkedUploadPort");
+        }
+        return chunked;
+    }
+
+    private StoragePort selectProvider() {
         Map<String, StoragePort> map = providers.stream()
                 .collect(Collectors.toMap(
                         p -> p.getProviderType().name().toLowerCase(),
@@ -38,9 +104,6 @@ public class StorageProviderConfig {
             throw new IllegalStateException(
                     "Storage provider '" + activeProvider + "' not found. Available: " + map.keySet());
         }
-
-        log.info("Active storage provider: {} ({})",
-                selected.getProviderType(), selected.getProviderType().getDisplayName());
         return selected;
     }
-}
\ No newline at end of file
+}
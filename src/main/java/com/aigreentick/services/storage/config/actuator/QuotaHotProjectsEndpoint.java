@@ -0,0 +1,36 @@
+package com.aigreentick.services.storage.config.actuator;
+
+import com.aigreentick.services.storage.config.properties.QuotaMetricsProperties;
+import com.aigreentick.services.storage.service.impl.quota.QuotaHotProjectTracker;
+import com.aigreentick.services.storage.service.impl.quota.QuotaHotProjectTracker.HotProject;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * /actuator/quotahotprojects — projects with the most quota operations
+ * since startup (or the last reset), with their optimistic-lock conflicts.
+ * DELETE resets the counters, e.g. before measuring a new strategy.
+ */
+@Component
+@Endpoint(id = "quotahotprojects")
+@RequiredArgsConstructor
+public class QuotaHotProjectsEndpoint {
+
+    private final QuotaHotProjectTracker tracker;
+    private final QuotaMetricsProperties properties;
+
+    @ReadOperation
+    public List<HotProject> hotProjects() {
+        return tracker.top(properties.getHotProjectTop());
+    }
+
+    @DeleteOperation
+    public void reset() {
+        tracker.reset();
+    }
+}
@@ -0,0 +1,114 @@
+package com.aigreentick.services.storage.config.filter;
+
+import java.io.IOException;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.aigreentick.services.storage.config.properties.QuotaAdmissionProperties;
+import com.aigreentick.services.storage.constants.HeaderConstants;
+import com.aigreentick.services.storage.dto.quota.OrgQuotaView;
+import com.aigreentick.services.storage.dto.quota.ProjectQuotaView;
+import com.aigreentick.services.storage.service.impl.quota.QuotaService;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Turns away multipart uploads that cannot fit the tenant's quota before
+ * the body is read, so Tomcat never receives or spools it.
+ *
+ * The declared Content-Length (less an allowance for multipart framing)
+ * is compared with the project and org headroom from the quota read view
+ * (served by the quota view cache when enabled). This only ever rejects;
+ * uploads that pass still reserve their exact size once it is known, which
+ * stays the authoritative check. Requests without a Content-Length, or
+ * without tenant headers, pass through unchanged.
+ */
+@Slf4j
+@Component
+@Order(2) // After ServiceEnabledFilter, before the DispatcherServlet parses multipart
+@RequiredArgsConstructor
+public class QuotaAdmissionFilter extends OncePerRequestFilter {
+
+    private static final String UPLOAD_PATH = "/api/v1/media/upload";
+
+    private final QuotaAdmissionProperties properties;
+    private final QuotaService quotaService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled()
+                || !"POST".equals(request.getMethod())
+                || !request.getRequestURI().startsWith(UPLOAD_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+
+        Long orgId = parseId(request.getHeader(HeaderConstants.ORG_ID));
+        Long projectId = parseId(request.getHeader(HeaderConstants.PROJECT_ID));
+        long fileBytes = request.getContentLengthLong() - properties.getMultipartOverheadBytes();
+
+        if (orgId != null && projectId != null && fileBytes > 0) {
+            String rejection = checkHeadroom(orgId, projectId, fileBytes);
+            if (rejection != null) {
+                log.info("Upload rejected before body read: org={} project={} contentLength={} | {}",
+                        orgId, projectId, request.getContentLengthLong(), rejection);
+                reject(response, rejection);
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /** Null if the upload may fit; otherwise the reason it cannot. */
+    private String checkHeadroom(Long orgId, Long projectId, long fileBytes) {
+        ProjectQuotaView project = quotaService.getProjectQuota(orgId, projectId);
+        if (project != null && project.usedBytes() + fileBytes > project.maxBytes()) {
+            return String.format("Project storage quota exceeded. Available: %d bytes, required: at least %d bytes",
+                    Math.max(0, project.maxBytes() - project.usedBytes()), fileBytes);
+        }
+        OrgQuotaView org = quotaService.getOrgQuota(orgId);
+        if (org != null && org.usedBytes() + fileBytes > org.maxBytes()) {
+            return String.format("Organisation storage quota exceeded. Available: %d bytes, required: at least %d bytes",
+                    Math.max(0, org.maxBytes() - org.usedBytes()), fileBytes);
+        }
+        // Missing quota rows are reported by the upload itself
+        return null;
+    }
+
+    private void reject(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpStatus.INSUFFICIENT_STORAGE.value());
+        response.setContentType("application/json");
+        // Unread body: don't keep the connection for the next request
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        String body = """
+                {
+                    "status": "ERROR",
+                    "message": "%s",
+                    "data": null
+                }
+                """.formatted(message);
+        response.getWriter().write(body);
+    }
+
+    private static Long parseId(String header) {
+        if (header == null) return null;
+        try {
+            return Long.valueOf(header);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.aigreentick.services.storage.config.properties.RateLimitConfig;
 import com.aigreentick.services.storage.context.UserContext;
 import io.github.bucket4j.Bucket;
 import io.github.bucket4j.ConsumptionProbe;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +24,8 @@ public class RateLimitInterceptor implements HandlerInterceptor {
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
             throws Exception {
         if (!rateLimitConfig.isEnabled()) return true;
+        // Async re-dispatch of a Mono/DeferredResult handler — already counted
+        if (request.getDispatcherType() == DispatcherType.ASYNC) return true;
 
         String key = resolveKey(request);
         String endpointName = resolveEndpointName(request);
@@ -0,0 +1,41 @@
+package com.aigreentick.services.storage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Resumable chunked upload sessions.
+ * Maps to application.yml under 'chunked-upload' prefix.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chunked-upload")
+public class ChunkedUploadProperties {
+
+    /** Part size handed to clients. S3 requires at least 5 MB for every part but the last. */
+    private long chunkSize = 8L * 1024 * 1024;
+
+    /** Largest file accepted through a session (documents up to 100 MB). */
+    private long maxFileSize = 104857600L;
+
+    /** Sessions not completed within this window are aborted and their quota released. */
+    private Duration sessionTtl = Duration.ofHours(24);
+
+    /**
+     * A chunk write claimed longer ago than this no longer holds off complete
+     * (its node is assumed dead).
+     */
+    private Duration chunkWriteTimeout = Duration.ofMinutes(15);
+
+    /**
+     * A session still COMPLETING this long after complete started is treated
+     * as abandoned by a crashed or failed complete and settled by the cleanup job.
+     */
+    private Duration completingTimeout = Duration.ofMinutes(30);
+
+    /** Expired sessions handled per cleanup run. */
+    private int cleanupBatchSize = 100;
+}
@@ -0,0 +1,32 @@
+package com.aigreentick.services.storage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Presigned direct-to-S3 uploads.
+ * Maps to application.yml under 'direct-upload' prefix.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "direct-upload")
+public class DirectUploadProperties {
+
+    /** Largest file accepted through a presigned upload. */
+    private long maxFileSize = 1073741824L; // 1 GB
+
+    /** Files above this size get presigned multipart part URLs instead of one PUT. */
+    private long multipartThreshold = 104857600L; // 100 MB
+
+    /** Part size for presigned multipart uploads (S3 minimum is 5 MB). */
+    private long partSize = 16L * 1024 * 1024;
+
+    /** Lifetime of the presigned URLs handed to the client. */
+    private Duration urlExpiry = Duration.ofMinutes(30);
+
+    /** Sessions not completed within this window are discarded and their quota released. */
+    private Duration sessionTtl = Duration.ofHours(2);
+}
@@ -0,0 +1,29 @@
+package com.aigreentick.services.storage.config.properties;
+
+import com.aigreentick.services.storage.enums.MediaType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Local disk read/write-through cache in front of a remote storage provider.
+ * Maps to application.yml under 'storage.disk-cache' prefix.
+ *
+ * Only applied when the active provider is not local storage.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "storage.disk-cache")
+public class DiskCacheProperties {
+
+    private boolean enabled = false;
+
+    /** Cache directory, ideally on local NVMe. Survives restarts. */
+    private String directory = "./data/disk-cache";
+
+    /** Total bytes of cached objects; least recently used objects are evicted beyond this. */
+    private long capacityBytes = 10L * 1024 * 1024 * 1024;
+
+    /** Larger objects are streamed through without being cached. */
+    private long maxObjectBytes = MediaType.constants.ABSOLUTE_MAX;
+}
@@ -21,6 +21,14 @@ public class MediaProperties {
     private long batchMaxTotalSize = 104857600L; // 100 MB
     private int batchParallelThreads = 10;
 
+    // Stream multipart parts straight into the storage provider instead of
+    // copying them to an intermediate temp file first
+    private boolean streamingUploadEnabled = true;
+
+    // Reuse an identical ACTIVE object in the same org/project (matched by
+    // SHA-256) instead of storing another copy
+    private boolean deduplicationEnabled = false;
+
     // Properties for media upload constraints
     private long uploadMaxSize = 52428800; // Default: 50MB
     private List<String> uploadAllowedImageTypes;
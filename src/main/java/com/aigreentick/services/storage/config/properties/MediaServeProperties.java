@@ -0,0 +1,42 @@
+package com.aigreentick.services.storage.config.properties;
+
+import com.aigreentick.services.storage.enums.MediaType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Serving of stored media through /api/v1/media/serve/**.
+ * Maps to application-media.yml under 'media.serve' prefix.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "media.serve")
+public class MediaServeProperties {
+
+    // ── Metadata index ───────────────────────────────────────────────────────
+
+    /** Resolve content type, size and validators from the media row instead of the filesystem. */
+    private boolean metadataIndexEnabled = true;
+
+    private int metadataIndexMaxEntries = 100_000;
+
+    /**
+     * How long a key with no ACTIVE media row is remembered. Kept short: the
+     * object is written before its row is inserted.
+     */
+    private Duration metadataIndexNegativeTtl = Duration.ofSeconds(30);
+
+    // ── Hot-object cache ─────────────────────────────────────────────────────
+
+    /** Keep popular small objects in off-heap memory (serve endpoint and StoragePort.retrieve). */
+    private boolean hotCacheEnabled = false;
+
+    /** Off-heap bytes held; counts against -XX:MaxDirectMemorySize. */
+    private long hotCacheCapacityBytes = 256L * 1024 * 1024;
+
+    /** Larger objects are never cached. Defaults to the IMAGE upload limit. */
+    private long hotCacheMaxObjectBytes = MediaType.IMAGE.getMaxBytes();
+}
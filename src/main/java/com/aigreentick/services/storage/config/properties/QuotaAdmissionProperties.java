@@ -0,0 +1,23 @@
+package com.aigreentick.services.storage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Content-Length quota admission for multipart uploads.
+ * Maps to application.yml under 'quota.admission' prefix.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quota.admission")
+public class QuotaAdmissionProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Bytes of a request body assumed to be multipart framing rather than
+     * file content, so a file that exactly fits is never turned away.
+     */
+    private long multipartOverheadBytes = 16 * 1024;
+}
@@ -0,0 +1,25 @@
+package com.aigreentick.services.storage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Group-commit batching of quota reservations per (org, project).
+ * Maps to application.yml under 'quota.coalescing' prefix.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quota.coalescing")
+public class QuotaCoalescingProperties {
+
+    private boolean enabled = false;
+
+    /** How long the first reservation of a batch waits for others to join. */
+    private Duration window = Duration.ofMillis(2);
+
+    /** A batch is committed early once this many reservations joined. */
+    private int maxBatch = 64;
+}
@@ -0,0 +1,46 @@
+package com.aigreentick.services.storage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Continuous, outbox-driven quota drift detection.
+ * Maps to application.yml under 'quota.drift' prefix.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quota.drift")
+public class QuotaDriftProperties {
+
+    private boolean enabled = false;
+
+    /** Outbox rows claimed per poll. */
+    private int batchSize = 200;
+
+    /**
+     * A project found drifted is only corrected if the same used/expected
+     * pair is still seen this much later, so uploads that reserved quota but
+     * have not inserted their media row yet are not mistaken for drift.
+     */
+    private Duration settleTime = Duration.ofSeconds(30);
+
+    /**
+     * Longest a single-request upload (including a whole batch) may hold its
+     * reservation before its media rows exist. Usage above the project's media
+     * is only written off once the project's quota has not moved for this
+     * long, so a large upload still in flight is never mistaken for drift.
+     */
+    private Duration reservationHorizon = Duration.ofMinutes(15);
+
+    /** Verifications before a row is left to the nightly reconciliation. */
+    private int maxAttempts = 10;
+
+    /** How long a claimed row stays invisible to other workers. */
+    private Duration claimTimeout = Duration.ofMinutes(1);
+
+    /** Processed rows older than this are purged. */
+    private Duration retention = Duration.ofDays(1);
+}
@@ -0,0 +1,36 @@
+package com.aigreentick.services.storage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Quota headroom leasing for multi-replica deployments.
+ * Maps to application.yml under 'quota.lease' prefix.
+ *
+ * Ignored while the single-node quota ledger is enabled.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quota.lease")
+public class QuotaLeaseProperties {
+
+    private boolean enabled = false;
+
+    /** Bytes claimed per lease. Uploads larger than this reserve directly. */
+    private long chunkBytes = 64L * 1024 * 1024;
+
+    /** A lease untouched for this long is returned to the quota rows. */
+    private Duration idleTimeout = Duration.ofMinutes(2);
+
+    /** How often idle leases are returned and this node's lease rows are kept alive. */
+    private Duration heartbeatInterval = Duration.ofSeconds(30);
+
+    /**
+     * Lease rows not refreshed within this window belong to a dead node;
+     * reconciliation stops counting them.
+     */
+    private Duration rowExpiry = Duration.ofMinutes(5);
+}
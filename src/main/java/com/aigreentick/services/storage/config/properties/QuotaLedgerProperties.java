@@ -0,0 +1,37 @@
+package com.aigreentick.services.storage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * In-memory quota ledger with write-behind flush.
+ * Maps to application.yml under 'quota.ledger' prefix.
+ *
+ * Single-node deployments only: the counters live in this JVM, so a second
+ * instance writing the same quota rows would bypass them.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quota.ledger")
+public class QuotaLedgerProperties {
+
+    private boolean enabled = false;
+
+    /** Identifies this ledger's row in quota_ledger_checkpoint. */
+    private String ledgerId = "default";
+
+    /** Directory holding the journal segments. Must survive restarts. */
+    private String journalDir = "./data/quota-ledger";
+
+    /** How often accumulated deltas are written to org_storage / project_storage. */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /**
+     * fsync the journal before a reservation is acknowledged. Turning this off
+     * trades crash safety (a lost reservation undercounts usage) for latency.
+     */
+    private boolean fsync = true;
+}
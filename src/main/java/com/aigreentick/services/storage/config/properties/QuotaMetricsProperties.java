@@ -0,0 +1,21 @@
+package com.aigreentick.services.storage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Quota contention metrics and the hot-project tracker.
+ * Maps to application.yml under 'quota.metrics' prefix.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quota.metrics")
+public class QuotaMetricsProperties {
+
+    /** Projects tracked at once; the least active one is replaced when full. */
+    private int hotProjectCapacity = 200;
+
+    /** Projects listed by the quotahotprojects actuator endpoint. */
+    private int hotProjectTop = 20;
+}
@@ -0,0 +1,27 @@
+package com.aigreentick.services.storage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Near-cache for the quota read endpoints.
+ * Maps to application.yml under 'quota.view-cache' prefix.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "quota.view-cache")
+public class QuotaViewCacheProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Upper bound on staleness. Changes made on this node invalidate
+     * immediately; changes made by other replicas show up within this.
+     */
+    private Duration ttl = Duration.ofSeconds(5);
+
+    private int maxEntries = 10_000;
+}
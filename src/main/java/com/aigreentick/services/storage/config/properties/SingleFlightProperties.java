@@ -0,0 +1,23 @@
+package com.aigreentick.services.storage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Coalescing of concurrent retrieves of the same storage key.
+ * Maps to application.yml under 'storage.single-flight' prefix.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "storage.single-flight")
+public class SingleFlightProperties {
+
+    private boolean enabled = false;
+
+    /** Bytes of each shared download held in memory; the rest goes to a spill file. */
+    private int memoryThresholdBytes = 1024 * 1024;
+
+    /** Where spill files live while a shared download has readers. */
+    private String spillDirectory = "./data/single-flight";
+}
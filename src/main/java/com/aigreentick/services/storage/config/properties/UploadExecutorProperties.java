@@ -0,0 +1,32 @@
+package com.aigreentick.services.storage.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sizing for the "mediaUploadExecutor" used by async uploads.
+ * Maps to application.yml under 'upload-executor' prefix.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "upload-executor")
+public class UploadExecutorProperties {
+
+    /**
+     * Run each task on its own virtual thread instead of a fixed pool.
+     * Storage and Graph API calls are I/O bound, so blocked virtual threads are cheap.
+     */
+    private boolean virtualThreads = false;
+
+    /**
+     * Virtual-thread mode: max tasks running at once. Excess tasks park on a
+     * semaphore instead of sitting in a bounded queue, so nothing is rejected.
+     */
+    private int maxConcurrency = 1000;
+
+    // Platform-thread pool mode
+    private int corePoolSize = 10;
+    private int maxPoolSize = 30;
+    private int queueCapacity = 100;
+}
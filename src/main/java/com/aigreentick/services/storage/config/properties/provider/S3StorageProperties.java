@@ -19,4 +19,10 @@ public class S3StorageProperties {
     private String storageClass = "INTELLIGENT_TIERING";
     private long multipartThresholdBytes = 104857600L; // 100MB
     private int presignedUrlExpiryMinutes = 15;
+
+    // Presigned GET URL cache — a cached URL is handed out again while at least
+    // min-remaining-ratio of the requested lifetime is left on it
+    private boolean presignedUrlCacheEnabled = true;
+    private int presignedUrlCacheMaxEntries = 10000;
+    private double presignedUrlMinRemainingRatio = 0.5;
 }
\ No newline at end of file
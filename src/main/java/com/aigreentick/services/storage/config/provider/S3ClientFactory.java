@@ -17,6 +17,7 @@ import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
 
 import java.net.URI;
@@ -72,6 +73,23 @@ public class S3ClientFactory {
                 .build();
     }
     
+    /**
+     * Shared presigner. Building one resolves credentials and region and sets
+     * up the signer, so it is done once here instead of per presigned URL.
+     */
+    @Bean
+    public S3Presigner s3Presigner() {
+        S3Presigner.Builder builder = S3Presigner.builder()
+                .region(Region.of(properties.getRegion()))
+                .credentialsProvider(getCredentialsProvider());
+
+        if (properties.getEndpoint() != null && !properties.getEndpoint().isEmpty()) {
+            builder.endpointOverride(URI.create(properties.getEndpoint()));
+        }
+
+        return builder.build();
+    }
+
     private AwsCredentialsProvider getCredentialsProvider() {
         if (properties.isUseIamRole()) {
             log.info("Using IAM role for AWS authentication");
@@ -0,0 +1,98 @@
+package com.aigreentick.services.storage.controller.v1;
+
+import com.aigreentick.services.storage.constants.HeaderConstants;
+import com.aigreentick.services.storage.context.UserContext;
+import com.aigreentick.services.storage.dto.response.ApiResponse;
+import com.aigreentick.services.storage.dto.response.MediaUploadResponse;
+import com.aigreentick.services.storage.dto.upload.ChunkedUploadInitRequest;
+import com.aigreentick.services.storage.dto.upload.ChunkedUploadSessionResponse;
+import com.aigreentick.services.storage.service.impl.media.ChunkedUploadService;
+import com.aigreentick.services.storage.validator.MediaRequestValidator;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+/**
+ * Resumable uploads for large files on unreliable links.
+ *
+ * 1. POST   /uploads                         → session (chunkSize, totalParts)
+ * 2. PUT    /uploads/{id}/chunks?offset=N     → raw bytes of one chunk, any order, retry freely
+ * 3. GET    /uploads/{id}                     → which parts arrived (resume after disconnect)
+ * 4. POST   /uploads/{id}/complete            → Media created
+ *    DELETE /uploads/{id}                     → abandon, quota released
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/media/uploads")
+@RequiredArgsConstructor
+@Tag(name = "Chunked Upload", description = "Resumable chunked media uploads")
+public class ChunkedUploadController {
+
+    private final ChunkedUploadService chunkedUploadService;
+    private final MediaRequestValidator validator;
+
+    @PostMapping
+    @Operation(summary = "Start a resumable upload session")
+    public ResponseEntity<ApiResponse<ChunkedUploadSessionResponse>> initSession(
+            @Valid @RequestBody ChunkedUploadInitRequest request,
+            @RequestHeader(HeaderConstants.WABA_ID) String wabaId) {
+
+        Long orgId = UserContext.getOrganisationId();
+        Long projectId = UserContext.getProjectId();
+        validator.validateUserContext();
+
+        log.info("Chunked upload init: file={} size={} org={} project={}",
+                request.getFilename(), request.getTotalSize(), orgId, projectId);
+
+        return ResponseEntity.ok(ApiResponse.success("Upload session created",
+                chunkedUploadService.initSession(request, wabaId, orgId, projectId)));
+    }
+
+    @PutMapping(value = "/{sessionId}/chunks", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Upload one chunk at the given byte offset")
+    public ResponseEntity<ApiResponse<ChunkedUploadSessionResponse>> uploadChunk(
+            @PathVariable String sessionId,
+            @RequestParam long offset,
+            @RequestHeader(HttpHeaders.CONTENT_LENGTH) long contentLength,
+            InputStream body) {
+
+        validator.validateUserContext();
+        return ResponseEntity.ok(ApiResponse.success("Chunk received",
+                chunkedUploadService.uploadChunk(sessionId, offset, contentLength, body,
+                        UserContext.getOrganisationId(), UserContext.getProjectId())));
+    }
+
+    @GetMapping("/{sessionId}")
+    @Operation(summary = "Get upload session state")
+    public ResponseEntity<ApiResponse<ChunkedUploadSessionResponse>> getSession(@PathVariable String sessionId) {
+        validator.validateUserContext();
+        return ResponseEntity.ok(ApiResponse.success(
+                chunkedUploadService.getSession(sessionId,
+                        UserContext.getOrganisationId(), UserContext.getProjectId())));
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    @Operation(summary = "Assemble the uploaded chunks into a media file")
+    public ResponseEntity<ApiResponse<MediaUploadResponse>> complete(@PathVariable String sessionId) {
+        validator.validateUserContext();
+        return ResponseEntity.ok(ApiResponse.success("Media uploaded successfully",
+                chunkedUploadService.complete(sessionId,
+                        UserContext.getOrganisationId(), UserContext.getProjectId())));
+    }
+
+    @DeleteMapping("/{sessionId}")
+    @Operation(summary = "Abort an upload session")
+    public ResponseEntity<ApiResponse<Void>> abort(@PathVariable String sessionId) {
+        validator.validateUserContext();
+        chunkedUploadService.abort(sessionId, UserContext.getOrganisationId(), UserContext.getProjectId());
+        return ResponseEntity.ok(ApiResponse.success("Upload session aborted", null));
+    }
+}
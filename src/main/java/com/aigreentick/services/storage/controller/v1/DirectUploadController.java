@@ -0,0 +1,74 @@
+package com.aigreentick.services.storage.controller.v1;
+
+import com.aigreentick.services.storage.constants.HeaderConstants;
+import com.aigreentick.services.storage.context.UserContext;
+import com.aigreentick.services.storage.dto.response.ApiResponse;
+import com.aigreentick.services.storage.dto.response.MediaUploadResponse;
+import com.aigreentick.services.storage.dto.upload.DirectUploadCompleteRequest;
+import com.aigreentick.services.storage.dto.upload.DirectUploadInitRequest;
+import com.aigreentick.services.storage.dto.upload.DirectUploadInitResponse;
+import com.aigreentick.services.storage.service.impl.media.DirectUploadService;
+import com.aigreentick.services.storage.validator.MediaRequestValidator;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Presigned direct-to-S3 uploads — the file bytes bypass this service.
+ *
+ * 1. POST   /direct-uploads                  → presigned PUT URL (or one URL per part)
+ * 2. client PUTs the bytes straight to S3
+ * 3. POST   /direct-uploads/{id}/complete    → object verified, Media created
+ *    DELETE /direct-uploads/{id}             → abandon, quota released
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/media/direct-uploads")
+@RequiredArgsConstructor
+@Tag(name = "Direct Upload", description = "Presigned direct-to-storage media uploads")
+public class DirectUploadController {
+
+    private final DirectUploadService directUploadService;
+    private final MediaRequestValidator validator;
+
+    @PostMapping
+    @Operation(summary = "Reserve quota and get presigned upload URL(s)")
+    public ResponseEntity<ApiResponse<DirectUploadInitResponse>> initSession(
+            @Valid @RequestBody DirectUploadInitRequest request,
+            @RequestHeader(HeaderConstants.WABA_ID) String wabaId) {
+
+        Long orgId = UserContext.getOrganisationId();
+        Long projectId = UserContext.getProjectId();
+        validator.validateUserContext();
+
+        log.info("Direct upload init: file={} size={} org={} project={}",
+                request.getFilename(), request.getTotalSize(), orgId, projectId);
+
+        return ResponseEntity.ok(ApiResponse.success("Direct upload session created",
+                directUploadService.initSession(request, wabaId, orgId, projectId)));
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    @Operation(summary = "Verify the uploaded object and create the media record")
+    public ResponseEntity<ApiResponse<MediaUploadResponse>> complete(
+            @PathVariable String sessionId,
+            @Valid @RequestBody(required = false) DirectUploadCompleteRequest request) {
+
+        validator.validateUserContext();
+        return ResponseEntity.ok(ApiResponse.success("Media uploaded successfully",
+                directUploadService.complete(sessionId, request,
+                        UserContext.getOrganisationId(), UserContext.getProjectId())));
+    }
+
+    @DeleteMapping("/{sessionId}")
+    @Operation(summary = "Abort a direct upload session")
+    public ResponseEntity<ApiResponse<Void>> abort(@PathVariable String sessionId) {
+        validator.validateUserContext();
+        directUploadService.abort(sessionId, UserContext.getOrganisationId(), UserContext.getProjectId());
+        return ResponseEntity.ok(ApiResponse.success("Upload session aborted", null));
+    }
+}
@@ -3,12 +3,14 @@ package com.aigreentick.services.storage.controller.v1;
 import com.aigreentick.services.storage.constants.HeaderConstants;
 import com.aigreentick.services.storage.context.UserContext;
 import com.aigreentick.services.storage.dto.response.ApiResponse;
+import com.aigreentick.services.storage.dto.response.BatchFileResult;
 import com.aigreentick.services.storage.dto.response.BatchMediaUploadResponse;
 import com.aigreentick.services.storage.dto.response.MediaUploadResponse;
 import com.aigreentick.services.storage.dto.response.UserMediaResponse;
 import com.aigreentick.services.storage.service.impl.media.BatchMediaUploadService;
 import com.aigreentick.services.storage.service.impl.media.ConcurrentMediaUploadService;
 import com.aigreentick.services.storage.service.impl.media.MediaUploadOrchestrator;
+import com.aigreentick.services.storage.service.impl.media.ReactiveMediaUploadService;
 import com.aigreentick.services.storage.validator.MediaRequestValidator;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -21,6 +23,8 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.List;
@@ -36,6 +40,7 @@ public class MediaController {
     private final MediaUploadOrchestrator orchestrator;
     private final MediaRequestValidator validator;
     private final BatchMediaUploadService batchUploadService;
+    private final ReactiveMediaUploadService reactiveUploadService;
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Upload a single media file")
@@ -55,6 +60,23 @@ public class MediaController {
         return ResponseEntity.ok(ApiResponse.success("Media uploaded successfully", response));
     }
 
+    @PostMapping(value = "/upload/reactive", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Upload a single media file without holding a request thread during storage")
+    public Mono<ResponseEntity<ApiResponse<MediaUploadResponse>>> uploadReactive(
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(HeaderConstants.WABA_ID) String wabaId) {
+
+        // Capture context on the HTTP thread — the pipeline runs on Reactor schedulers
+        Long orgId = UserContext.getOrganisationId();
+        Long projectId = UserContext.getProjectId();
+        validator.validateUserContext();
+
+        log.info("Reactive upload request: file={} org={} project={}", file.getOriginalFilename(), orgId, projectId);
+
+        return reactiveUploadService.upload(file, wabaId, orgId, projectId)
+                .map(response -> ResponseEntity.ok(ApiResponse.success("Media uploaded successfully", response)));
+    }
+
     @PostMapping(value = "/upload/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     @Operation(summary = "Upload multiple media files in a single batch")
     public ResponseEntity<ApiResponse<BatchMediaUploadResponse>> uploadBatch(
@@ -73,6 +95,27 @@ public class MediaController {
         return ResponseEntity.ok(ApiResponse.success("Batch upload complete", response));
     }
 
+    /**
+     * Same batch semantics as /upload/batch, but each file's result is written
+     * as soon as that file completes — NDJSON lines or SSE events depending on Accept.
+     */
+    @PostMapping(value = "/upload/batch/stream",
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    @Operation(summary = "Upload multiple media files, streaming per-file results")
+    public Flux<BatchFileResult> uploadBatchStream(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestHeader(HeaderConstants.WABA_ID) String wabaId) {
+
+        Long orgId = UserContext.getOrganisationId();
+        Long projectId = UserContext.getProjectId();
+        validator.validateUserContext();
+
+        log.info("Streaming batch upload: fileCount={} org={} project={}", files.size(), orgId, projectId);
+
+        return batchUploadService.uploadBatchStreaming(files, wabaId, orgId, projectId);
+    }
+
     @GetMapping
     @Operation(summary = "Get all media (paginated)")
     public ResponseEntity<ApiResponse<Page<UserMediaResponse>>> getAll(
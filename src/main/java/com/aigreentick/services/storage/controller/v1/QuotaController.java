@@ -3,6 +3,10 @@ package com.aigreentick.services.storage.controller.v1;
 
 import com.aigreentick.services.storage.domain.OrgStorage;
 import com.aigreentick.services.storage.domain.ProjectStorage;
+import com.aigreentick.services.storage.dto.quota.BulkQuotaRequest;
+import com.aigreentick.services.storage.dto.quota.BulkQuotaResponse;
+import com.aigreentick.services.storage.dto.quota.OrgQuotaView;
+import com.aigreentick.services.storage.dto.quota.ProjectQuotaView;
 import com.aigreentick.services.storage.dto.response.ApiResponse;
 import com.aigreentick.services.storage.service.impl.quota.QuotaService;
 import jakarta.validation.Valid;
@@ -41,12 +45,12 @@ public class QuotaController {
 
     @GetMapping("/org/{orgId}")
     public ResponseEntity<ApiResponse<OrgQuotaResponse>> getOrgQuota(@PathVariable Long orgId) {
-        OrgStorage org = quotaService.getOrgQuota(orgId);
+        OrgQuotaView org = quotaService.getOrgQuota(orgId);
         if (org == null) {
             return ResponseEntity.ok(ApiResponse.error("Org quota not found for org=" + orgId));
         }
         return ResponseEntity.ok(ApiResponse.success(
-                new OrgQuotaResponse(org.getOrgId(), org.getMaxBytes(), org.getUsedBytes())));
+                new OrgQuotaResponse(org.orgId(), org.maxBytes(), org.usedBytes())));
     }
 
     // ── Project Quota ───────────────────────────────────────────────────────
@@ -69,14 +73,32 @@ public class QuotaController {
     public ResponseEntity<ApiResponse<ProjectQuotaResponse>> getProjectQuota(
             @PathVariable Long orgId, @PathVariable Long projectId) {
 
-        ProjectStorage proj = quotaService.getProjectQuota(orgId, projectId);
+        ProjectQuotaView proj = quotaService.getProjectQuota(orgId, projectId);
         if (proj == null) {
             return ResponseEntity.ok(ApiResponse.error(
                     "Project quota not found for org=" + orgId + " project=" + projectId));
         }
         return ResponseEntity.ok(ApiResponse.success(
-                new ProjectQuotaResponse(proj.getOrgId(), proj.getProjectId(),
-                        proj.getMaxBytes(), proj.getUsedBytes())));
+                new ProjectQuotaResponse(proj.orgId(), proj.projectId(),
+                        proj.maxBytes(), proj.usedBytes())));
+    }
+
+    // ── Bulk ────────────────────────────────────────────────────────────────
+
+    /**
+     * Provisions arrays of org and project quotas in one transaction.
+     * Invalid rows are reported per row in the response instead of failing the call.
+     */
+    @PutMapping("/bulk")
+    public ResponseEntity<ApiResponse<BulkQuotaResponse>> bulkUpsertQuota(
+            @Valid @RequestBody BulkQuotaRequest request) {
+
+        log.info("Bulk upsert quota: orgs={} projects={}",
+                request.getOrgs() != null ? request.getOrgs().size() : 0,
+                request.getProjects() != null ? request.getProjects().size() : 0);
+        BulkQuotaResponse response = quotaService.bulkUpsert(request);
+
+        return ResponseEntity.ok(ApiResponse.success("Bulk quota provisioned", response));
     }
 
     // ── Request / Response DTOs ─────────────────────────────────────────────
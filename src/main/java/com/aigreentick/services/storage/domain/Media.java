@@ -19,7 +19,8 @@ import lombok.*;
         @Index(name = "idx_media_org_project_type_created",  columnList = "organisation_id, project_id, media_type, created_at DESC"),
         @Index(name = "idx_media_media_id",                  columnList = "media_id"),
         @Index(name = "idx_media_stored_filename",           columnList = "stored_filename"),
-        @Index(name = "idx_media_status",                    columnList = "status")
+        @Index(name = "idx_media_status",                    columnList = "status"),
+        @Index(name = "idx_media_org_project_checksum",      columnList = "organisation_id, project_id, checksum")
     }
 )
 @Getter
@@ -47,9 +48,9 @@ public class Media {
     @Column(name = "file_size", nullable = false)
     private Long fileSize;
 
-    // /** SHA-256 hex digest — used for duplicate detection */
-    // @Column(name = "checksum", nullable = false, length = 64)
-    // private String checksum;
+    /** SHA-256 hex digest — used for duplicate detection. Null for rows stored before dedup. */
+    @Column(name = "checksum", length = 64)
+    private String checksum;
 
     // ── Media Classification ─────────────────────────────────────────────────
 
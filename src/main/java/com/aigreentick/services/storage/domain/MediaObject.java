@@ -0,0 +1,72 @@
+package com.aigreentick.services.storage.domain;
+
+import java.time.Instant;
+
+import com.aigreentick.services.storage.enums.StorageProviderType;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A stored object that deduplicated uploads share. Every upload still gets its
+ * own {@link Media} row with the same storage_key; this row counts them, and
+ * the object's bytes are charged to quota once, until the last reference goes.
+ */
+@Entity
+@Table(
+    name = "media_object",
+    indexes = {
+        @Index(name = "idx_media_object_org_project_checksum", columnList = "organisation_id, project_id, checksum")
+    }
+)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaObject {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "organisation_id", nullable = false)
+    private Long organisationId;
+
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    /** SHA-256 hex digest of the stored bytes */
+    @Column(name = "checksum", nullable = false, length = 64)
+    private String checksum;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "storage_provider", nullable = false, length = 50)
+    private StorageProviderType storageProvider;
+
+    @Column(name = "storage_key", nullable = false, length = 1000)
+    private String storageKey;
+
+    @Column(name = "storage_bucket")
+    private String storageBucket;
+
+    @Column(name = "storage_region", length = 100)
+    private String storageRegion;
+
+    @Column(name = "media_url", length = 2048)
+    private String mediaUrl;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    /** Media rows referencing the object; the row is deleted with the last one */
+    @Column(name = "ref_count", nullable = false)
+    @Builder.Default
+    private Integer refCount = 1;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,76 @@
+package com.aigreentick.services.storage.domain;
+
+import com.aigreentick.services.storage.enums.QuotaDeltaStatus;
+import com.aigreentick.services.storage.enums.QuotaDeltaType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Outbox row for continuous quota drift detection. Written in the same
+ * transaction as the media change it describes (or on its own when a quota
+ * rollback failed) and consumed by the drift worker within seconds.
+ */
+@Entity
+@Table(
+    name = "quota_delta_outbox",
+    indexes = {
+        @Index(name = "idx_quota_delta_status_next", columnList = "status, next_attempt_at")
+    }
+)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuotaDeltaEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "org_id", nullable = false)
+    private Long orgId;
+
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "delta_type", nullable = false, length = 30)
+    private QuotaDeltaType deltaType;
+
+    /** Signed change to used_bytes; for RELEASE_FAILED the bytes still to release (negative) */
+    @Column(name = "delta_bytes", nullable = false)
+    private Long deltaBytes;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private QuotaDeltaStatus status = QuotaDeltaStatus.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    // ── Verification state ───────────────────────────────────────────────────
+
+    /** used_bytes seen by the last verification that found drift */
+    @Column(name = "observed_used_bytes")
+    private Long observedUsedBytes;
+
+    /** Expected bytes (media + sessions) seen by that same verification */
+    @Column(name = "observed_expected_bytes")
+    private Long observedExpectedBytes;
+
+    // ── Timestamps ───────────────────────────────────────────────────────────
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "processed_at")
+    private Instant processedAt;
+}
@@ -0,0 +1,52 @@
+package com.aigreentick.services.storage.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Quota headroom a replica has claimed for a project but not yet handed out.
+ * The bytes are already counted in project_storage / org_storage used_bytes;
+ * while this row is live, reconciliation skips the project so they stay
+ * counted.
+ *
+ * leasedBytes is the headroom right after the last claim; reservations
+ * served from the lease since then are not reflected.
+ */
+@Entity
+@Table(
+    name = "quota_lease",
+    indexes = {
+        @Index(name = "idx_quota_lease_project", columnList = "org_id, project_id, expires_at")
+    }
+)
+@IdClass(QuotaLeaseId.class)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuotaLease {
+
+    @Id
+    @Column(name = "node_id", nullable = false, length = 100)
+    private String nodeId;
+
+    @Id
+    @Column(name = "org_id", nullable = false)
+    private Long orgId;
+
+    @Id
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    @Column(name = "leased_bytes", nullable = false)
+    private Long leasedBytes;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
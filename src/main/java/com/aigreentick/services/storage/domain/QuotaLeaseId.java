@@ -0,0 +1,15 @@
+package com.aigreentick.services.storage.domain;
+
+import lombok.*;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuotaLeaseId implements Serializable {
+
+    private String nodeId;
+    private Long orgId;
+    private Long projectId;
+}
@@ -0,0 +1,31 @@
+package com.aigreentick.services.storage.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Highest journal segment of a quota ledger whose deltas are already in
+ * org_storage / project_storage. Written in the same transaction as the
+ * deltas, so replay after a crash never applies a segment twice.
+ */
+@Entity
+@Table(name = "quota_ledger_checkpoint")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuotaLedgerCheckpoint {
+
+    @Id
+    @Column(name = "ledger_id", nullable = false, length = 64)
+    private String ledgerId;
+
+    @Column(name = "flushed_segment", nullable = false)
+    private Long flushedSegment;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
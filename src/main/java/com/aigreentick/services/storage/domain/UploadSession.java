@@ -0,0 +1,119 @@
+package com.aigreentick.services.storage.domain;
+
+import java.time.Instant;
+
+import com.aigreentick.services.storage.enums.MediaType;
+import com.aigreentick.services.storage.enums.StorageProviderType;
+import com.aigreentick.services.storage.enums.UploadMode;
+import com.aigreentick.services.storage.enums.UploadSessionStatus;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Server-side state of a resumable chunked or presigned direct upload.
+ * Quota for totalSize is reserved when the session is created and settled
+ * when it completes, is aborted or expires.
+ */
+@Entity
+@Table(
+    name = "upload_session",
+    indexes = {
+        @Index(name = "idx_upload_session_status_expires", columnList = "status, expires_at")
+    }
+)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+
+    /** Opaque session id handed to the client (UUID) */
+    @Id
+    @Column(name = "id", nullable = false, length = 36)
+    private String id;
+
+    // ── File Identity ────────────────────────────────────────────────────────
+
+    @Column(name = "original_filename", nullable = false)
+    private String originalFilename;
+
+    @Column(name = "mime_type", nullable = false, length = 100)
+    private String mimeType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "media_type", nullable = false, length = 50)
+    private MediaType mediaType;
+
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    @Column(name = "chunk_size", nullable = false)
+    private Long chunkSize;
+
+    // ── Storage Location ─────────────────────────────────────────────────────
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "storage_provider", nullable = false, length = 50)
+    private StorageProviderType storageProvider;
+
+    @Column(name = "storage_key", nullable = false, length = 1000)
+    private String storageKey;
+
+    /** Provider handle for the in-progress upload (S3 UploadId, local staging id); null for a single presigned PUT */
+    @Column(name = "provider_upload_id", length = 1024)
+    private String providerUploadId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "upload_mode", nullable = false, length = 30)
+    @Builder.Default
+    private UploadMode uploadMode = UploadMode.CHUNKED;
+
+    /** Base64 SHA-256 declared by the client for a direct upload, verified on complete */
+    @Column(name = "expected_checksum", length = 64)
+    private String expectedChecksum;
+
+    // ── Tenant Context ───────────────────────────────────────────────────────
+
+    @Column(name = "waba_id")
+    private String wabaId;
+
+    @Column(name = "organisation_id", nullable = false)
+    private Long organisationId;
+
+    @Column(name = "project_id", nullable = false)
+    private Long projectId;
+
+    // ── Lifecycle ────────────────────────────────────────────────────────────
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 50)
+    @Builder.Default
+    private UploadSessionStatus status = UploadSessionStatus.ACTIVE;
+
+    /** Chunk writes in flight; complete waits for them (see UploadSessionRepository#startCompleting) */
+    @Column(name = "active_writers", nullable = false)
+    @Builder.Default
+    private Integer activeWriters = 0;
+
+    @Column(name = "writer_claimed_at")
+    private Instant writerClaimedAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public int getTotalParts() {
+        return (int) ((totalSize + chunkSize - 1) / chunkSize);
+    }
+
+    public boolean isExpired(Instant now) {
+        return expiresAt.isBefore(now);
+    }
+}
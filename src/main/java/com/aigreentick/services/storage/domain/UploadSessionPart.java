@@ -0,0 +1,46 @@
+package com.aigreentick.services.storage.domain;
+
+import java.time.Instant;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One received chunk of an {@link UploadSession}. Re-sending a chunk
+ * overwrites the same part number.
+ */
+@Entity
+@Table(
+    name = "upload_session_part",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_upload_session_part", columnNames = {"session_id", "part_number"})
+    }
+)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionPart {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "session_id", nullable = false, length = 36)
+    private String sessionId;
+
+    /** 1-based, = offset / chunkSize + 1 */
+    @Column(name = "part_number", nullable = false)
+    private Integer partNumber;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    /** Provider part token (S3 ETag); null for local storage */
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,34 @@
+package com.aigreentick.services.storage.dto.quota;
+
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Org and project quota definitions provisioned in one call. Rows are
+ * validated individually so one bad row is reported, not fatal.
+ */
+@Data
+public class BulkQuotaRequest {
+
+    @Size(max = 10_000)
+    private List<OrgQuota> orgs = new ArrayList<>();
+
+    @Size(max = 10_000)
+    private List<ProjectQuota> projects = new ArrayList<>();
+
+    @Data
+    public static class OrgQuota {
+        private Long orgId;
+        private Long maxBytes;
+    }
+
+    @Data
+    public static class ProjectQuota {
+        private Long orgId;
+        private Long projectId;
+        private Long maxBytes;
+    }
+}
@@ -0,0 +1,24 @@
+package com.aigreentick.services.storage.dto.quota;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkQuotaResponse {
+    private int createdCount;
+    private int updatedCount;
+    private int rejectedCount;
+    /** In request order */
+    private List<QuotaProvisionResult> orgs;
+    /** In request order */
+    private List<QuotaProvisionResult> projects;
+}
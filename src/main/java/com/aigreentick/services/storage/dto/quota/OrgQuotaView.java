@@ -0,0 +1,4 @@
+package com.aigreentick.services.storage.dto.quota;
+
+/** Immutable snapshot of an org_storage row, safe to share from a cache. */
+public record OrgQuotaView(Long orgId, Long maxBytes, Long usedBytes) {}
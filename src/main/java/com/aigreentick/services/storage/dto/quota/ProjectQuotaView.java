@@ -0,0 +1,4 @@
+package com.aigreentick.services.storage.dto.quota;
+
+/** Immutable snapshot of a project_storage row, safe to share from a cache. */
+public record ProjectQuotaView(Long orgId, Long projectId, Long maxBytes, Long usedBytes) {}
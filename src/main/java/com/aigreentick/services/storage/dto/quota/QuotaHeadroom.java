@@ -0,0 +1,12 @@
+package com.aigreentick.services.storage.dto.quota;
+
+/**
+ * Project and org counters read in one statement. A null pair means the
+ * quota row does not exist.
+ */
+public interface QuotaHeadroom {
+    Long getProjectUsed();
+    Long getProjectMax();
+    Long getOrgUsed();
+    Long getOrgMax();
+}
@@ -0,0 +1,42 @@
+package com.aigreentick.services.storage.dto.quota;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Outcome of one row of a bulk quota request; projectId is null for org rows. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QuotaProvisionResult {
+
+    public enum Status { CREATED, UPDATED, REJECTED }
+
+    private Long orgId;
+    private Long projectId;
+    private Long maxBytes;
+    private Status status;
+    private String error;
+
+    public static QuotaProvisionResult applied(Long orgId, Long projectId, Long maxBytes, boolean existed) {
+        return QuotaProvisionResult.builder()
+                .orgId(orgId)
+                .projectId(projectId)
+                .maxBytes(maxBytes)
+                .status(existed ? Status.UPDATED : Status.CREATED)
+                .build();
+    }
+
+    public static QuotaProvisionResult rejected(Long orgId, Long projectId, String error) {
+        return QuotaProvisionResult.builder()
+                .orgId(orgId)
+                .projectId(projectId)
+                .status(Status.REJECTED)
+                .error(error)
+                .build();
+    }
+}
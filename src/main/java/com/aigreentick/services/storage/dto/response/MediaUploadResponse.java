@@ -59,4 +59,9 @@ public class MediaUploadResponse {
      */
     private Instant uploadedAt;
 
+    /**
+     * True when an identical object already existed and was reused.
+     */
+    private Boolean deduplicated;
+
 }
@@ -0,0 +1,13 @@
+package com.aigreentick.services.storage.dto.storage;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ChunkPart {
+    private int partNumber;      // 1-based
+    private long offset;         // Byte offset of the part in the final object
+    private long size;           // Part size in bytes
+    private String etag;         // Provider part token (S3 ETag), null for local
+}
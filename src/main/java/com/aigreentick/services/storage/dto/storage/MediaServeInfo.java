@@ -0,0 +1,11 @@
+package com.aigreentick.services.storage.dto.storage;
+
+import java.time.Instant;
+
+/** Columns of a media row needed to serve its object. */
+public interface MediaServeInfo {
+    String getMimeType();
+    Long getFileSize();
+    String getChecksum();
+    Instant getCreatedAt();
+}
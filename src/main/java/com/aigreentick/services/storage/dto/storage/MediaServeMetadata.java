@@ -0,0 +1,27 @@
+package com.aigreentick.services.storage.dto.storage;
+
+/**
+ * Response headers for a served object. lastModified is epoch millis;
+ * etag is quoted and strong.
+ */
+public record MediaServeMetadata(String mimeType, long size, String etag, long lastModified) {
+
+    /** ETag from the content hash when known, else from size and creation time. */
+    public static MediaServeMetadata of(MediaServeInfo row) {
+        long size = row.getFileSize();
+        long created = row.getCreatedAt().toEpochMilli();
+        String etag = row.getChecksum() != null
+                ? "\"" + row.getChecksum() + "\""
+                : fromAttributes(size, created);
+        return new MediaServeMetadata(row.getMimeType().intern(), size, etag, created);
+    }
+
+    /** For objects with no media row: size and mtime of the file. */
+    public static MediaServeMetadata of(String mimeType, long size, long lastModified) {
+        return new MediaServeMetadata(mimeType, size, fromAttributes(size, lastModified), lastModified);
+    }
+
+    private static String fromAttributes(long size, long time) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(time) + "\"";
+    }
+}
@@ -0,0 +1,13 @@
+package com.aigreentick.services.storage.dto.storage;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ObjectHead {
+    private long size;                // Content-Length of the stored object
+    private String contentType;
+    private String etag;
+    private String checksumSha256;    // Base64, only when the object was uploaded with one
+}
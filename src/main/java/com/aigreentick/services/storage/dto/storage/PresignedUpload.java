@@ -0,0 +1,15 @@
+package com.aigreentick.services.storage.dto.storage;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@Builder
+public class PresignedUpload {
+    private String url;                      // Presigned PUT URL
+    private Map<String, String> headers;     // Signed headers the client must send unchanged
+    private Instant expiresAt;
+}
@@ -15,4 +15,6 @@ public class StorageResult {
     private String region;               // Geographic region
     private Long fileSize;               // File size in bytes
     private String contentType;          // MIME type
+    private String checksumSha256;       // Hex SHA-256 of the stored bytes
+    private String checksumCrc32c;       // Base64 CRC32C (S3 header format), when enabled
 }
\ No newline at end of file
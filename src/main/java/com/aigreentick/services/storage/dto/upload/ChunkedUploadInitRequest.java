@@ -0,0 +1,21 @@
+package com.aigreentick.services.storage.dto.upload;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class ChunkedUploadInitRequest {
+
+    @NotBlank
+    private String filename;
+
+    @NotBlank
+    private String contentType;
+
+    /** Exact size of the complete file in bytes */
+    @NotNull
+    @Min(1)
+    private Long totalSize;
+}
@@ -0,0 +1,35 @@
+package com.aigreentick.services.storage.dto.upload;
+
+import com.aigreentick.services.storage.enums.UploadSessionStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Session state returned on init, after each chunk and on status queries.
+ * A resuming client re-sends every part not listed in receivedParts.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChunkedUploadSessionResponse {
+    private String sessionId;
+    private UploadSessionStatus status;
+    private String originalFilename;
+    private Long totalSize;
+
+    /** Every chunk except the last must be exactly this many bytes, at offset (partNumber - 1) * chunkSize */
+    private Long chunkSize;
+    private Integer totalParts;
+
+    private Long receivedBytes;
+    private List<Integer> receivedParts;
+    private Instant expiresAt;
+}
@@ -0,0 +1,31 @@
+package com.aigreentick.services.storage.dto.upload;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Completion callback. Multipart uploads must list every part with the ETag
+ * S3 returned for it; single PUT uploads send an empty body.
+ */
+@Data
+public class DirectUploadCompleteRequest {
+
+    @Valid
+    private List<CompletedPart> parts;
+
+    @Data
+    public static class CompletedPart {
+
+        @NotNull
+        @Min(1)
+        private Integer partNumber;
+
+        @NotBlank
+        private String etag;
+    }
+}
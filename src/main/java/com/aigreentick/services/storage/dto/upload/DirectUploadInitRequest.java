@@ -0,0 +1,26 @@
+package com.aigreentick.services.storage.dto.upload;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+@Data
+public class DirectUploadInitRequest {
+
+    @NotBlank
+    private String filename;
+
+    @NotBlank
+    private String contentType;
+
+    /** Exact size of the file in bytes — the presigned URL only accepts this length */
+    @NotNull
+    @Min(1)
+    private Long totalSize;
+
+    /** Optional base64 SHA-256 of the file; S3 rejects a single-PUT body that does not match */
+    @Pattern(regexp = "^[A-Za-z0-9+/]{43}=$", message = "checksumSha256 must be a base64 SHA-256 digest")
+    private String checksumSha256;
+}
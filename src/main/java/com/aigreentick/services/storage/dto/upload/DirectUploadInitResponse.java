@@ -0,0 +1,50 @@
+package com.aigreentick.services.storage.dto.upload;
+
+import com.aigreentick.services.storage.enums.UploadMode;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where and how the client should PUT the bytes.
+ * PRESIGNED_PUT → one PUT of the whole file to url with headers.
+ * PRESIGNED_MULTIPART → one PUT per entry in parts; keep each response ETag for complete.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DirectUploadInitResponse {
+    private String sessionId;
+    private UploadMode uploadMode;
+    private Long totalSize;
+
+    private String url;
+    private Map<String, String> headers;
+
+    private Long partSize;
+    private List<PartUrl> parts;
+
+    /** The presigned URLs stop working at this instant */
+    private Instant urlExpiresAt;
+
+    /** The session (and its quota reservation) is discarded if not completed by then */
+    private Instant expiresAt;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PartUrl {
+        private Integer partNumber;
+        private Long size;
+        private String url;
+    }
+}
@@ -0,0 +1,7 @@
+package com.aigreentick.services.storage.enums;
+
+public enum QuotaDeltaStatus {
+    PENDING,
+    DONE,
+    SKIPPED
+}
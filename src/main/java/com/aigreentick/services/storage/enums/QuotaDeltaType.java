@@ -0,0 +1,17 @@
+package com.aigreentick.services.storage.enums;
+
+/**
+ * Why a quota_delta_outbox row was written. RELEASE_FAILED carries bytes that
+ * still have to come off the counters; the others only ask for the project
+ * to be re-verified against its media.
+ */
+public enum QuotaDeltaType {
+    MEDIA_INSERTED,
+    MEDIA_DELETED,
+    PROJECT_PURGED,
+    RELEASE_FAILED;
+
+    public boolean isRelease() {
+        return this == RELEASE_FAILED;
+    }
+}
@@ -0,0 +1,16 @@
+package com.aigreentick.services.storage.enums;
+
+/**
+ * Outcome of a combined project + org quota reservation.
+ */
+public enum QuotaReservationResult {
+    RESERVED,
+    PROJECT_NOT_PROVISIONED,
+    ORG_NOT_PROVISIONED,
+    PROJECT_LIMIT_EXCEEDED,
+    ORG_LIMIT_EXCEEDED;
+
+    public boolean isReserved() {
+        return this == RESERVED;
+    }
+}
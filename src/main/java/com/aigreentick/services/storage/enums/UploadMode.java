@@ -0,0 +1,13 @@
+package com.aigreentick.services.storage.enums;
+
+/**
+ * How the bytes of an upload session reach storage.
+ */
+public enum UploadMode {
+    /** Client PUTs chunks through this service */
+    CHUNKED,
+    /** Client PUTs the whole object straight to S3 via one presigned URL */
+    PRESIGNED_PUT,
+    /** Client PUTs parts straight to S3 via presigned part URLs */
+    PRESIGNED_MULTIPART
+}
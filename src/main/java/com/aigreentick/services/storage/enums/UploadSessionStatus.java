@@ -0,0 +1,9 @@
+package com.aigreentick.services.storage.enums;
+
+public enum UploadSessionStatus {
+    ACTIVE,
+    COMPLETING,
+    COMPLETED,
+    ABORTED,
+    EXPIRED
+}
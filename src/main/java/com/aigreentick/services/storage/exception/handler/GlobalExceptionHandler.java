@@ -19,6 +19,12 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(ApiResponse.error(ex.getMessage()));
     }
 
+    @ExceptionHandler(InvalidMediaException.class)
+    public ResponseEntity<ApiResponse<Void>> handleInvalidMedia(InvalidMediaException ex) {
+        log.warn("Invalid media: {}", ex.getMessage());
+        return ResponseEntity.badRequest().body(ApiResponse.error(ex.getMessage()));
+    }
+
     @ExceptionHandler(MediaNotFoundException.class)
     public ResponseEntity<ApiResponse<Void>> handleNotFound(MediaNotFoundException ex) {
         log.warn("Not found: {}", ex.getMessage());
@@ -9,6 +9,7 @@ import io.github.resilience4j.retry.annotation.Retry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
@@ -38,6 +39,24 @@ public class FacebookMediaClient {
     @RateLimiter(name = ResilienceConstants.RL_WHATSAPP_MEDIA, fallbackMethod = "uploadMediaFallback")
     public FacebookApiResult<WhatsappMediaUploadResponse> uploadMedia(
             File file, String mimeType, String phoneNumberId, String accessToken) {
+        return doUploadMedia(new FileSystemResource(file), mimeType, phoneNumberId, accessToken);
+    }
+
+    /**
+     * Same as {@link #uploadMedia(File, String, String, String)} but reads the
+     * content from any {@link Resource} (e.g. a multipart part) without
+     * requiring a local temp file.
+     */
+    @Retry(name = ResilienceConstants.RT_WHATSAPP_MEDIA, fallbackMethod = "uploadResourceFallback")
+    @CircuitBreaker(name = ResilienceConstants.CB_WHATSAPP_MEDIA, fallbackMethod = "uploadResourceFallback")
+    @RateLimiter(name = ResilienceConstants.RL_WHATSAPP_MEDIA, fallbackMethod = "uploadResourceFallback")
+    public FacebookApiResult<WhatsappMediaUploadResponse> uploadMedia(
+            Resource resource, String mimeType, String phoneNumberId, String accessToken) {
+        return doUploadMedia(resource, mimeType, phoneNumberId, accessToken);
+    }
+
+    private FacebookApiResult<WhatsappMediaUploadResponse> doUploadMedia(
+            Resource resource, String mimeType, String phoneNumberId, String accessToken) {
 
         if (!properties.isOutgoingEnabled()) {
             return FacebookApiResult.error("Outgoing requests disabled", 503);
@@ -49,7 +68,7 @@ public class FacebookMediaClient {
 
         MultipartBodyBuilder body = new MultipartBodyBuilder();
         body.part("messaging_product", "whatsapp");
-        body.part("file", new FileSystemResource(file))
+        body.part("file", resource)
             .header(HttpHeaders.CONTENT_TYPE, mimeType);
 
         try {
@@ -196,6 +215,13 @@ public class FacebookMediaClient {
         return FacebookApiResult.error("Media upload failed: " + ex.getMessage(), 503);
     }
 
+    @SuppressWarnings("unused")
+    private FacebookApiResult<WhatsappMediaUploadResponse> uploadResourceFallback(
+            Resource resource, String mimeType, String phoneNumberId, String accessToken, Throwable ex) {
+        log.warn("Fallback: uploadMedia. phoneNumberId={} cause={}", phoneNumberId, ex.getMessage());
+        return FacebookApiResult.error("Media upload failed: " + ex.getMessage(), 503);
+    }
+
     // @SuppressWarnings("unused")
     // private <T> FacebookApiResult<T> resumableFallback(
     //         Object p1, Object p2, Object p3, Object p4, Object p5, Throwable ex) {
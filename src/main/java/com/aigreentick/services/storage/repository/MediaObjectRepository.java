@@ -0,0 +1,41 @@
+package com.aigreentick.services.storage.repository;
+
+import com.aigreentick.services.storage.domain.MediaObject;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface MediaObjectRepository extends JpaRepository<MediaObject, Long> {
+
+    /** Dedup lookup (idx_media_object_org_project_checksum). */
+    Optional<MediaObject> findFirstByChecksumAndOrganisationIdAndProjectIdOrderByIdAsc(
+            String checksum, Long organisationId, Long projectId);
+
+    /**
+     * The shared object behind a Media row, locked for dropping a reference.
+     * Empty for rows stored without dedup.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM MediaObject o WHERE o.storageKey = :storageKey")
+    Optional<MediaObject> findByStorageKeyForUpdate(@Param("storageKey") String storageKey);
+
+    /**
+     * Adds a reference to a stored object.
+     * Returns 0 if the last reference was dropped (row deleted) between lookup and reuse.
+     */
+    @Modifying
+    @Query("UPDATE MediaObject o SET o.refCount = o.refCount + 1, o.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE o.id = :id AND o.refCount > 0")
+    int acquire(@Param("id") Long id);
+
+    void deleteByOrganisationIdAndProjectId(Long organisationId, Long projectId);
+
+    void deleteByOrganisationId(Long organisationId);
+}
@@ -1,6 +1,8 @@
 package com.aigreentick.services.storage.repository;
 
 import com.aigreentick.services.storage.domain.Media;
+import com.aigreentick.services.storage.dto.storage.MediaServeInfo;
+import com.aigreentick.services.storage.enums.MediaStatus;
 import com.aigreentick.services.storage.enums.MediaType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -27,8 +29,15 @@ public interface MediaRepository extends JpaRepository<Media, Long>, MediaReposi
     boolean existsByStoredFilename(String storedFilename);
 
     /** Used for duplicate detection */
-//     boolean existsByChecksumAndOrganisationIdAndProjectId(
-//             String checksum, Long organisationId, Long projectId);
+    boolean existsByChecksumAndOrganisationIdAndProjectId(
+            String checksum, Long organisationId, Long projectId);
+
+    /** Serving headers for a stored object (idx_media_storage_key). */
+    Optional<MediaServeInfo> findFirstByStorageKeyAndStatusOrderByIdAsc(
+            String storageKey, MediaStatus status);
+
+    /** Whether an upload already produced its Media row (idx_media_storage_key). */
+    boolean existsByStorageKeyAndStatus(String storageKey, MediaStatus status);
 
     long countByOrganisationIdAndProjectId(Long organisationId, Long projectId);
 
@@ -36,7 +36,7 @@ public interface OrgStorageRepository extends JpaRepository<OrgStorage, Long> {
      */
     @Modifying
     @Query("UPDATE OrgStorage o " +
-            "SET o.usedBytes = o.usedBytes + :size, o.updatedAt = CURRENT_TIMESTAMP " +
+            "SET o.usedBytes = o.usedBytes + :size, o.updatedAt = CURRENT_TIMESTAMP, o.version = o.version + 1 " +
             "WHERE o.orgId = :orgId " +
             "AND o.usedBytes + :size <= o.maxBytes")
     int incrementUsage(@Param("orgId") Long orgId, @Param("size") long size);
@@ -47,7 +47,18 @@ public interface OrgStorageRepository extends JpaRepository<OrgStorage, Long> {
     @Modifying
     @Query("UPDATE OrgStorage o " +
             "SET o.usedBytes = CASE WHEN o.usedBytes >= :size THEN o.usedBytes - :size ELSE 0 END, " +
-            "    o.updatedAt = CURRENT_TIMESTAMP " +
+            "    o.updatedAt = CURRENT_TIMESTAMP, o.version = o.version + 1 " +
             "WHERE o.orgId = :orgId")
     int decrementUsage(@Param("orgId") Long orgId, @Param("size") long size);
-}
\ No newline at end of file
+
+    /**
+     * Applies a signed write-behind delta from the quota ledger. No capacity
+     * check — the ledger already admitted these bytes.
+     */
+    @Modifying
+    @Query("UPDATE OrgStorage o " +
+            "SET o.usedBytes = CASE WHEN o.usedBytes + :delta >= 0 THEN o.usedBytes + :delta ELSE 0 END, " +
+            "    o.updatedAt = CURRENT_TIMESTAMP, o.version = o.version + 1 " +
+            "WHERE o.orgId = :orgId")
+    int applyUsageDelta(@Param("orgId") Long orgId, @Param("delta") long delta);
+}
@@ -2,6 +2,7 @@ package com.aigreentick.services.storage.repository;
 
 import com.aigreentick.services.storage.domain.ProjectStorage;
 import com.aigreentick.services.storage.domain.ProjectStorageId;
+import com.aigreentick.services.storage.dto.quota.QuotaHeadroom;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
@@ -33,8 +34,11 @@ public interface ProjectStorageRepository extends JpaRepository<ProjectStorage,
 
        List<ProjectStorage> findByOrgId(Long orgId);
 
-       @Query("SELECT COALESCE(SUM(m.fileSize), 0) FROM Media m " +
-                     "WHERE m.organisationId = :orgId AND m.projectId = :projectId AND m.status = 'ACTIVE'")
+       /** Bytes of the project's stored objects; deduplicated uploads share one storage key. */
+       @Query(value = "SELECT COALESCE(SUM(file_size), 0) FROM (" +
+                     "SELECT MAX(file_size) AS file_size FROM media " +
+                     "WHERE organisation_id = :orgId AND project_id = :projectId AND status = 'ACTIVE' " +
+                     "GROUP BY storage_key) stored", nativeQuery = true)
        long sumActiveMediaBytes(@Param("orgId") Long orgId,
                      @Param("projectId") Long projectId);
 
@@ -44,7 +48,7 @@ public interface ProjectStorageRepository extends JpaRepository<ProjectStorage,
         */
        @Modifying
        @Query("UPDATE ProjectStorage p " +
-                     "SET p.usedBytes = p.usedBytes + :size, p.updatedAt = CURRENT_TIMESTAMP " +
+                     "SET p.usedBytes = p.usedBytes + :size, p.updatedAt = CURRENT_TIMESTAMP, p.version = p.version + 1 " +
                      "WHERE p.orgId = :orgId AND p.projectId = :projectId " +
                      "AND p.usedBytes + :size <= p.maxBytes")
        int incrementUsage(@Param("orgId") Long orgId,
@@ -57,9 +61,52 @@ public interface ProjectStorageRepository extends JpaRepository<ProjectStorage,
        @Modifying
        @Query("UPDATE ProjectStorage p " +
                      "SET p.usedBytes = CASE WHEN p.usedBytes >= :size THEN p.usedBytes - :size ELSE 0 END, " +
-                     "    p.updatedAt = CURRENT_TIMESTAMP " +
+                     "    p.updatedAt = CURRENT_TIMESTAMP, p.version = p.version + 1 " +
                      "WHERE p.orgId = :orgId AND p.projectId = :projectId")
        int decrementUsage(@Param("orgId") Long orgId,
                      @Param("projectId") Long projectId,
                      @Param("size") long size);
-}
\ No newline at end of file
+
+       /**
+        * Applies a signed write-behind delta from the quota ledger. No capacity
+        * check — the ledger already admitted these bytes.
+        */
+       @Modifying
+       @Query("UPDATE ProjectStorage p " +
+                     "SET p.usedBytes = CASE WHEN p.usedBytes + :delta >= 0 THEN p.usedBytes + :delta ELSE 0 END, " +
+                     "    p.updatedAt = CURRENT_TIMESTAMP, p.version = p.version + 1 " +
+                     "WHERE p.orgId = :orgId AND p.projectId = :projectId")
+       int applyUsageDelta(@Param("orgId") Long orgId,
+                     @Param("projectId") Long projectId,
+                     @Param("delta") long delta);
+
+       /**
+        * Combined reservation: checks and increments the project and its org in
+        * one multi-table UPDATE — one round trip, both row locks taken together.
+        * Returns 0 if either limit would be exceeded or a row is missing;
+        * {@link #findHeadroom} tells which.
+        */
+       @Modifying
+       @Query(value = "UPDATE project_storage p JOIN org_storage o ON o.org_id = p.org_id " +
+                     "SET p.used_bytes = p.used_bytes + :size, p.updated_at = CURRENT_TIMESTAMP(6), p.version = p.version + 1, " +
+                     "    o.used_bytes = o.used_bytes + :size, o.updated_at = CURRENT_TIMESTAMP(6), o.version = o.version + 1 " +
+                     "WHERE p.org_id = :orgId AND p.project_id = :projectId " +
+                     "AND p.used_bytes + :size <= p.max_bytes " +
+                     "AND o.used_bytes + :size <= o.max_bytes",
+              nativeQuery = true)
+       int incrementProjectAndOrgUsage(@Param("orgId") Long orgId,
+                     @Param("projectId") Long projectId,
+                     @Param("size") long size);
+
+       /**
+        * Both counters in one read, for diagnosing a failed combined reservation.
+        */
+       @Query(value = "SELECT " +
+                     "(SELECT used_bytes FROM project_storage WHERE org_id = :orgId AND project_id = :projectId) AS projectUsed, " +
+                     "(SELECT max_bytes  FROM project_storage WHERE org_id = :orgId AND project_id = :projectId) AS projectMax, " +
+                     "(SELECT used_bytes FROM org_storage WHERE org_id = :orgId) AS orgUsed, " +
+                     "(SELECT max_bytes  FROM org_storage WHERE org_id = :orgId) AS orgMax",
+              nativeQuery = true)
+       QuotaHeadroom findHeadroom(@Param("orgId") Long orgId,
+                     @Param("projectId") Long projectId);
+}
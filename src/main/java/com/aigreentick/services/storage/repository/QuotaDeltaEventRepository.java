@@ -0,0 +1,31 @@
+package com.aigreentick.services.storage.repository;
+
+import com.aigreentick.services.storage.domain.QuotaDeltaEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface QuotaDeltaEventRepository extends JpaRepository<QuotaDeltaEvent, Long> {
+
+    /**
+     * Due rows, locked so workers on other replicas skip them. Must run in
+     * the transaction that claims them by pushing next_attempt_at out.
+     */
+    @Query(value = "SELECT * FROM quota_delta_outbox " +
+                   "WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<QuotaDeltaEvent> lockDue(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM quota_delta_outbox " +
+                   "WHERE status <> 'PENDING' AND processed_at < :cutoff LIMIT :limit",
+           nativeQuery = true)
+    int deleteProcessedBefore(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+}
@@ -0,0 +1,32 @@
+package com.aigreentick.services.storage.repository;
+
+import com.aigreentick.services.storage.domain.QuotaLease;
+import com.aigreentick.services.storage.domain.QuotaLeaseId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface QuotaLeaseRepository extends JpaRepository<QuotaLease, QuotaLeaseId> {
+
+    /**
+     * Headroom recorded by live replicas for a project at their last claim.
+     * Non-zero means the project has a live lease, which drift correction skips.
+     */
+    @Query("SELECT COALESCE(SUM(l.leasedBytes), 0) FROM QuotaLease l " +
+           "WHERE l.orgId = :orgId AND l.projectId = :projectId AND l.expiresAt > :now")
+    long sumLeasedBytes(@Param("orgId") Long orgId,
+                        @Param("projectId") Long projectId,
+                        @Param("now") Instant now);
+
+    /** Heartbeat: keeps every lease row of a live node counted. */
+    @Modifying
+    @Transactional
+    @Query("UPDATE QuotaLease l SET l.expiresAt = :expiresAt WHERE l.nodeId = :nodeId")
+    int refresh(@Param("nodeId") String nodeId, @Param("expiresAt") Instant expiresAt);
+}
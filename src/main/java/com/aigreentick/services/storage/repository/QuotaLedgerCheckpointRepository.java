@@ -0,0 +1,9 @@
+package com.aigreentick.services.storage.repository;
+
+import com.aigreentick.services.storage.domain.QuotaLedgerCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface QuotaLedgerCheckpointRepository extends JpaRepository<QuotaLedgerCheckpoint, String> {
+}
@@ -0,0 +1,103 @@
+package com.aigreentick.services.storage.repository;
+
+import com.aigreentick.services.storage.domain.ProjectStorageId;
+import com.aigreentick.services.storage.dto.quota.BulkQuotaRequest.OrgQuota;
+import com.aigreentick.services.storage.dto.quota.BulkQuotaRequest.ProjectQuota;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based quota provisioning: existence lookups with IN lists and
+ * INSERT ... ON DUPLICATE KEY UPDATE in JDBC batches. An update only touches
+ * max_bytes (used_bytes is never reset) and bumps the optimistic-lock
+ * version only when the limit actually changed.
+ */
+@Repository
+@RequiredArgsConstructor
+public class QuotaProvisioningRepository {
+
+    private static final int CHUNK = 1000;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    // ── Lookups ──────────────────────────────────────────────────────────────
+
+    public Set<Long> findExistingOrgIds(Set<Long> orgIds) {
+        Set<Long> existing = new HashSet<>();
+        for (List<Long> chunk : chunks(new ArrayList<>(orgIds))) {
+            existing.addAll(jdbc.queryForList(
+                    "SELECT org_id FROM org_storage WHERE org_id IN (:ids)",
+                    Map.of("ids", chunk), Long.class));
+        }
+        return existing;
+    }
+
+    public Set<ProjectStorageId> findExistingProjects(Set<ProjectStorageId> keys) {
+        Set<ProjectStorageId> existing = new HashSet<>();
+        for (List<ProjectStorageId> chunk : chunks(new ArrayList<>(keys))) {
+            List<Object[]> tuples = chunk.stream()
+                    .map(k -> new Object[] { k.getOrgId(), k.getProjectId() })
+                    .toList();
+            jdbc.query("SELECT org_id, project_id FROM project_storage WHERE (org_id, project_id) IN (:keys)",
+                    Map.of("keys", tuples),
+                    rs -> {
+                        existing.add(new ProjectStorageId(rs.getLong(1), rs.getLong(2)));
+                    });
+        }
+        return existing;
+    }
+
+    // ── Upserts ──────────────────────────────────────────────────────────────
+
+    public void upsertOrgs(List<OrgQuota> rows) {
+        for (List<OrgQuota> chunk : chunks(rows)) {
+            SqlParameterSource[] batch = chunk.stream()
+                    .map(r -> new MapSqlParameterSource()
+                            .addValue("org", r.getOrgId())
+                            .addValue("max", r.getMaxBytes()))
+                    .toArray(SqlParameterSource[]::new);
+            jdbc.batchUpdate(
+                    "INSERT INTO org_storage (org_id, max_bytes, used_bytes, version) " +
+                    "VALUES (:org, :max, 0, 0) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "version = IF(max_bytes = VALUES(max_bytes), version, version + 1), " +
+                    "max_bytes = VALUES(max_bytes), " +
+                    "updated_at = CURRENT_TIMESTAMP(6)", batch);
+        }
+    }
+
+    public void upsertProjects(List<ProjectQuota> rows) {
+        for (List<ProjectQuota> chunk : chunks(rows)) {
+            SqlParameterSource[] batch = chunk.stream()
+                    .map(r -> new MapSqlParameterSource()
+                            .addValue("org", r.getOrgId())
+                            .addValue("project", r.getProjectId())
+                            .addValue("max", r.getMaxBytes()))
+                    .toArray(SqlParameterSource[]::new);
+            jdbc.batchUpdate(
+                    "INSERT INTO project_storage (org_id, project_id, max_bytes, used_bytes, version) " +
+                    "VALUES (:org, :project, :max, 0, 0) " +
+                    "ON DUPLICATE KEY UPDATE " +
+                    "version = IF(max_bytes = VALUES(max_bytes), version, version + 1), " +
+                    "max_bytes = VALUES(max_bytes), " +
+                    "updated_at = CURRENT_TIMESTAMP(6)", batch);
+        }
+    }
+
+    private static <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += CHUNK) {
+            chunks.add(items.subList(i, Math.min(i + CHUNK, items.size())));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,172 @@
+package com.aigreentick.services.storage.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based reads and batched writes for quota reconciliation.
+ *
+ * Projects are walked in keyset order on the (org_id, project_id) primary key;
+ * every per-project total for a chunk comes from one GROUP BY over that key
+ * range, so a chunk costs a fixed number of queries regardless of its size.
+ */
+@Repository
+@RequiredArgsConstructor
+public class QuotaReconciliationRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public record ProjectUsage(long orgId, long projectId, long usedBytes) {}
+
+    public record OrgTotals(long orgId, long recordedBytes, long projectBytes) {}
+
+    public record ProjectKey(long orgId, long projectId) {}
+
+    // ── Projects ─────────────────────────────────────────────────────────────
+
+    /** Next chunk of project rows after the given key (exclusive). */
+    public List<ProjectUsage> findProjectChunk(long afterOrg, long afterProject, int limit) {
+        return jdbc.query(
+                "SELECT org_id, project_id, used_bytes FROM project_storage " +
+                "WHERE org_id > :org OR (org_id = :org AND project_id > :project) " +
+                "ORDER BY org_id, project_id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("org", afterOrg)
+                        .addValue("project", afterProject)
+                        .addValue("limit", limit),
+                (rs, i) -> new ProjectUsage(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+    }
+
+    /**
+     * Bytes that should be counted against each project in the key range:
+     * ACTIVE media and open upload sessions. Live quota leases are not
+     * included — see {@link #findLeasedProjects}.
+     */
+    public Map<ProjectKey, Long> sumExpectedBytes(ProjectUsage from, ProjectUsage to, Instant now) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("fromOrg", from.orgId())
+                .addValue("fromProject", from.projectId())
+                .addValue("toOrg", to.orgId())
+                .addValue("toProject", to.projectId())
+                .addValue("now", Timestamp.from(now));
+
+        Map<ProjectKey, Long> expected = new HashMap<>();
+        // Deduplicated uploads share one stored object: count each storage key once
+        sumInto(expected, "SELECT organisation_id, project_id, SUM(file_size) FROM (" +
+                "SELECT organisation_id, project_id, storage_key, MAX(file_size) AS file_size FROM media " +
+                "WHERE status = 'ACTIVE' AND " + keyRange("organisation_id") +
+                "GROUP BY organisation_id, project_id, storage_key) stored " +
+                "GROUP BY organisation_id, project_id", params);
+        sumInto(expected, "SELECT organisation_id, project_id, SUM(total_size) FROM upload_session " +
+                "WHERE status IN ('ACTIVE', 'COMPLETING') AND " + keyRange("organisation_id") +
+                "GROUP BY organisation_id, project_id", params);
+        return expected;
+    }
+
+    /**
+     * Projects in the key range with a live quota lease. A lease's unused
+     * headroom is only known to the node holding it, so these projects
+     * cannot be reconciled from the database and are skipped until their
+     * leases are returned or expire.
+     */
+    public Set<ProjectKey> findLeasedProjects(ProjectUsage from, ProjectUsage to, Instant now) {
+        Set<ProjectKey> leased = new HashSet<>();
+        jdbc.query("SELECT DISTINCT org_id, project_id FROM quota_lease " +
+                "WHERE expires_at > :now AND " + keyRange("org_id"),
+                new MapSqlParameterSource()
+                        .addValue("fromOrg", from.orgId())
+                        .addValue("fromProject", from.projectId())
+                        .addValue("toOrg", to.orgId())
+                        .addValue("toProject", to.projectId())
+                        .addValue("now", Timestamp.from(now)),
+                rs -> {
+                    leased.add(new ProjectKey(rs.getLong(1), rs.getLong(2)));
+                });
+        return leased;
+    }
+
+    /**
+     * Sets used_bytes on drifted projects in one JDBC batch. Each row is only
+     * updated if used_bytes still holds the value read for this chunk, so a
+     * concurrent reservation is never overwritten. Returns rows updated.
+     */
+    public int updateProjectUsage(List<ProjectUsage> observed, Map<ProjectKey, Long> corrected) {
+        Timestamp now = Timestamp.from(Instant.now());
+        SqlParameterSource[] batch = observed.stream()
+                .map(p -> new MapSqlParameterSource()
+                        .addValue("org", p.orgId())
+                        .addValue("project", p.projectId())
+                        .addValue("observed", p.usedBytes())
+                        .addValue("used", corrected.get(new ProjectKey(p.orgId(), p.projectId())))
+                        .addValue("now", now))
+                .toArray(SqlParameterSource[]::new);
+        return sum(jdbc.batchUpdate(
+                "UPDATE project_storage SET used_bytes = :used, updated_at = :now, version = version + 1 " +
+                "WHERE org_id = :org AND project_id = :project AND used_bytes = :observed", batch));
+    }
+
+    // ── Orgs ─────────────────────────────────────────────────────────────────
+
+    /**
+     * Next chunk of orgs after the given id, with both the recorded used_bytes
+     * and the sum of their projects' used_bytes.
+     */
+    public List<OrgTotals> findOrgChunk(long afterOrg, int limit) {
+        return jdbc.query(
+                "SELECT o.org_id, o.used_bytes, COALESCE(SUM(p.used_bytes), 0) " +
+                "FROM org_storage o LEFT JOIN project_storage p ON p.org_id = o.org_id " +
+                "WHERE o.org_id > :org " +
+                "GROUP BY o.org_id, o.used_bytes ORDER BY o.org_id LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("org", afterOrg)
+                        .addValue("limit", limit),
+                (rs, i) -> new OrgTotals(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+    }
+
+    /** Same conditional batch update as {@link #updateProjectUsage}, for orgs. */
+    public int updateOrgUsage(List<OrgTotals> drifted) {
+        Timestamp now = Timestamp.from(Instant.now());
+        SqlParameterSource[] batch = drifted.stream()
+                .map(o -> new MapSqlParameterSource()
+                        .addValue("org", o.orgId())
+                        .addValue("observed", o.recordedBytes())
+                        .addValue("used", o.projectBytes())
+                        .addValue("now", now))
+                .toArray(SqlParameterSource[]::new);
+        return sum(jdbc.batchUpdate(
+                "UPDATE org_storage SET used_bytes = :used, updated_at = :now, version = version + 1 " +
+                "WHERE org_id = :org AND used_bytes = :observed", batch));
+    }
+
+    /** Keys between (:fromOrg, :fromProject) and (:toOrg, :toProject), inclusive. */
+    private static String keyRange(String orgColumn) {
+        return "(" + orgColumn + " > :fromOrg OR (" + orgColumn + " = :fromOrg AND project_id >= :fromProject)) " +
+               "AND (" + orgColumn + " < :toOrg OR (" + orgColumn + " = :toOrg AND project_id <= :toProject)) ";
+    }
+
+    private void sumInto(Map<ProjectKey, Long> totals, String sql, MapSqlParameterSource params) {
+        jdbc.query(sql, params, rs -> {
+            totals.merge(new ProjectKey(rs.getLong(1), rs.getLong(2)), rs.getLong(3), Long::sum);
+        });
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int c : counts) {
+            // Statement.SUCCESS_NO_INFO (-2) when the driver rewrites the batch
+            total += c > 0 ? c : c == -2 ? 1 : 0;
+        }
+        return total;
+    }
+}
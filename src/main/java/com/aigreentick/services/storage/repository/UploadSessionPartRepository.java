@@ -0,0 +1,20 @@
+package com.aigreentick.services.storage.repository;
+
+import com.aigreentick.services.storage.domain.UploadSessionPart;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionPartRepository extends JpaRepository<UploadSessionPart, Long> {
+
+    Optional<UploadSessionPart> findBySessionIdAndPartNumber(String sessionId, Integer partNumber);
+
+    List<UploadSessionPart> findBySessionIdOrderByPartNumberAsc(String sessionId);
+
+    @Transactional
+    void deleteBySessionId(String sessionId);
+}
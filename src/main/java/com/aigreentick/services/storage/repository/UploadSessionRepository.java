@@ -0,0 +1,85 @@
+package com.aigreentick.services.storage.repository;
+
+import com.aigreentick.services.storage.domain.UploadSession;
+import com.aigreentick.services.storage.enums.UploadSessionStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    Optional<UploadSession> findByIdAndOrganisationIdAndProjectId(String id, Long organisationId, Long projectId);
+
+    List<UploadSession> findByStatusAndExpiresAtBefore(UploadSessionStatus status, Instant cutoff, Pageable pageable);
+
+    /** Sessions that entered the status before the cutoff (updatedAt is stamped by {@link #transition}). */
+    List<UploadSession> findByStatusAndUpdatedAtBefore(UploadSessionStatus status, Instant cutoff, Pageable pageable);
+
+    /**
+     * Bytes reserved by sessions that have not produced a Media row yet.
+     * Reconciliation adds this to the media total so open sessions keep their reservation.
+     */
+    @Query("SELECT COALESCE(SUM(s.totalSize), 0) FROM UploadSession s " +
+           "WHERE s.organisationId = :orgId AND s.projectId = :projectId " +
+           "AND s.status IN (com.aigreentick.services.storage.enums.UploadSessionStatus.ACTIVE, " +
+           "                 com.aigreentick.services.storage.enums.UploadSessionStatus.COMPLETING)")
+    long sumReservedBytes(@Param("orgId") Long orgId, @Param("projectId") Long projectId);
+
+    /**
+     * Claims an ACTIVE session for one chunk write. Returns 0 if the session
+     * is no longer ACTIVE. Every successful claim must be followed by
+     * {@link #releaseWriter}.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.activeWriters = s.activeWriters + 1, s.writerClaimedAt = :now " +
+           "WHERE s.id = :id AND s.status = com.aigreentick.services.storage.enums.UploadSessionStatus.ACTIVE")
+    int claimWriter(@Param("id") String id, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s " +
+           "SET s.activeWriters = CASE WHEN s.activeWriters > 0 THEN s.activeWriters - 1 ELSE 0 END " +
+           "WHERE s.id = :id")
+    int releaseWriter(@Param("id") String id);
+
+    /**
+     * ACTIVE → COMPLETING, but only while no chunk write is in flight (claims
+     * older than 'staleClaims' are ignored). Returns 0 if the session is not
+     * ACTIVE or a write holds it.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s " +
+           "SET s.status = com.aigreentick.services.storage.enums.UploadSessionStatus.COMPLETING, s.updatedAt = :now " +
+           "WHERE s.id = :id AND s.status = com.aigreentick.services.storage.enums.UploadSessionStatus.ACTIVE " +
+           "AND (s.activeWriters = 0 OR s.writerClaimedAt < :staleClaims)")
+    int startCompleting(@Param("id") String id, @Param("staleClaims") Instant staleClaims, @Param("now") Instant now);
+
+    /**
+     * Compare-and-set on the session status. Returns 1 if this caller won the
+     * transition, 0 if the session was already moved on by someone else.
+     */
+    default int transition(String id, UploadSessionStatus from, UploadSessionStatus to) {
+        // Stamped with the JVM clock so the stale-session sweep compares like with like
+        return transition(id, from, to, Instant.now());
+    }
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.status = :to, s.updatedAt = :now " +
+           "WHERE s.id = :id AND s.status = :from")
+    int transition(@Param("id") String id,
+                   @Param("from") UploadSessionStatus from,
+                   @Param("to") UploadSessionStatus to,
+                   @Param("now") Instant now);
+}
@@ -0,0 +1,219 @@
+package com.aigreentick.services.storage.schedular;
+
+import com.aigreentick.services.storage.config.properties.QuotaDriftProperties;
+import com.aigreentick.services.storage.domain.ProjectStorage;
+import com.aigreentick.services.storage.domain.ProjectStorageId;
+import com.aigreentick.services.storage.domain.QuotaDeltaEvent;
+import com.aigreentick.services.storage.enums.QuotaDeltaStatus;
+import com.aigreentick.services.storage.repository.OrgStorageRepository;
+import com.aigreentick.services.storage.repository.ProjectStorageRepository;
+import com.aigreentick.services.storage.repository.QuotaDeltaEventRepository;
+import com.aigreentick.services.storage.repository.QuotaLeaseRepository;
+import com.aigreentick.services.storage.repository.QuotaReconciliationRepository;
+import com.aigreentick.services.storage.repository.QuotaReconciliationRepository.ProjectKey;
+import com.aigreentick.services.storage.repository.QuotaReconciliationRepository.ProjectUsage;
+import com.aigreentick.services.storage.service.impl.quota.QuotaLedger;
+import com.aigreentick.services.storage.service.impl.quota.QuotaViewCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Drains the quota delta outbox every few seconds, so drift is corrected
+ * long before the nightly reconciliation runs.
+ *
+ * - RELEASE_FAILED rows are applied: the bytes come off the project and org
+ *   counters in the same transaction that marks the row done.
+ * - Media rows ask for their project to be re-verified: used_bytes against
+ *   ACTIVE media plus open upload sessions. A single-request upload reserves
+ *   quota before its media row exists, so drift is only corrected when the
+ *   same used/expected pair is seen again after 'settle-time'; the update
+ *   is conditional on that used_bytes, so it never clobbers a reservation.
+ *   Usage above the media may still be an upload in flight, however long it
+ *   runs: that is only written off once the project's quota row has not
+ *   moved (updated_at) for 'reservation-horizon'.
+ *   Projects with live quota leases (and everything when the in-memory
+ *   ledger is enabled) are left to the nightly job.
+ *
+ * Rows are claimed with SELECT ... FOR UPDATE SKIP LOCKED, so every replica
+ * can run the worker.
+ */
+@Slf4j
+@Service
+@EnableScheduling
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "quota.drift.enabled", havingValue = "true")
+public class QuotaDriftService {
+
+    private final QuotaDriftProperties properties;
+    private final QuotaDeltaEventRepository eventRepo;
+    private final ProjectStorageRepository projectStorageRepo;
+    private final OrgStorageRepository orgStorageRepo;
+    private final QuotaLeaseRepository quotaLeaseRepo;
+    private final QuotaReconciliationRepository reconciliationRepo;
+    private final QuotaLedger ledger;
+    private final QuotaViewCache viewCache;
+    private final PlatformTransactionManager transactionManager;
+
+    @Scheduled(fixedDelayString = "${quota.drift.poll-interval:PT2S}")
+    public void drain() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<QuotaDeltaEvent> claimed = claim(tx);
+        if (claimed.isEmpty()) {
+            purgeProcessed(tx);
+            return;
+        }
+
+        Map<ProjectStorageId, List<QuotaDeltaEvent>> toVerify = new LinkedHashMap<>();
+        for (QuotaDeltaEvent event : claimed) {
+            if (event.getDeltaType().isRelease()) {
+                runQuietly(event.getOrgId(), event.getProjectId(), () -> apply(tx, event));
+            } else {
+                toVerify.computeIfAbsent(new ProjectStorageId(event.getOrgId(), event.getProjectId()),
+                        k -> new ArrayList<>()).add(event);
+            }
+        }
+        toVerify.forEach((key, events) ->
+                runQuietly(key.getOrgId(), key.getProjectId(), () -> verify(tx, key, events)));
+    }
+
+    private List<QuotaDeltaEvent> claim(TransactionTemplate tx) {
+        Instant now = Instant.now();
+        Instant until = now.plus(properties.getClaimTimeout());
+        return tx.execute(status -> {
+            List<QuotaDeltaEvent> due = eventRepo.lockDue(now, properties.getBatchSize());
+            for (QuotaDeltaEvent event : due) {
+                // Invisible to other workers until processed or the claim times out
+                event.setNextAttemptAt(until);
+                event.setAttempts(event.getAttempts() + 1);
+            }
+            return due;
+        });
+    }
+
+    private void runQuietly(Long orgId, Long projectId, Runnable step) {
+        try {
+            step.run();
+        } catch (Exception ex) {
+            // Rows stay PENDING and are picked up again once the claim times out
+            log.error("Quota drift step failed org={} project={}", orgId, projectId, ex);
+        }
+    }
+
+    // ── Apply ────────────────────────────────────────────────────────────────
+
+    private void apply(TransactionTemplate tx, QuotaDeltaEvent event) {
+        long bytes = -event.getDeltaBytes();
+        tx.executeWithoutResult(status -> {
+            if (ledger.isEnabled()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        ledger.release(event.getOrgId(), event.getProjectId(), bytes);
+                    }
+                });
+            } else {
+                projectStorageRepo.decrementUsage(event.getOrgId(), event.getProjectId(), bytes);
+                orgStorageRepo.decrementUsage(event.getOrgId(), bytes);
+            }
+            finish(List.of(event), QuotaDeltaStatus.DONE);
+        });
+        viewCache.invalidate(event.getOrgId(), event.getProjectId());
+        log.info("Released {} bytes left over by a failed quota rollback: org={} project={}",
+                bytes, event.getOrgId(), event.getProjectId());
+    }
+
+    // ── Verify ───────────────────────────────────────────────────────────────
+
+    private void verify(TransactionTemplate tx, ProjectStorageId key, List<QuotaDeltaEvent> events) {
+        Long orgId = key.getOrgId();
+        Long projectId = key.getProjectId();
+        tx.executeWithoutResult(status -> {
+            Instant now = Instant.now();
+            if (ledger.isEnabled() || quotaLeaseRepo.sumLeasedBytes(orgId, projectId, now) > 0) {
+                finish(events, QuotaDeltaStatus.SKIPPED);
+                return;
+            }
+            ProjectStorage project = projectStorageRepo.findByOrgAndProject(orgId, projectId).orElse(null);
+            if (project == null) {
+                finish(events, QuotaDeltaStatus.SKIPPED);
+                return;
+            }
+
+            ProjectUsage usage = new ProjectUsage(orgId, projectId, project.getUsedBytes());
+            ProjectKey projectKey = new ProjectKey(orgId, projectId);
+            long used = usage.usedBytes();
+            long expected = reconciliationRepo.sumExpectedBytes(usage, usage, now)
+                    .getOrDefault(projectKey, 0L);
+            if (used == expected) {
+                finish(events, QuotaDeltaStatus.DONE);
+                return;
+            }
+
+            // Bytes above the media may belong to an upload still streaming:
+            // correct those only once no reservation can still be open
+            Instant quietSince = used > expected
+                    ? project.getUpdatedAt().plus(properties.getReservationHorizon())
+                    : now;
+            QuotaDeltaEvent first = events.get(0);
+            if (Objects.equals(first.getObservedUsedBytes(), used)
+                    && Objects.equals(first.getObservedExpectedBytes(), expected)
+                    && !quietSince.isAfter(now)
+                    && reconciliationRepo.updateProjectUsage(List.of(usage), Map.of(projectKey, expected)) == 1) {
+                orgStorageRepo.applyUsageDelta(orgId, expected - used);
+                viewCache.invalidateAfterCommit(orgId, projectId);
+                log.warn("Project drift corrected: org={} project={} recorded={} actual={}",
+                        orgId, projectId, used, expected);
+                finish(events, QuotaDeltaStatus.DONE);
+                return;
+            }
+
+            // First sighting, or the project is still moving — look again after the settle
+            // time, or once the newest reservation is past the horizon
+            Instant next = now.plus(properties.getSettleTime());
+            if (quietSince.isAfter(next)) next = quietSince;
+            for (QuotaDeltaEvent event : events) {
+                if (event.getAttempts() >= properties.getMaxAttempts()) {
+                    event.setStatus(QuotaDeltaStatus.SKIPPED);
+                    event.setProcessedAt(now);
+                } else {
+                    event.setObservedUsedBytes(used);
+                    event.setObservedExpectedBytes(expected);
+                    event.setNextAttemptAt(next);
+                }
+            }
+            eventRepo.saveAll(events);
+        });
+    }
+
+    private void finish(List<QuotaDeltaEvent> events, QuotaDeltaStatus status) {
+        Instant now = Instant.now();
+        for (QuotaDeltaEvent event : events) {
+            event.setStatus(status);
+            event.setProcessedAt(now);
+        }
+        eventRepo.saveAll(events);
+    }
+
+    private void purgeProcessed(TransactionTemplate tx) {
+        Instant cutoff = Instant.now().minus(properties.getRetention());
+        Integer purged = tx.execute(status -> eventRepo.deleteProcessedBefore(cutoff, properties.getBatchSize()));
+        if (purged != null && purged > 0) {
+            log.debug("Purged {} processed quota delta rows", purged);
+        }
+    }
+}
@@ -1,27 +1,47 @@
 package com.aigreentick.services.storage.schedular;
 
 
-import com.aigreentick.services.storage.domain.OrgStorage;
-import com.aigreentick.services.storage.domain.ProjectStorage;
-import com.aigreentick.services.storage.repository.OrgStorageRepository;
-import com.aigreentick.services.storage.repository.ProjectStorageRepository;
+import com.aigreentick.services.storage.repository.QuotaReconciliationRepository;
+import com.aigreentick.services.storage.repository.QuotaReconciliationRepository.OrgTotals;
+import com.aigreentick.services.storage.repository.QuotaReconciliationRepository.ProjectKey;
+import com.aigreentick.services.storage.repository.QuotaReconciliationRepository.ProjectUsage;
+import com.aigreentick.services.storage.service.impl.quota.QuotaLedger;
+import com.aigreentick.services.storage.service.impl.quota.QuotaViewCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Nightly reconciliation job that corrects any drift between
  * quota counters and actual media rows.
  *
  * 1. For each project: recalculate used_bytes from SUM(media.file_size)
+ *    plus bytes reserved by open chunked upload sessions. Projects with a
+ *    live quota lease are skipped: the lease's unused headroom is only
+ *    known to the replica holding it
  * 2. For each org: recalculate used_bytes from SUM(project_storage.used_bytes)
+ *
+ * Both passes walk the quota tables in keyset-ordered chunks; each chunk is
+ * one short transaction with set-based sums and a single batched UPDATE of
+ * the drifted rows. Updates are conditional on the value read, so a counter
+ * that moved concurrently is skipped and left for the next run.
+ *
+ * With the quota ledger enabled, each chunk runs with the ledger's deltas
+ * flushed and its admissions held (see QuotaLedger#withFlushedDeltas), so a
+ * reservation cannot land between the flush and the rewrite and be counted
+ * twice. The ledger re-reads the corrected rows at the end.
  */
 @Slf4j
 @Service
@@ -30,46 +50,117 @@ import java.util.concurrent.atomic.AtomicInteger;
 @ConditionalOnProperty(name = "quota.reconciliation.enabled", havingValue = "true", matchIfMissing = true)
 public class QuotaReconciliationService {
 
-    private final OrgStorageRepository orgStorageRepo;
-    private final ProjectStorageRepository projectStorageRepo;
+    private final QuotaReconciliationRepository reconciliationRepo;
+    private final QuotaLedger ledger;
+    private final QuotaViewCache viewCache;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${quota.reconciliation.chunk-size:500}")
+    private int chunkSize;
 
     @Scheduled(cron = "${quota.reconciliation.cron:0 0 3 * * ?}")  // 3 AM daily
-    @Transactional
     public void reconcile() {
         log.info("Starting quota reconciliation job");
 
-        AtomicInteger projectFixed = new AtomicInteger(0);
-        AtomicInteger orgFixed = new AtomicInteger(0);
-
-        // Step 1: Fix project-level counters
-        List<ProjectStorage> allProjects = projectStorageRepo.findAll();
-        for (ProjectStorage proj : allProjects) {
-            long actualBytes = projectStorageRepo.sumActiveMediaBytes(proj.getOrgId(), proj.getProjectId());
-
-            if (proj.getUsedBytes() != actualBytes) {
-                log.warn("Project drift detected: org={} project={} recorded={} actual={}",
-                        proj.getOrgId(), proj.getProjectId(), proj.getUsedBytes(), actualBytes);
-                proj.setUsedBytes(actualBytes);
-                projectStorageRepo.save(proj);
-                projectFixed.incrementAndGet();
-            }
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Totals projects = reconcileProjects(tx);
+        Totals orgs = reconcileOrgs(tx);
+
+        if (ledger.isEnabled()) {
+            ledger.reload();
+        }
+        viewCache.invalidateAll();
+
+        log.info("Quota reconciliation complete. Projects fixed: {} (skipped {}), Orgs fixed: {} (skipped {})",
+                projects.fixed, projects.skipped, orgs.fixed, orgs.skipped);
+    }
+
+    // ── Step 1: project-level counters ───────────────────────────────────────
+
+    private Totals reconcileProjects(TransactionTemplate tx) {
+        Totals totals = new Totals();
+        long afterOrg = 0;
+        long afterProject = 0;
+        while (true) {
+            long fromOrg = afterOrg;
+            long fromProject = afterProject;
+            List<ProjectUsage> chunk = inChunk(tx, status -> {
+                List<ProjectUsage> rows = reconciliationRepo.findProjectChunk(fromOrg, fromProject, chunkSize);
+                if (rows.isEmpty()) return rows;
+
+                Instant now = Instant.now();
+                ProjectUsage first = rows.get(0);
+                ProjectUsage last = rows.get(rows.size() - 1);
+                Map<ProjectKey, Long> expected = reconciliationRepo.sumExpectedBytes(first, last, now);
+                Set<ProjectKey> leased = reconciliationRepo.findLeasedProjects(first, last, now);
+                totals.skipped += leased.size();
+                List<ProjectUsage> drifted = rows.stream()
+                        .filter(p -> !leased.contains(new ProjectKey(p.orgId(), p.projectId())))
+                        .filter(p -> p.usedBytes() != expectedFor(expected, p))
+                        .toList();
+                if (drifted.isEmpty()) return rows;
+
+                drifted.forEach(p -> log.warn("Project drift detected: org={} project={} recorded={} actual={}",
+                        p.orgId(), p.projectId(), p.usedBytes(), expectedFor(expected, p)));
+                for (ProjectUsage p : drifted) {
+                    expected.putIfAbsent(new ProjectKey(p.orgId(), p.projectId()), 0L);
+                }
+                totals.record(drifted.size(), reconciliationRepo.updateProjectUsage(drifted, expected));
+                return rows;
+            });
+
+            if (chunk == null || chunk.isEmpty()) return totals;
+            ProjectUsage last = chunk.get(chunk.size() - 1);
+            afterOrg = last.orgId();
+            afterProject = last.projectId();
+            if (chunk.size() < chunkSize) return totals;
         }
+    }
+
+    private static long expectedFor(Map<ProjectKey, Long> expected, ProjectUsage p) {
+        return expected.getOrDefault(new ProjectKey(p.orgId(), p.projectId()), 0L);
+    }
+
+    // ── Step 2: org-level counters (derived from project totals) ─────────────
+
+    private Totals reconcileOrgs(TransactionTemplate tx) {
+        Totals totals = new Totals();
+        long afterOrg = 0;
+        while (true) {
+            long from = afterOrg;
+            List<OrgTotals> chunk = inChunk(tx, status -> {
+                List<OrgTotals> rows = reconciliationRepo.findOrgChunk(from, chunkSize);
+                List<OrgTotals> drifted = rows.stream()
+                        .filter(o -> o.recordedBytes() != o.projectBytes())
+                        .toList();
+                if (!drifted.isEmpty()) {
+                    drifted.forEach(o -> log.warn("Org drift detected: org={} recorded={} actual={}",
+                            o.orgId(), o.recordedBytes(), o.projectBytes()));
+                    totals.record(drifted.size(), reconciliationRepo.updateOrgUsage(drifted));
+                }
+                return rows;
+            });
 
-        // Step 2: Fix org-level counters (derived from project totals)
-        List<OrgStorage> allOrgs = orgStorageRepo.findAll();
-        for (OrgStorage org : allOrgs) {
-            long actualBytes = orgStorageRepo.sumProjectUsedBytes(org.getOrgId());
-
-            if (org.getUsedBytes() != actualBytes) {
-                log.warn("Org drift detected: org={} recorded={} actual={}",
-                        org.getOrgId(), org.getUsedBytes(), actualBytes);
-                org.setUsedBytes(actualBytes);
-                orgStorageRepo.save(org);
-                orgFixed.incrementAndGet();
-            }
+            if (chunk == null || chunk.isEmpty()) return totals;
+            afterOrg = chunk.get(chunk.size() - 1).orgId();
+            if (chunk.size() < chunkSize) return totals;
         }
+    }
+
+    /** One chunk transaction; with the ledger on, run while its deltas are flushed and held. */
+    private <T> T inChunk(TransactionTemplate tx, TransactionCallback<T> work) {
+        return ledger.isEnabled()
+                ? ledger.withFlushedDeltas(() -> tx.execute(work))
+                : tx.execute(work);
+    }
 
-        log.info("Quota reconciliation complete. Projects fixed: {}, Orgs fixed: {}",
-                projectFixed.get(), orgFixed.get());
+    private static final class Totals {
+        int fixed;
+        int skipped;
+
+        void record(int drifted, int updated) {
+            fixed += updated;
+            skipped += drifted - updated;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,32 @@
+package com.aigreentick.services.storage.schedular;
+
+import com.aigreentick.services.storage.service.impl.media.ChunkedUploadService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Aborts chunked upload sessions that outlived their TTL so their provider
+ * parts are discarded and the reserved quota goes back to the project, and
+ * settles sessions left COMPLETING by a failed complete.
+ */
+@Slf4j
+@Service
+@EnableScheduling
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "chunked-upload.cleanup.enabled", havingValue = "true", matchIfMissing = true)
+public class UploadSessionCleanupService {
+
+    private final ChunkedUploadService chunkedUploadService;
+
+    @Scheduled(cron = "${chunked-upload.cleanup.cron:0 */15 * * * ?}")
+    public void expireStaleSessions() {
+        int expired = chunkedUploadService.expireStaleSessions();
+        if (expired > 0) {
+            log.info("Expired {} stale upload sessions", expired);
+        }
+    }
+}
@@ -10,54 +10,94 @@ import com.aigreentick.services.storage.dto.storage.StorageResult;
 import com.aigreentick.services.storage.enums.MediaStatus;
 import com.aigreentick.services.storage.enums.MediaType;
 import com.aigreentick.services.storage.exception.MediaValidationException;
-import com.aigreentick.services.storage.repository.MediaRepository;
 import com.aigreentick.services.storage.service.impl.quota.OptimisticQuotaService;
-import com.aigreentick.services.storage.service.port.StoragePort;
+import com.aigreentick.services.storage.service.impl.quota.QuotaDeltaOutbox;
+import com.aigreentick.services.storage.service.port.AsyncStoragePort;
 import com.aigreentick.services.storage.util.FileUtils;
 import com.aigreentick.services.storage.validator.MediaValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
 
 /**
- * Batch media upload orchestrator.
+ * Pipelined batch media upload.
  *
  * Flow:
- * 1. Validate each file individually → collect valid + rejected
- * 2. Calculate total size of valid files
- * 3. ONE atomic quota reservation for aggregate size
- * 4. Convert all valid MultipartFiles to temp files
- * 5. Save all files to storage provider IN PARALLEL
- * 6. Batch insert all Media entities (saveAll)
- * 7. Cleanup all temp files
- * 8. Return BatchMediaUploadResponse
+ * 1. Aggregate checks + per-file validation → collect valid + rejected
+ * 2. ONE atomic quota reservation for the aggregate valid size
+ * 3. Each valid file runs store → [dedup by digest →] persist on its own, with at most
+ *    'batchParallelThreads' files in flight at once
+ * 4. Per-file results are emitted as soon as that file finishes
+ * 5. Once the stream terminates (or is cancelled), quota for every file
+ *    that was not newly stored (failed or deduplicated) is released in one call
+ *
+ * Steps 2–5 run per subscription: the reservation is made when the Flux is
+ * subscribed and released by that same subscription. A file counts as charged
+ * from the moment its Media row starts persisting, so a client disconnect never
+ * releases bytes for a row that still commits; if such a persist fails after
+ * the batch has settled, its bytes are released on their own.
+ *
+ * Files are streamed from the multipart straight into storage (no temp copy)
+ * unless streaming uploads are disabled, in which case each file gets its own
+ * temp file that is deleted as soon as that file is done.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class BatchMediaUploadService {
 
-    private final StoragePort storagePort;
-    private final MediaRepository mediaRepository;
+    private final AsyncStoragePort storagePort;
     private final MediaValidator mediaValidator;
     private final OptimisticQuotaService quotaService;
+    private final QuotaDeltaOutbox deltaOutbox;
     private final MediaProperties mediaProperties;
-    private final Executor mediaUploadExecutor;
+    private final MediaDeduplicationService deduplicationService;
 
+    /**
+     * Runs the whole batch and returns the aggregated response.
+     * Must be called from a thread that is allowed to block (servlet thread).
+     */
     public BatchMediaUploadResponse uploadBatch(List<MultipartFile> files, String wabaId,
                                                  Long orgId, Long projectId) {
         long startTime = System.currentTimeMillis();
 
+        List<BatchFileResult> results = uploadBatchStreaming(files, wabaId, orgId, projectId)
+                .collectList()
+                .block();
+
+        int successCount = (int) results.stream()
+                .filter(r -> r.getStatus() == BatchFileResult.Status.SUCCESS).count();
+        int failedCount = results.size() - successCount;
+
+        log.info("Batch upload complete: org={} project={} success={} failed={} duration={}ms",
+                orgId, projectId, successCount, failedCount, System.currentTimeMillis() - startTime);
+
+        return BatchMediaUploadResponse.builder()
+                .successCount(successCount)
+                .failedCount(failedCount)
+                .results(results)
+                .build();
+    }
+
+    /**
+     * Validates the batch eagerly, then returns a Flux that reserves quota on
+     * subscribe (so limit violations are signalled before any result is
+     * streamed) and emits one result per file in completion order. Rejected
+     * files come first.
+     */
+    public Flux<BatchFileResult> uploadBatchStreaming(List<MultipartFile> files, String wabaId,
+                                                      Long orgId, Long projectId) {
         // ── Step 0: Aggregate constraints ────────────────────────────────
         if (files == null || files.isEmpty()) {
             throw new MediaValidationException("No files provided in batch");
@@ -71,17 +111,12 @@ public class BatchMediaUploadService {
         // ── Step 1: Validate each file ───────────────────────────────────
         BatchValidationResult validation = mediaValidator.validateBatch(files);
         List<MultipartFile> validFiles = validation.getValidFiles();
-        List<BatchFileResult> results = new ArrayList<>(validation.getRejectedResults());
+        Flux<BatchFileResult> rejected = Flux.fromIterable(validation.getRejectedResults());
 
         if (validFiles.isEmpty()) {
-            return BatchMediaUploadResponse.builder()
-                    .successCount(0)
-                    .failedCount(results.size())
-                    .results(results)
-                    .build();
+            return rejected;
         }
 
-        // ── Step 2: Check aggregate size ─────────────────────────────────
         long totalSize = validation.getTotalValidSize();
         if (totalSize > mediaProperties.getBatchMaxTotalSize()) {
             throw new MediaValidationException(
@@ -89,148 +124,40 @@ public class BatchMediaUploadService {
                             mediaProperties.getBatchMaxTotalSize(), totalSize));
         }
 
-        // ── Step 3: ONE atomic quota reservation ─────────────────────────
-        quotaService.reserveQuotaAtomic(orgId, projectId, totalSize);
-
-        List<File> tempFiles = new ArrayList<>();
-        long successBytes = 0;
+        return Flux.defer(() -> {
+            // ── Step 2: ONE atomic quota reservation ─────────────────────
+            quotaService.reserveQuotaAtomic(orgId, projectId, totalSize);
+            BatchCharge charge = new BatchCharge(totalSize);
+
+            // ── Step 3: Per-file pipeline with bounded in-flight window ──
+            int window = Math.max(1, mediaProperties.getBatchParallelThreads());
+            Flux<BatchFileResult> pipeline = Flux.fromIterable(validFiles)
+                    .flatMap(mf -> uploadOne(mf, wabaId, orgId, projectId, charge), window);
+
+            // ── Step 4: Release quota for everything that was not stored ─
+            //    (failed files and dedup hits)
+            return rejected
+                    .concatWith(pipeline)
+                    .doFinally(signal -> releaseUnused(orgId, projectId, charge.settle()));
+        });
+    }
 
-        try {
-            // ── Step 4: Convert to temp files ────────────────────────────
-            List<MultipartFile> convertedMultiparts = new ArrayList<>();
-            List<File> convertedTempFiles = new ArrayList<>();
-
-            for (MultipartFile mf : validFiles) {
-                try {
-                    File temp = FileUtils.convertMultipartToFile(mf);
-                    tempFiles.add(temp);
-                    convertedMultiparts.add(mf);
-                    convertedTempFiles.add(temp);
-                } catch (Exception ex) {
-                    results.add(BatchFileResult.failed(mf.getOriginalFilename(),
-                            "Failed to process file: " + ex.getMessage()));
-                }
-            }
-
-            // ── Step 5: Save to storage provider IN PARALLEL ─────────────
-            List<CompletableFuture<StorageUploadOutcome>> futures = new ArrayList<>();
-
-            for (int i = 0; i < convertedMultiparts.size(); i++) {
-                MultipartFile mf = convertedMultiparts.get(i);
-                File tempFile = convertedTempFiles.get(i);
-
-                futures.add(CompletableFuture.supplyAsync(() ->
-                        saveOneFile(mf, tempFile, orgId, projectId), mediaUploadExecutor));
-            }
-
-            // Wait for all to complete
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-
-            // ── Step 6: Collect results + build entities ─────────────────
-            Instant now = Instant.now();
-            List<Media> mediaEntities = new ArrayList<>();
-
-            for (int i = 0; i < futures.size(); i++) {
-                MultipartFile mf = convertedMultiparts.get(i);
-                StorageUploadOutcome outcome;
-
-                try {
-                    outcome = futures.get(i).get();
-                } catch (Exception ex) {
-                    results.add(BatchFileResult.failed(mf.getOriginalFilename(),
-                            "Storage failed: " + ex.getMessage()));
-                    continue;
-                }
-
-                if (!outcome.isSuccess()) {
-                    results.add(BatchFileResult.failed(mf.getOriginalFilename(), outcome.getError()));
-                    continue;
-                }
-
-                StorageResult sr = outcome.getStorageResult();
-                MediaType mediaType = mediaValidator.detectMediaType(mf.getContentType());
-
-                Media media = Media.builder()
-                        .originalFilename(mf.getOriginalFilename())
-                        .storedFilename(sr.getStorageKey())
-                        .mimeType(mf.getContentType())
-                        .fileSize(mf.getSize())
-                        .wabaId(wabaId)
-                        .mediaType(mediaType)
-                        .storageProvider(sr.getProvider())
-                        .storageKey(sr.getStorageKey())
-                        .storageBucket(sr.getBucket())
-                        .storageRegion(sr.getRegion())
-                        .mediaUrl(sr.getPublicUrl())
-                        .organisationId(orgId)
-                        .projectId(projectId)
-                        .status(MediaStatus.ACTIVE)
-                        .createdAt(now)
-                        .build();
-
-                mediaEntities.add(media);
-                successBytes += mf.getSize();
-
-                results.add(BatchFileResult.success(
-                        mf.getOriginalFilename(),
-                        sr.getPublicUrl(),
-                        mediaType,
-                        mf.getContentType(),
-                        mf.getSize()));
-            }
-
-            // ── Step 7: Batch insert ─────────────────────────────────────
-            if (!mediaEntities.isEmpty()) {
-                mediaRepository.saveAll(mediaEntities);
-            }
-
-            // ── Release quota for failed files ───────────────────────────
-            long failedBytes = totalSize - successBytes;
-            if (failedBytes > 0) {
-                try {
-                    quotaService.releaseQuotaAtomic(orgId, projectId, failedBytes);
-                    log.info("Released {} bytes for failed files in batch", failedBytes);
-                } catch (Exception ex) {
-                    log.error("Failed to release quota for failed batch files. " +
-                              "Nightly reconciliation will fix. failedBytes={}", failedBytes, ex);
-                }
-            }
-
-            long duration = System.currentTimeMillis() - startTime;
-            int successCount = (int) results.stream()
-                    .filter(r -> r.getStatus() == BatchFileResult.Status.SUCCESS).count();
-            int failedCount = results.size() - successCount;
-
-            log.info("Batch upload complete: org={} project={} success={} failed={} duration={}ms",
-                    orgId, projectId, successCount, failedCount, duration);
-
-            return BatchMediaUploadResponse.builder()
-                    .successCount(successCount)
-                    .failedCount(failedCount)
-                    .results(results)
-                    .build();
+    // ── Pipeline stages ──────────────────────────────────────────────────
 
-        } catch (Exception ex) {
-            // Full failure — release all quota
-            try {
-                quotaService.releaseQuotaAtomic(orgId, projectId, totalSize);
-            } catch (Exception rollbackEx) {
-                log.error("Failed to rollback batch quota. Nightly reconciliation will fix.", rollbackEx);
-            }
-            throw ex;
-        } finally {
-            // ── Step 8: Cleanup temp files ───────────────────────────────
-            tempFiles.forEach(FileUtils::deleteQuietly);
-        }
+    private Mono<BatchFileResult> uploadOne(MultipartFile mf, String wabaId, Long orgId, Long projectId,
+                                            BatchCharge charge) {
+        return storeNew(mf, wabaId, orgId, projectId, charge).onErrorResume(ex -> {
+            Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+            log.error("Failed to upload batch file '{}'", mf.getOriginalFilename(), cause);
+            return Mono.just(BatchFileResult.failed(mf.getOriginalFilename(),
+                    "Storage failed: " + cause.getMessage()));
+        });
     }
 
-    // ── Internal helper: save a single file to storage ───────────────────
-
-    private StorageUploadOutcome saveOneFile(MultipartFile mf, File tempFile,
-                                              Long orgId, Long projectId) {
-        try {
+    private Mono<BatchFileResult> storeNew(MultipartFile mf, String wabaId, Long orgId, Long projectId,
+                                           BatchCharge charge) {
+        return Mono.defer(() -> {
             MediaType mediaType = mediaValidator.detectMediaType(mf.getContentType());
-
             StorageMetadata metadata = StorageMetadata.builder()
                     .originalFilename(mf.getOriginalFilename())
                     .contentType(mf.getContentType())
@@ -241,13 +168,119 @@ public class BatchMediaUploadService {
                     .fileExtension(extractExtension(mf.getOriginalFilename()))
                     .build();
 
-            try (InputStream is = new FileInputStream(tempFile)) {
-                StorageResult result = storagePort.save(is, metadata);
-                return StorageUploadOutcome.success(result);
-            }
+            return store(mf, metadata)
+                    .flatMap(sr -> deduplicationService.isEnabled()
+                            ? reuseOrPersist(sr, mf, wabaId, mediaType, orgId, projectId, charge)
+                            : persist(sr, mf, wabaId, mediaType, orgId, projectId, charge));
+        });
+    }
+
+    private Mono<StorageResult> store(MultipartFile mf, StorageMetadata metadata) {
+        return Mono.using(
+                () -> openSource(mf),
+                source -> Mono.fromFuture(() -> storagePort.saveAsync(source.stream(), metadata)),
+                this::closeSource);
+    }
+
+    /** Dedup keyed by the digest of the write; a hit charges nothing, so settle releases it. */
+    private Mono<BatchFileResult> reuseOrPersist(StorageResult sr, MultipartFile mf, String wabaId,
+                                                 MediaType mediaType, Long orgId, Long projectId,
+                                                 BatchCharge charge) {
+        return Mono.fromCallable(() -> deduplicationService.reuseExisting(
+                        sr, mf, wabaId, mediaType, orgId, projectId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(reused -> reused
+                        .map(media -> Mono.just(BatchFileResult.success(
+                                mf.getOriginalFilename(),
+                                media.getMediaUrl(),
+                                media.getMediaType(),
+                                media.getMimeType(),
+                                media.getFileSize())))
+                        .orElseGet(() -> persist(sr, mf, wabaId, mediaType, orgId, projectId, charge)));
+    }
+
+    private Mono<BatchFileResult> persist(StorageResult sr, MultipartFile mf, String wabaId,
+                                          MediaType mediaType, Long orgId, Long projectId,
+                                          BatchCharge charge) {
+        return Mono.fromCallable(() -> {
+                    // Charged before the row can commit: a cancel from here on keeps these bytes
+                    charge.charge(mf.getSize());
+                    try {
+                        return insertMedia(sr, mf, wabaId, mediaType, orgId, projectId);
+                    } catch (Throwable ex) {
+                        releaseUnused(orgId, projectId, charge.uncharge(mf.getSize()));
+                        throw ex;
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private BatchFileResult insertMedia(StorageResult sr, MultipartFile mf, String wabaId,
+                                        MediaType mediaType, Long orgId, Long projectId) {
+        Media media = Media.builder()
+                .originalFilename(mf.getOriginalFilename())
+                .storedFilename(sr.getStorageKey())
+                .mimeType(mf.getContentType())
+                .fileSize(mf.getSize())
+                .checksum(sr.getChecksumSha256())
+                .wabaId(wabaId)
+                .mediaType(mediaType)
+                .storageProvider(sr.getProvider())
+                .storageKey(sr.getStorageKey())
+                .storageBucket(sr.getBucket())
+                .storageRegion(sr.getRegion())
+                .mediaUrl(sr.getPublicUrl())
+                .organisationId(orgId)
+                .projectId(projectId)
+                .status(MediaStatus.ACTIVE)
+                .createdAt(Instant.now())
+                .build();
+
+        deduplicationService.saveNew(media);
+
+        return BatchFileResult.success(
+                mf.getOriginalFilename(),
+                sr.getPublicUrl(),
+                mediaType,
+                mf.getContentType(),
+                mf.getSize());
+    }
+
+    private void releaseUnused(Long orgId, Long projectId, long failedBytes) {
+        if (failedBytes <= 0) return;
+        try {
+            quotaService.releaseQuotaAtomic(orgId, projectId, failedBytes);
+            log.info("Released {} bytes for failed files in batch", failedBytes);
         } catch (Exception ex) {
-            log.error("Failed to save file '{}' to storage", mf.getOriginalFilename(), ex);
-            return StorageUploadOutcome.failed(ex.getMessage());
+            log.error("Failed to release quota for failed batch files. " +
+                      "Queued for drift correction. failedBytes={}", failedBytes, ex);
+            deltaOutbox.releaseFailed(orgId, projectId, failedBytes);
+        }
+    }
+
+    // ── Upload source: multipart stream or per-file temp copy ────────────
+
+    private UploadSource openSource(MultipartFile mf) throws IOException {
+        if (mediaProperties.isStreamingUploadEnabled()) {
+            return new UploadSource(mf.getInputStream(), null);
+        }
+        File temp = FileUtils.convertMultipartToFile(mf);
+        try {
+            return new UploadSource(new FileInputStream(temp), temp);
+        } catch (IOException ex) {
+            FileUtils.deleteQuietly(temp);
+            throw ex;
+        }
+    }
+
+    private void closeSource(UploadSource source) {
+        try {
+            source.stream().close();
+        } catch (IOException ex) {
+            log.warn("Failed to close upload stream: {}", ex.getMessage());
+        }
+        if (source.tempFile() != null) {
+            FileUtils.deleteQuietly(source.tempFile());
         }
     }
 
@@ -256,23 +289,37 @@ public class BatchMediaUploadService {
         return filename.substring(filename.lastIndexOf("."));
     }
 
-    // ── Internal result wrapper ──────────────────────────────────────────
+    private record UploadSource(InputStream stream, File tempFile) {}
+
+    /**
+     * Bytes of one batch reservation that belong to stored files. Once the
+     * batch has settled (the rest was released), a file that fails to persist
+     * after all is released on its own.
+     */
+    private static final class BatchCharge {
+        private final long reserved;
+        private long charged;
+        private boolean settled;
 
-    @lombok.Data
-    @lombok.Builder
-    private static class StorageUploadOutcome {
-        private boolean success;
-        private StorageResult storageResult;
-        private String error;
+        BatchCharge(long reserved) {
+            this.reserved = reserved;
+        }
+
+        synchronized void charge(long bytes) {
+            charged += bytes;
+        }
 
-        static StorageUploadOutcome success(StorageResult result) {
-            return StorageUploadOutcome.builder()
-                    .success(true).storageResult(result).build();
+        /** Returns the bytes to release now: none until the batch has settled. */
+        synchronized long uncharge(long bytes) {
+            charged -= bytes;
+            return settled ? bytes : 0;
         }
 
-        static StorageUploadOutcome failed(String error) {
-            return StorageUploadOutcome.builder()
-                    .success(false).error(error).build();
+        /** Returns the reserved bytes no file has charged; later uncharges are released directly. */
+        synchronized long settle() {
+            if (settled) return 0;
+            settled = true;
+            return reserved - charged;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,484 @@
+package com.aigreentick.services.storage.service.impl.media;
+
+import com.aigreentick.services.storage.config.properties.ChunkedUploadProperties;
+import com.aigreentick.services.storage.domain.Media;
+import com.aigreentick.services.storage.domain.UploadSession;
+import com.aigreentick.services.storage.domain.UploadSessionPart;
+import com.aigreentick.services.storage.dto.response.MediaUploadResponse;
+import com.aigreentick.services.storage.dto.storage.ChunkPart;
+import com.aigreentick.services.storage.dto.storage.StorageMetadata;
+import com.aigreentick.services.storage.dto.storage.StorageResult;
+import com.aigreentick.services.storage.dto.upload.ChunkedUploadInitRequest;
+import com.aigreentick.services.storage.dto.upload.ChunkedUploadSessionResponse;
+import com.aigreentick.services.storage.enums.MediaStatus;
+import com.aigreentick.services.storage.enums.MediaType;
+import com.aigreentick.services.storage.enums.UploadMode;
+import com.aigreentick.services.storage.enums.UploadSessionStatus;
+import com.aigreentick.services.storage.exception.MediaNotFoundException;
+import com.aigreentick.services.storage.exception.MediaValidationException;
+import com.aigreentick.services.storage.repository.MediaRepository;
+import com.aigreentick.services.storage.repository.UploadSessionPartRepository;
+import com.aigreentick.services.storage.repository.UploadSessionRepository;
+import com.aigreentick.services.storage.service.impl.quota.OptimisticQuotaService;
+import com.aigreentick.services.storage.service.impl.quota.QuotaDeltaOutbox;
+import com.aigreentick.services.storage.service.port.ChunkedUploadPort;
+import com.aigreentick.services.storage.service.port.StoragePort;
+import com.aigreentick.services.storage.util.DigestingInputStream;
+import com.aigreentick.services.storage.validator.MediaValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Resumable chunked uploads: init → PUT chunks at offsets → complete.
+ *
+ * - init validates the declared file, reserves quota for its full size,
+ *   starts a provider upload (S3 multipart / preallocated local file) and
+ *   persists the session.
+ * - Each chunk is written straight to its provider part; re-sending a chunk
+ *   replaces it, so clients resume by re-sending whatever is missing. A
+ *   write claims the session first, and complete cannot start while a claim
+ *   is held, so no chunk lands in an object that is already assembled.
+ * - complete assembles the parts, inserts the Media row and settles quota
+ *   against the bytes actually assembled.
+ * - abort / expiry discards the parts and releases the reservation. This
+ *   also covers presigned direct-upload sessions (see DirectUploadService).
+ *
+ * Status changes go through a compare-and-set on the session row, so a
+ * double complete or a complete racing the expiry job resolves to one winner.
+ * A complete that fails after assembly, or dies mid-way, leaves the session
+ * COMPLETING; it is settled right away or by the cleanup job after
+ * completing-timeout (see {@link #settleCompleting}).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChunkedUploadService {
+
+    private static final long MIN_S3_PART_SIZE = 5L * 1024 * 1024;
+
+    private final ChunkedUploadPort chunkedPort;
+    private final StoragePort storagePort;
+    private final UploadSessionRepository sessionRepository;
+    private final UploadSessionPartRepository partRepository;
+    private final MediaRepository mediaRepository;
+    private final MediaCommandService commandService;
+    private final MediaValidator mediaValidator;
+    private final OptimisticQuotaService quotaService;
+    private final QuotaDeltaOutbox deltaOutbox;
+    private final ChunkedUploadProperties properties;
+
+    // ── Init ─────────────────────────────────────────────────────────────────
+
+    public ChunkedUploadSessionResponse initSession(ChunkedUploadInitRequest request, String wabaId,
+                                                    Long orgId, Long projectId) {
+        mediaValidator.validateDeclaredFile(request.getFilename(), request.getContentType(),
+                request.getTotalSize(), properties.getMaxFileSize());
+        MediaType mediaType = mediaValidator.detectMediaType(request.getContentType());
+        long chunkSize = Math.max(properties.getChunkSize(), MIN_S3_PART_SIZE);
+
+        quotaService.reserveQuotaAtomic(orgId, projectId, request.getTotalSize());
+
+        String storageKey = null;
+        String uploadId = null;
+        try {
+            StorageMetadata metadata = buildMetadata(request.getFilename(), request.getContentType(),
+                    request.getTotalSize(), mediaType, orgId, projectId);
+            storageKey = metadata.generateStorageKey();
+            uploadId = chunkedPort.initiateChunked(storageKey, metadata);
+
+            Instant now = Instant.now();
+            UploadSession session = sessionRepository.save(UploadSession.builder()
+                    .id(UUID.randomUUID().toString())
+                    .originalFilename(request.getFilename())
+                    .mimeType(request.getContentType())
+                    .mediaType(mediaType)
+                    .totalSize(request.getTotalSize())
+                    .chunkSize(chunkSize)
+                    .storageProvider(storagePort.getProviderType())
+                    .storageKey(storageKey)
+                    .providerUploadId(uploadId)
+                    .wabaId(wabaId)
+                    .organisationId(orgId)
+                    .projectId(projectId)
+                    .status(UploadSessionStatus.ACTIVE)
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .expiresAt(now.plus(properties.getSessionTtl()))
+                    .build());
+
+            log.info("Chunked upload session created: id={} key={} size={} parts={} org={} project={}",
+                    session.getId(), storageKey, session.getTotalSize(), session.getTotalParts(), orgId, projectId);
+            return toResponse(session, List.of());
+
+        } catch (Exception ex) {
+            if (uploadId != null) {
+                chunkedPort.abortChunked(storageKey, uploadId);
+            }
+            releaseQuietly(orgId, projectId, request.getTotalSize());
+            throw ex;
+        }
+    }
+
+    // ── Chunks ───────────────────────────────────────────────────────────────
+
+    public ChunkedUploadSessionResponse uploadChunk(String sessionId, long offset, long contentLength,
+                                                    InputStream body, Long orgId, Long projectId) {
+        UploadSession session = requireChunked(requireActive(sessionId, orgId, projectId));
+
+        if (offset < 0 || offset >= session.getTotalSize() || offset % session.getChunkSize() != 0) {
+            throw new MediaValidationException(String.format(
+                    "Invalid offset %d: must be a multiple of %d below %d",
+                    offset, session.getChunkSize(), session.getTotalSize()));
+        }
+        long expectedSize = Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+        if (contentLength != expectedSize) {
+            throw new MediaValidationException(String.format(
+                    "Chunk at offset %d must be %d bytes, got %d", offset, expectedSize, contentLength));
+        }
+
+        ChunkPart part = ChunkPart.builder()
+                .partNumber((int) (offset / session.getChunkSize()) + 1)
+                .offset(offset)
+                .size(expectedSize)
+                .build();
+
+        if (sessionRepository.claimWriter(sessionId, Instant.now()) == 0) {
+            throw new MediaValidationException("Upload session is no longer active: " + sessionId);
+        }
+        try {
+            DigestingInputStream metered = new DigestingInputStream(body);
+            String etag = chunkedPort.writeChunk(session.getStorageKey(), session.getProviderUploadId(), part, metered);
+            if (metered.getByteCount() != expectedSize) {
+                throw new MediaValidationException(String.format(
+                        "Chunk at offset %d was truncated: received %d of %d bytes",
+                        offset, metered.getByteCount(), expectedSize));
+            }
+
+            UploadSessionPart record = partRepository
+                    .findBySessionIdAndPartNumber(sessionId, part.getPartNumber())
+                    .orElseGet(() -> UploadSessionPart.builder()
+                            .sessionId(sessionId)
+                            .partNumber(part.getPartNumber())
+                            .build());
+            record.setSizeBytes(expectedSize);
+            record.setEtag(etag);
+            record.setCreatedAt(Instant.now());
+            partRepository.save(record);
+        } finally {
+            sessionRepository.releaseWriter(sessionId);
+        }
+
+        log.debug("Chunk stored: session={} part={} size={}", sessionId, part.getPartNumber(), expectedSize);
+        return toResponse(session, partRepository.findBySessionIdOrderByPartNumberAsc(sessionId));
+    }
+
+    public ChunkedUploadSessionResponse getSession(String sessionId, Long orgId, Long projectId) {
+        UploadSession session = requireSession(sessionId, orgId, projectId);
+        return toResponse(session, partRepository.findBySessionIdOrderByPartNumberAsc(sessionId));
+    }
+
+    // ── Complete ─────────────────────────────────────────────────────────────
+
+    public MediaUploadResponse complete(String sessionId, Long orgId, Long projectId) {
+        UploadSession session = requireChunked(requireActive(sessionId, orgId, projectId));
+
+        Instant started = Instant.now();
+        if (sessionRepository.startCompleting(sessionId,
+                started.minus(properties.getChunkWriteTimeout()), started) == 0) {
+            boolean active = sessionRepository.findById(sessionId)
+                    .map(s -> s.getStatus() == UploadSessionStatus.ACTIVE)
+                    .orElse(false);
+            throw new MediaValidationException(active
+                    ? "Chunk uploads are still in progress, retry complete once they finish: " + sessionId
+                    : "Upload session is no longer active: " + sessionId);
+        }
+
+        // Read only now: no chunk write can change the parts any more
+        List<UploadSessionPart> parts;
+        long receivedBytes;
+        StorageResult storageResult;
+        try {
+            parts = partRepository.findBySessionIdOrderByPartNumberAsc(sessionId);
+            receivedBytes = parts.stream().mapToLong(UploadSessionPart::getSizeBytes).sum();
+            if (parts.size() != session.getTotalParts() || receivedBytes != session.getTotalSize()) {
+                throw new MediaValidationException(String.format(
+                        "Upload incomplete: %d of %d parts, %d of %d bytes received",
+                        parts.size(), session.getTotalParts(), receivedBytes, session.getTotalSize()));
+            }
+
+            StorageMetadata metadata = buildMetadata(session.getOriginalFilename(), session.getMimeType(),
+                    session.getTotalSize(), session.getMediaType(), orgId, projectId);
+            List<ChunkPart> chunkParts = parts.stream()
+                    .map(p -> ChunkPart.builder()
+                            .partNumber(p.getPartNumber())
+                            .offset((p.getPartNumber() - 1) * session.getChunkSize())
+                            .size(p.getSizeBytes())
+                            .etag(p.getEtag())
+                            .build())
+                    .toList();
+            storageResult = chunkedPort.completeChunked(
+                    session.getStorageKey(), session.getProviderUploadId(), metadata, chunkParts);
+        } catch (Exception ex) {
+            // Parts are still there — let the client send what is missing or retry complete
+            sessionRepository.transition(sessionId, UploadSessionStatus.COMPLETING, UploadSessionStatus.ACTIVE);
+            throw ex;
+        }
+
+        Instant now = Instant.now();
+        try {
+            commandService.save(Media.builder()
+                    .originalFilename(session.getOriginalFilename())
+                    .storedFilename(storageResult.getStorageKey())
+                    .mimeType(session.getMimeType())
+                    .fileSize(receivedBytes)
+                    .wabaId(session.getWabaId())
+                    .mediaType(session.getMediaType())
+                    .storageProvider(storageResult.getProvider())
+                    .storageKey(storageResult.getStorageKey())
+                    .storageBucket(storageResult.getBucket())
+                    .storageRegion(storageResult.getRegion())
+                    .mediaUrl(storageResult.getPublicUrl())
+                    .organisationId(orgId)
+                    .projectId(projectId)
+                    .status(MediaStatus.ACTIVE)
+                    .createdAt(now)
+                    .build());
+        } catch (Exception ex) {
+            // The parts were consumed by the assembly, so there is nothing left to retry
+            failCompleting(session, ex);
+            throw ex;
+        }
+
+        // The reservation was for the declared size, which is exactly what was assembled
+        markCompleted(session);
+
+        log.info("Chunked upload complete: session={} key={} size={} org={} project={}",
+                sessionId, storageResult.getStorageKey(), receivedBytes, orgId, projectId);
+
+        return MediaUploadResponse.builder()
+                .url(storageResult.getPublicUrl())
+                .originalFilename(session.getOriginalFilename())
+                .storedFilename(storageResult.getStorageKey())
+                .mediaType(session.getMediaType())
+                .contentType(session.getMimeType())
+                .fileSizeBytes(receivedBytes)
+                .uploadedAt(now)
+                .build();
+    }
+
+    // ── Abort / expiry ───────────────────────────────────────────────────────
+
+    public void abort(String sessionId, Long orgId, Long projectId) {
+        UploadSession session = requireSession(sessionId, orgId, projectId);
+        if (!discard(session, UploadSessionStatus.ABORTED)) {
+            throw new MediaValidationException("Upload session is no longer active: " + sessionId);
+        }
+    }
+
+    /**
+     * Discards sessions whose TTL has passed and settles sessions stuck in
+     * COMPLETING past completing-timeout. Returns how many were expired.
+     */
+    public int expireStaleSessions() {
+        Instant now = Instant.now();
+        PageRequest batch = PageRequest.of(0, properties.getCleanupBatchSize());
+
+        int expired = 0;
+        for (UploadSession session : sessionRepository.findByStatusAndExpiresAtBefore(
+                UploadSessionStatus.ACTIVE, now, batch)) {
+            try {
+                if (discard(session, UploadSessionStatus.EXPIRED)) expired++;
+            } catch (Exception ex) {
+                log.error("Failed to expire upload session {}", session.getId(), ex);
+            }
+        }
+        for (UploadSession session : sessionRepository.findByStatusAndUpdatedAtBefore(
+                UploadSessionStatus.COMPLETING, now.minus(properties.getCompletingTimeout()), batch)) {
+            try {
+                if (settleCompleting(session, UploadSessionStatus.EXPIRED)) expired++;
+            } catch (Exception ex) {
+                log.error("Failed to settle stuck upload session {}", session.getId(), ex);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Settles a session left COMPLETING by a failed or interrupted complete,
+     * for chunked and direct uploads alike. If its Media row committed, the
+     * session is marked COMPLETED and the reservation stays with that row.
+     * Otherwise the object (or unfinished multipart upload) is discarded, the
+     * session moves to 'finalStatus' and the reservation is released.
+     * Returns true if the session was discarded.
+     */
+    public boolean settleCompleting(UploadSession session, UploadSessionStatus finalStatus) {
+        if (mediaRepository.existsByStorageKeyAndStatus(session.getStorageKey(), MediaStatus.ACTIVE)) {
+            markCompleted(session);
+            return false;
+        }
+        if (sessionRepository.transition(session.getId(), UploadSessionStatus.COMPLETING, finalStatus) == 0) {
+            return false;
+        }
+        if (session.getProviderUploadId() != null) {
+            chunkedPort.abortChunked(session.getStorageKey(), session.getProviderUploadId());
+        }
+        // Assembly may already have produced the object
+        deleteQuietly(session.getStorageKey());
+        partRepository.deleteBySessionId(session.getId());
+        releaseQuietly(session.getOrganisationId(), session.getProjectId(), session.getTotalSize());
+
+        log.warn("Upload session {} while completing: id={} released {} bytes org={} project={}",
+                finalStatus, session.getId(), session.getTotalSize(),
+                session.getOrganisationId(), session.getProjectId());
+        return true;
+    }
+
+    /**
+     * Settles a complete that failed after the session went COMPLETING. A
+     * failure to settle is attached to the original error and left to the
+     * cleanup job.
+     */
+    void failCompleting(UploadSession session, Exception cause) {
+        try {
+            settleCompleting(session, UploadSessionStatus.ABORTED);
+        } catch (Exception ex) {
+            cause.addSuppressed(ex);
+        }
+    }
+
+    /**
+     * Reopens a session whose complete failed while the uploaded object is
+     * still intact, so the client can retry complete. If the Media row did
+     * commit, the session is COMPLETED instead. A failure to reopen is
+     * attached to the original error and left to the cleanup job.
+     */
+    void reopenCompleting(UploadSession session, Exception cause) {
+        try {
+            if (mediaRepository.existsByStorageKeyAndStatus(session.getStorageKey(), MediaStatus.ACTIVE)) {
+                markCompleted(session);
+            } else {
+                sessionRepository.transition(session.getId(), UploadSessionStatus.COMPLETING, UploadSessionStatus.ACTIVE);
+            }
+        } catch (Exception ex) {
+            cause.addSuppressed(ex);
+        }
+    }
+
+    /**
+     * COMPLETING → COMPLETED once the Media row exists. The Media row is what
+     * matters to the client, so a failure here only logs: the session stays
+     * COMPLETING and the cleanup job finishes it.
+     */
+    void markCompleted(UploadSession session) {
+        try {
+            sessionRepository.transition(session.getId(), UploadSessionStatus.COMPLETING, UploadSessionStatus.COMPLETED);
+            partRepository.deleteBySessionId(session.getId());
+        } catch (Exception ex) {
+            log.error("Failed to mark upload session {} COMPLETED; the cleanup job will retry",
+                    session.getId(), ex);
+        }
+    }
+
+    private boolean discard(UploadSession session, UploadSessionStatus finalStatus) {
+        if (sessionRepository.transition(session.getId(), UploadSessionStatus.ACTIVE, finalStatus) == 0) {
+            return false;
+        }
+        if (session.getUploadMode() != UploadMode.CHUNKED) {
+            // The client may already have PUT the object, or a failed complete assembled it
+            deleteQuietly(session.getStorageKey());
+        }
+        if (session.getProviderUploadId() != null) {
+            chunkedPort.abortChunked(session.getStorageKey(), session.getProviderUploadId());
+        }
+        partRepository.deleteBySessionId(session.getId());
+        releaseQuietly(session.getOrganisationId(), session.getProjectId(), session.getTotalSize());
+
+        log.info("Upload session {}: id={} released {} bytes org={} project={}",
+                finalStatus, session.getId(), session.getTotalSize(),
+                session.getOrganisationId(), session.getProjectId());
+        return true;
+    }
+
+    // ── Helpers ──────────────────────────────────────────────────────────────
+
+    private UploadSession requireSession(String sessionId, Long orgId, Long projectId) {
+        return sessionRepository.findByIdAndOrganisationIdAndProjectId(sessionId, orgId, projectId)
+                .orElseThrow(() -> new MediaNotFoundException("Upload session not found: " + sessionId));
+    }
+
+    private UploadSession requireActive(String sessionId, Long orgId, Long projectId) {
+        UploadSession session = requireSession(sessionId, orgId, projectId);
+        if (session.getStatus() != UploadSessionStatus.ACTIVE) {
+            throw new MediaValidationException("Upload session is " + session.getStatus() + ": " + sessionId);
+        }
+        if (session.isExpired(Instant.now())) {
+            throw new MediaValidationException("Upload session has expired: " + sessionId);
+        }
+        return session;
+    }
+
+    private UploadSession requireChunked(UploadSession session) {
+        if (session.getUploadMode() != UploadMode.CHUNKED) {
+            throw new MediaValidationException("Upload session is a " + session.getUploadMode() +
+                    " direct upload: " + session.getId());
+        }
+        return session;
+    }
+
+    private void deleteQuietly(String storageKey) {
+        try {
+            storagePort.delete(storageKey);
+        } catch (Exception ex) {
+            log.warn("Failed to delete upload object key={}: {}", storageKey, ex.getMessage());
+        }
+    }
+
+    private void releaseQuietly(Long orgId, Long projectId, long size) {
+        try {
+            quotaService.releaseQuotaAtomic(orgId, projectId, size);
+        } catch (Exception ex) {
+            log.error("Failed to release {} bytes of session quota org={} project={}. " +
+                      "Queued for drift correction.", size, orgId, projectId, ex);
+            deltaOutbox.releaseFailed(orgId, projectId, size);
+        }
+    }
+
+    private StorageMetadata buildMetadata(String filename, String contentType, long size,
+                                          MediaType mediaType, Long orgId, Long projectId) {
+        return StorageMetadata.builder()
+                .originalFilename(filename)
+                .contentType(contentType)
+                .fileSize(size)
+                .organisationId(orgId)
+                .projectId(projectId)
+                .mediaType(mediaType)
+                .fileExtension(extractExtension(filename))
+                .build();
+    }
+
+    private ChunkedUploadSessionResponse toResponse(UploadSession session, List<UploadSessionPart> parts) {
+        return ChunkedUploadSessionResponse.builder()
+                .sessionId(session.getId())
+                .status(session.getStatus())
+                .originalFilename(session.getOriginalFilename())
+                .totalSize(session.getTotalSize())
+                .chunkSize(session.getChunkSize())
+                .totalParts(session.getTotalParts())
+                .receivedBytes(parts.stream().mapToLong(UploadSessionPart::getSizeBytes).sum())
+                .receivedParts(parts.stream().map(UploadSessionPart::getPartNumber).toList())
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+
+    private String extractExtension(String filename) {
+        if (filename == null || !filename.contains(".")) return "";
+        return filename.substring(filename.lastIndexOf("."));
+    }
+}
@@ -1,5 +1,6 @@
 package com.aigreentick.services.storage.service.impl.media;
 
+import com.aigreentick.services.storage.config.properties.MediaProperties;
 import com.aigreentick.services.storage.domain.Media;
 import com.aigreentick.services.storage.dto.response.MediaUploadResponse;
 import com.aigreentick.services.storage.dto.storage.StorageMetadata;
@@ -15,6 +16,7 @@ import com.aigreentick.services.storage.integration.facebook.FacebookApiResult;
 import com.aigreentick.services.storage.integration.facebook.FacebookMediaClient;
 import com.aigreentick.services.storage.integration.facebook.dto.WhatsappMediaUploadResponse;
 import com.aigreentick.services.storage.service.impl.quota.OptimisticQuotaService;
+import com.aigreentick.services.storage.service.impl.quota.QuotaDeltaOutbox;
 import com.aigreentick.services.storage.service.port.StoragePort;
 import com.aigreentick.services.storage.util.FileUtils;
 import com.aigreentick.services.storage.validator.MediaValidator;
@@ -29,6 +31,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Instant;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -47,9 +50,11 @@ public class ConcurrentMediaUploadService {
     private final StoragePort storagePort;
     private final FacebookMediaClient facebookClient;
     private final WhatsappAccountClient organisationClient;
-    private final MediaCommandService commandService;
     private final MediaValidator mediaValidator;
     private final OptimisticQuotaService quotaService;
+    private final QuotaDeltaOutbox deltaOutbox;
+    private final MediaProperties mediaProperties;
+    private final MediaDeduplicationService deduplicationService;
 
     /**
      * Synchronous wrapper — called from controller.
@@ -98,9 +103,6 @@ public class ConcurrentMediaUploadService {
 
             boolean quotaReserved = true;
             try {
-                // 2. Convert to temp file ONCE
-                tempFile = FileUtils.convertMultipartToFile(multipart);
-
                 StorageMetadata metadata = StorageMetadata.builder()
                         .originalFilename(multipart.getOriginalFilename())
                         .contentType(contentType)
@@ -111,8 +113,26 @@ public class ConcurrentMediaUploadService {
                         .fileExtension(extractExtension(multipart.getOriginalFilename()))
                         .build();
 
-                // 3. Persist to storage provider
-                StorageResult storageResult = saveToStorage(tempFile, metadata);
+                // 2-3. Persist to storage provider — streamed straight from the
+                //      multipart part, or via a temp file when streaming is disabled
+                StorageResult storageResult;
+                if (mediaProperties.isStreamingUploadEnabled()) {
+                    storageResult = saveToStorage(multipart, metadata);
+                } else {
+                    tempFile = FileUtils.convertMultipartToFile(multipart);
+                    storageResult = saveToStorage(tempFile, metadata);
+                }
+
+                // 3b. Dedup — keyed by the digest of the write above; an identical
+                //     stored object is shared, this copy dropped and its quota released
+                if (deduplicationService.isEnabled()) {
+                    Optional<Media> reused = deduplicationService.reuseExisting(
+                            storageResult, multipart, wabaId, mediaType, orgId, projectId);
+                    if (reused.isPresent()) {
+                        releaseQuota(orgId, projectId, multipart.getSize());
+                        return deduplicationService.toReusedResponse(reused.get());
+                    }
+                }
 
                 // 4. (Optional) Upload to WhatsApp — best-effort
                 // String whatsappMediaId = null;
@@ -130,6 +150,7 @@ public class ConcurrentMediaUploadService {
                         .storedFilename(storageResult.getStorageKey())
                         .mimeType(contentType)
                         .fileSize(multipart.getSize())
+                        .checksum(storageResult.getChecksumSha256())
                         .wabaId(wabaId)
                         .mediaType(mediaType)
                         .storageProvider(storageResult.getProvider())
@@ -144,7 +165,7 @@ public class ConcurrentMediaUploadService {
                         .createdAt(now)
                         .build();
 
-                commandService.save(media);
+                deduplicationService.saveNew(media);
 
                 long duration = System.currentTimeMillis() - startTime;
                 log.info("Upload complete: key={} provider={} org={} project={} duration={}ms",
@@ -167,14 +188,9 @@ public class ConcurrentMediaUploadService {
             } catch (Exception ex) {
                 // Rollback quota on failure
                 if (quotaReserved) {
-                    try {
-                        quotaService.releaseQuota(orgId, projectId, multipart.getSize());
-                        log.info("Quota rolled back after upload failure: org={} project={} size={}",
-                                orgId, projectId, multipart.getSize());
-                    } catch (Exception rollbackEx) {
-                        log.error("Failed to rollback quota: org={} project={}", orgId, projectId, rollbackEx);
-                        // Nightly reconciliation will fix this
-                    }
+                    releaseQuota(orgId, projectId, multipart.getSize());
+                    log.info("Quota rolled back after upload failure: org={} project={} size={}",
+                            orgId, projectId, multipart.getSize());
                 }
                 throw ex;
             }
@@ -192,6 +208,23 @@ public class ConcurrentMediaUploadService {
 
     // ── Private helpers ───────────────────────────────────────────────────────
 
+    private void releaseQuota(Long orgId, Long projectId, long size) {
+        try {
+            quotaService.releaseQuota(orgId, projectId, size);
+        } catch (Exception rollbackEx) {
+            log.error("Failed to release quota: org={} project={}", orgId, projectId, rollbackEx);
+            deltaOutbox.releaseFailed(orgId, projectId, size);
+        }
+    }
+
+    private StorageResult saveToStorage(MultipartFile multipart, StorageMetadata metadata) {
+        try (InputStream is = multipart.getInputStream()) {
+            return storagePort.save(is, metadata);
+        } catch (IOException ex) {
+            throw new MediaUploadException("Failed to read multipart stream for storage: " + ex.getMessage(), ex);
+        }
+    }
+
     private StorageResult saveToStorage(File tempFile, StorageMetadata metadata) {
         try (InputStream is = new FileInputStream(tempFile)) {
             return storagePort.save(is, metadata);
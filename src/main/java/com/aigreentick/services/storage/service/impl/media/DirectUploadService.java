@@ -0,0 +1,377 @@
+package com.aigreentick.services.storage.service.impl.media;
+
+import com.aigreentick.services.storage.config.properties.DirectUploadProperties;
+import com.aigreentick.services.storage.domain.Media;
+import com.aigreentick.services.storage.domain.UploadSession;
+import com.aigreentick.services.storage.dto.response.MediaUploadResponse;
+import com.aigreentick.services.storage.dto.storage.ChunkPart;
+import com.aigreentick.services.storage.dto.storage.ObjectHead;
+import com.aigreentick.services.storage.dto.storage.PresignedUpload;
+import com.aigreentick.services.storage.dto.storage.StorageMetadata;
+import com.aigreentick.services.storage.dto.storage.StorageResult;
+import com.aigreentick.services.storage.dto.upload.DirectUploadCompleteRequest;
+import com.aigreentick.services.storage.dto.upload.DirectUploadInitRequest;
+import com.aigreentick.services.storage.dto.upload.DirectUploadInitResponse;
+import com.aigreentick.services.storage.enums.MediaStatus;
+import com.aigreentick.services.storage.enums.MediaType;
+import com.aigreentick.services.storage.enums.UploadMode;
+import com.aigreentick.services.storage.enums.UploadSessionStatus;
+import com.aigreentick.services.storage.exception.MediaNotFoundException;
+import com.aigreentick.services.storage.exception.MediaValidationException;
+import com.aigreentick.services.storage.repository.UploadSessionRepository;
+import com.aigreentick.services.storage.service.impl.quota.OptimisticQuotaService;
+import com.aigreentick.services.storage.service.impl.quota.QuotaDeltaOutbox;
+import com.aigreentick.services.storage.service.port.ChunkedUploadPort;
+import com.aigreentick.services.storage.service.port.DirectUploadPort;
+import com.aigreentick.services.storage.service.port.StoragePort;
+import com.aigreentick.services.storage.util.ChecksumUtils;
+import com.aigreentick.services.storage.validator.MediaValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Presigned direct-to-S3 uploads: the bytes go from the client to the bucket
+ * and never pass through this service.
+ *
+ * - init validates the declared file, reserves quota for its size, fixes the
+ *   storage key and hands back a presigned PUT URL (or one URL per part above
+ *   the multipart threshold). The session lives in upload_session, so the
+ *   expiry job and quota reconciliation already account for it.
+ * - complete is the client's callback once the PUTs succeeded: it assembles
+ *   multipart uploads, HEADs the object, verifies size (and checksum when one
+ *   was declared), inserts the Media row and marks the session COMPLETED.
+ *   A mismatching object is deleted and its reservation released. Any other
+ *   failure reopens the session so the client can retry complete.
+ * - abort / expiry go through ChunkedUploadService, which deletes the object
+ *   or aborts the multipart upload.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DirectUploadService {
+
+    private static final long MIN_S3_PART_SIZE = 5L * 1024 * 1024;
+
+    private final List<DirectUploadPort> directPorts;
+    private final ChunkedUploadPort chunkedPort;
+    private final StoragePort storagePort;
+    private final UploadSessionRepository sessionRepository;
+    private final ChunkedUploadService chunkedUploadService;
+    private final MediaCommandService commandService;
+    private final MediaValidator mediaValidator;
+    private final OptimisticQuotaService quotaService;
+    private final QuotaDeltaOutbox deltaOutbox;
+    private final DirectUploadProperties properties;
+
+    // ── Init ─────────────────────────────────────────────────────────────────
+
+    public DirectUploadInitResponse initSession(DirectUploadInitRequest request, String wabaId,
+                                                Long orgId, Long projectId) {
+        DirectUploadPort port = requirePort();
+        mediaValidator.validateDeclaredFile(request.getFilename(), request.getContentType(),
+                request.getTotalSize(), properties.getMaxFileSize());
+        MediaType mediaType = mediaValidator.detectMediaType(request.getContentType());
+
+        boolean multipart = request.getTotalSize() > properties.getMultipartThreshold();
+        long partSize = multipart ? Math.max(properties.getPartSize(), MIN_S3_PART_SIZE) : request.getTotalSize();
+
+        quotaService.reserveQuotaAtomic(orgId, projectId, request.getTotalSize());
+
+        String storageKey = null;
+        String uploadId = null;
+        try {
+            StorageMetadata metadata = buildMetadata(request.getFilename(), request.getContentType(),
+                    request.getTotalSize(), mediaType, orgId, projectId);
+            storageKey = metadata.generateStorageKey();
+            if (multipart) {
+                uploadId = chunkedPort.initiateChunked(storageKey, metadata);
+            }
+
+            Instant now = Instant.now();
+            UploadSession session = sessionRepository.save(UploadSession.builder()
+                    .id(UUID.randomUUID().toString())
+                    .originalFilename(request.getFilename())
+                    .mimeType(request.getContentType())
+                    .mediaType(mediaType)
+                    .totalSize(request.getTotalSize())
+                    .chunkSize(partSize)
+                    .storageProvider(port.getProviderType())
+                    .storageKey(storageKey)
+                    .providerUploadId(uploadId)
+                    .uploadMode(multipart ? UploadMode.PRESIGNED_MULTIPART : UploadMode.PRESIGNED_PUT)
+                    // A multipart object only carries a composite checksum, so only single PUTs are verified
+                    .expectedChecksum(multipart ? null : request.getChecksumSha256())
+                    .wabaId(wabaId)
+                    .organisationId(orgId)
+                    .projectId(projectId)
+                    .status(UploadSessionStatus.ACTIVE)
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .expiresAt(now.plus(properties.getSessionTtl()))
+                    .build());
+
+            DirectUploadInitResponse response = multipart
+                    ? presignParts(port, session)
+                    : presignSingle(port, session, metadata);
+
+            log.info("Direct upload session created: id={} mode={} key={} size={} org={} project={}",
+                    session.getId(), session.getUploadMode(), storageKey, session.getTotalSize(), orgId, projectId);
+            return response;
+
+        } catch (Exception ex) {
+            if (uploadId != null) {
+                chunkedPort.abortChunked(storageKey, uploadId);
+            }
+            releaseQuietly(orgId, projectId, request.getTotalSize());
+            throw ex;
+        }
+    }
+
+    private DirectUploadInitResponse presignSingle(DirectUploadPort port, UploadSession session,
+                                                   StorageMetadata metadata) {
+        PresignedUpload presigned = port.presignPut(session.getStorageKey(), metadata,
+                session.getExpectedChecksum(), properties.getUrlExpiry());
+        return DirectUploadInitResponse.builder()
+                .sessionId(session.getId())
+                .uploadMode(session.getUploadMode())
+                .totalSize(session.getTotalSize())
+                .url(presigned.getUrl())
+                .headers(presigned.getHeaders())
+                .urlExpiresAt(presigned.getExpiresAt())
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+
+    private DirectUploadInitResponse presignParts(DirectUploadPort port, UploadSession session) {
+        List<DirectUploadInitResponse.PartUrl> parts = new ArrayList<>(session.getTotalParts());
+        Instant urlExpiresAt = null;
+        for (int partNumber = 1; partNumber <= session.getTotalParts(); partNumber++) {
+            long size = partSize(session, partNumber);
+            PresignedUpload presigned = port.presignPart(session.getStorageKey(), session.getProviderUploadId(),
+                    partNumber, size, properties.getUrlExpiry());
+            parts.add(DirectUploadInitResponse.PartUrl.builder()
+                    .partNumber(partNumber)
+                    .size(size)
+                    .url(presigned.getUrl())
+                    .build());
+            urlExpiresAt = presigned.getExpiresAt();
+        }
+        return DirectUploadInitResponse.builder()
+                .sessionId(session.getId())
+                .uploadMode(session.getUploadMode())
+                .totalSize(session.getTotalSize())
+                .partSize(session.getChunkSize())
+                .parts(parts)
+                .urlExpiresAt(urlExpiresAt)
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+
+    // ── Complete ─────────────────────────────────────────────────────────────
+
+    public MediaUploadResponse complete(String sessionId, DirectUploadCompleteRequest request,
+                                        Long orgId, Long projectId) {
+        UploadSession session = requireActiveDirect(sessionId, orgId, projectId);
+        DirectUploadPort port = requirePort();
+        StorageMetadata metadata = buildMetadata(session.getOriginalFilename(), session.getMimeType(),
+                session.getTotalSize(), session.getMediaType(), orgId, projectId);
+
+        List<ChunkPart> completedParts = session.getUploadMode() == UploadMode.PRESIGNED_MULTIPART
+                ? toChunkParts(session, request)
+                : List.of();
+
+        if (sessionRepository.transition(sessionId, UploadSessionStatus.ACTIVE, UploadSessionStatus.COMPLETING) == 0) {
+            throw new MediaValidationException("Upload session is no longer active: " + sessionId);
+        }
+
+        ObjectHead head;
+        try {
+            Optional<ObjectHead> existing = port.headObject(session.getStorageKey());
+            // A retried complete finds the object already assembled
+            if (existing.isEmpty() && session.getUploadMode() == UploadMode.PRESIGNED_MULTIPART) {
+                chunkedPort.completeChunked(session.getStorageKey(), session.getProviderUploadId(),
+                        metadata, completedParts);
+                existing = port.headObject(session.getStorageKey());
+            }
+            head = existing.orElseThrow(() -> new MediaValidationException(
+                    "Object has not been uploaded yet for session: " + sessionId));
+        } catch (Exception ex) {
+            // Nothing verified or discarded yet — let the client retry complete
+            sessionRepository.transition(sessionId, UploadSessionStatus.COMPLETING, UploadSessionStatus.ACTIVE);
+            throw ex;
+        }
+
+        if (head.getSize() != session.getTotalSize()) {
+            throw reject(session, String.format("Uploaded object is %d bytes but %d were declared",
+                    head.getSize(), session.getTotalSize()));
+        }
+        if (session.getExpectedChecksum() != null
+                && !session.getExpectedChecksum().equals(head.getChecksumSha256())) {
+            throw reject(session, "Uploaded object does not match the declared SHA-256");
+        }
+
+        StorageResult storageResult;
+        Instant now = Instant.now();
+        try {
+            storageResult = port.describe(session.getStorageKey(), metadata);
+            commandService.save(Media.builder()
+                    .originalFilename(session.getOriginalFilename())
+                    .storedFilename(storageResult.getStorageKey())
+                    .mimeType(session.getMimeType())
+                    .fileSize(head.getSize())
+                    .checksum(toHexChecksum(head.getChecksumSha256()))
+                    .wabaId(session.getWabaId())
+                    .mediaType(session.getMediaType())
+                    .storageProvider(storageResult.getProvider())
+                    .storageKey(storageResult.getStorageKey())
+                    .storageBucket(storageResult.getBucket())
+                    .storageRegion(storageResult.getRegion())
+                    .mediaUrl(storageResult.getPublicUrl())
+                    .organisationId(orgId)
+                    .projectId(projectId)
+                    .status(MediaStatus.ACTIVE)
+                    .createdAt(now)
+                    .build());
+        } catch (Exception ex) {
+            // The verified object is still in place — let the client retry complete
+            chunkedUploadService.reopenCompleting(session, ex);
+            throw ex;
+        }
+
+        chunkedUploadService.markCompleted(session);
+
+        log.info("Direct upload complete: session={} mode={} key={} size={} org={} project={}",
+                sessionId, session.getUploadMode(), storageResult.getStorageKey(), head.getSize(), orgId, projectId);
+
+        return MediaUploadResponse.builder()
+                .url(storageResult.getPublicUrl())
+                .originalFilename(session.getOriginalFilename())
+                .storedFilename(storageResult.getStorageKey())
+                .mediaType(session.getMediaType())
+                .contentType(session.getMimeType())
+                .fileSizeBytes(head.getSize())
+                .uploadedAt(now)
+                .build();
+    }
+
+    /** Abort shares the discard path with chunked sessions. */
+    public void abort(String sessionId, Long orgId, Long projectId) {
+        chunkedUploadService.abort(sessionId, orgId, projectId);
+    }
+
+    private List<ChunkPart> toChunkParts(UploadSession session, DirectUploadCompleteRequest request) {
+        List<DirectUploadCompleteRequest.CompletedPart> parts = request != null && request.getParts() != null
+                ? request.getParts().stream()
+                        .sorted(Comparator.comparing(DirectUploadCompleteRequest.CompletedPart::getPartNumber))
+                        .toList()
+                : List.of();
+
+        if (parts.size() != session.getTotalParts()) {
+            throw new MediaValidationException(String.format(
+                    "Expected %d parts, got %d", session.getTotalParts(), parts.size()));
+        }
+
+        List<ChunkPart> chunkParts = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            DirectUploadCompleteRequest.CompletedPart part = parts.get(i);
+            if (part.getPartNumber() != i + 1) {
+                throw new MediaValidationException("Missing or duplicate part number: " + (i + 1));
+            }
+            chunkParts.add(ChunkPart.builder()
+                    .partNumber(part.getPartNumber())
+                    .offset(i * session.getChunkSize())
+                    .size(partSize(session, part.getPartNumber()))
+                    .etag(part.getEtag())
+                    .build());
+        }
+        return chunkParts;
+    }
+
+    /**
+     * Deletes an object that failed verification, closes the session and
+     * releases its reservation. Returns the exception for the caller to throw.
+     */
+    private MediaValidationException reject(UploadSession session, String reason) {
+        log.warn("Direct upload rejected: session={} key={} reason={}",
+                session.getId(), session.getStorageKey(), reason);
+        try {
+            storagePort.delete(session.getStorageKey());
+        } catch (Exception ex) {
+            log.warn("Failed to delete rejected object key={}: {}", session.getStorageKey(), ex.getMessage());
+        }
+        sessionRepository.transition(session.getId(), UploadSessionStatus.COMPLETING, UploadSessionStatus.ABORTED);
+        releaseQuietly(session.getOrganisationId(), session.getProjectId(), session.getTotalSize());
+        return new MediaValidationException(reason);
+    }
+
+    // ── Helpers ──────────────────────────────────────────────────────────────
+
+    private DirectUploadPort requirePort() {
+        return directPorts.stream()
+                .filter(p -> p.getProviderType() == storagePort.getProviderType())
+                .findFirst()
+                .orElseThrow(() -> new MediaValidationException(
+                        "Direct uploads are not supported by the " + storagePort.getProviderType() + " provider"));
+    }
+
+    private UploadSession requireActiveDirect(String sessionId, Long orgId, Long projectId) {
+        UploadSession session = sessionRepository.findByIdAndOrganisationIdAndProjectId(sessionId, orgId, projectId)
+                .orElseThrow(() -> new MediaNotFoundException("Upload session not found: " + sessionId));
+        if (session.getUploadMode() == UploadMode.CHUNKED) {
+            throw new MediaValidationException("Upload session is a chunked upload: " + sessionId);
+        }
+        if (session.getStatus() != UploadSessionStatus.ACTIVE) {
+            throw new MediaValidationException("Upload session is " + session.getStatus() + ": " + sessionId);
+        }
+        if (session.isExpired(Instant.now())) {
+            throw new MediaValidationException("Upload session has expired: " + sessionId);
+        }
+        return session;
+    }
+
+    private long partSize(UploadSession session, int partNumber) {
+        return Math.min(session.getChunkSize(), session.getTotalSize() - (partNumber - 1) * session.getChunkSize());
+    }
+
+    /** Media.checksum is hex; S3 reports base64. Null when S3 holds no SHA-256 for the object. */
+    private String toHexChecksum(String base64) {
+        return base64 != null ? ChecksumUtils.toHex(Base64.getDecoder().decode(base64)) : null;
+    }
+
+    private void releaseQuietly(Long orgId, Long projectId, long size) {
+        try {
+            quotaService.releaseQuotaAtomic(orgId, projectId, size);
+        } catch (Exception ex) {
+            log.error("Failed to release {} bytes of direct-upload quota org={} project={}. " +
+                      "Queued for drift correction.", size, orgId, projectId, ex);
+            deltaOutbox.releaseFailed(orgId, projectId, size);
+        }
+    }
+
+    private StorageMetadata buildMetadata(String filename, String contentType, long size,
+                                          MediaType mediaType, Long orgId, Long projectId) {
+        return StorageMetadata.builder()
+                .originalFilename(filename)
+                .contentType(contentType)
+                .fileSize(size)
+                .organisationId(orgId)
+                .projectId(projectId)
+                .mediaType(mediaType)
+                .fileExtension(extractExtension(filename))
+                .build();
+    }
+
+    private String extractExtension(String filename) {
+        if (filename == null || !filename.contains(".")) return "";
+        return filename.substring(filename.lastIndexOf("."));
+    }
+}
@@ -2,24 +2,38 @@ package com.aigreentick.services.storage.service.impl.media;
 
 import com.aigreentick.services.storage.domain.Media;
 import com.aigreentick.services.storage.exception.MediaNotFoundException;
+import com.aigreentick.services.storage.repository.MediaObjectRepository;
 import com.aigreentick.services.storage.repository.MediaRepository;
+import com.aigreentick.services.storage.service.impl.quota.QuotaDeltaOutbox;
 import com.aigreentick.services.storage.service.impl.quota.QuotaService;
+import com.aigreentick.services.storage.service.impl.storage.MediaMetadataIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class MediaCommandService {
 
     private final MediaRepository mediaRepository;
+    private final MediaObjectRepository objectRepository;
     private final QuotaService quotaService;
+    private final QuotaDeltaOutbox deltaOutbox;
+    private final MediaMetadataIndex metadataIndex;
 
     @Transactional
     public Media save(Media media) {
-        return mediaRepository.save(media);
+        boolean inserted = media.getId() == null;
+        Media saved = mediaRepository.save(media);
+        if (inserted) {
+            deltaOutbox.mediaInserted(saved.getOrganisationId(), saved.getProjectId(), saved.getFileSize());
+            metadataIndex.evictAfterCommit(saved.getStorageKey());
+        }
+        return saved;
     }
 
     @Transactional
@@ -27,8 +41,17 @@ public class MediaCommandService {
         Media media = mediaRepository.findById(id)
                 .orElseThrow(() -> new MediaNotFoundException("Media not found with ID: " + id));
 
+        // Deduplicated object still referenced by other uploads — drop the row, keep the quota
+        if (releaseSharedObject(media)) {
+            mediaRepository.deleteById(id);
+            log.info("Deleted media id={}; key={} is still shared", id, media.getStorageKey());
+            return;
+        }
+
         quotaService.releaseQuota(media.getOrganisationId(), media.getProjectId(), media.getFileSize());
         mediaRepository.deleteById(id);
+        deltaOutbox.mediaDeleted(media.getOrganisationId(), media.getProjectId(), media.getFileSize());
+        metadataIndex.evictAfterCommit(media.getStorageKey());
 
         log.info("Deleted media id={} released {} bytes org={} project={}",
                 id, media.getFileSize(), media.getOrganisationId(), media.getProjectId());
@@ -39,10 +62,17 @@ public class MediaCommandService {
         Media media = mediaRepository.findById(mediaId)
                 .orElseThrow(() -> new MediaNotFoundException("Media not found: " + mediaId));
 
-        quotaService.releaseQuota(media.getOrganisationId(), media.getProjectId(), media.getFileSize());
-
+        boolean shared = releaseSharedObject(media);
         int updated = mediaRepository.softDeleteById(mediaId, deletedBy);
         if (updated == 0) throw new MediaNotFoundException("Media not found: " + mediaId);
+        if (shared) {
+            log.info("Soft-deleted media id={}; key={} is still shared", mediaId, media.getStorageKey());
+            return updated;
+        }
+
+        quotaService.releaseQuota(media.getOrganisationId(), media.getProjectId(), media.getFileSize());
+        deltaOutbox.mediaDeleted(media.getOrganisationId(), media.getProjectId(), media.getFileSize());
+        metadataIndex.evictAfterCommit(media.getStorageKey());
 
         log.info("Soft-deleted media id={} released {} bytes", mediaId, media.getFileSize());
         return updated;
@@ -52,11 +82,35 @@ public class MediaCommandService {
     public void deleteByOrgAndProject(Long orgId, Long projectId) {
         log.info("Bulk deleting media for org={} project={}", orgId, projectId);
         mediaRepository.deleteByOrganisationIdAndProjectId(orgId, projectId);
+        objectRepository.deleteByOrganisationIdAndProjectId(orgId, projectId);
+        deltaOutbox.projectPurged(orgId, projectId);
+        metadataIndex.evictPrefixAfterCommit("org-" + orgId + "/proj-" + projectId + "/");
     }
 
     @Transactional
     public void deleteByOrganisation(Long orgId) {
         log.info("Bulk deleting media for org={}", orgId);
         mediaRepository.deleteByOrganisationId(orgId);
+        objectRepository.deleteByOrganisationId(orgId);
+        metadataIndex.evictPrefixAfterCommit("org-" + orgId + "/");
+    }
+
+    /**
+     * Drops the row's reference on its shared object (see {@link MediaDeduplicationService}).
+     * Returns true if other uploads still hold the object, so its bytes stay charged.
+     * Rows stored without dedup have no object and return false.
+     */
+    private boolean releaseSharedObject(Media media) {
+        return objectRepository.findByStorageKeyForUpdate(media.getStorageKey())
+                .map(object -> {
+                    if (object.getRefCount() > 1) {
+                        object.setRefCount(object.getRefCount() - 1);
+                        object.setUpdatedAt(Instant.now());
+                        return true;
+                    }
+                    objectRepository.delete(object);
+                    return false;
+                })
+                .orElse(false);
     }
-}
\ No newline at end of file
+}
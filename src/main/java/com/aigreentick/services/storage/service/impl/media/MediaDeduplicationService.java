@@ -0,0 +1,153 @@
+package com.aigreentick.services.storage.service.impl.media;
+
+import com.aigreentick.services.storage.config.properties.MediaProperties;
+import com.aigreentick.services.storage.domain.Media;
+import com.aigreentick.services.storage.domain.MediaObject;
+import com.aigreentick.services.storage.dto.response.MediaUploadResponse;
+import com.aigreentick.services.storage.dto.storage.StorageResult;
+import com.aigreentick.services.storage.enums.MediaStatus;
+import com.aigreentick.services.storage.enums.MediaType;
+import com.aigreentick.services.storage.repository.MediaObjectRepository;
+import com.aigreentick.services.storage.repository.MediaRepository;
+import com.aigreentick.services.storage.service.port.StoragePort;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Content-addressed deduplication within an org/project.
+ *
+ * An upload whose SHA-256 matches a stored {@link MediaObject} gets its own
+ * Media row pointing at that object's storage_key, and the object's ref_count
+ * is incremented; no storage write or quota charge happens. The object's bytes
+ * are charged once and released with its last reference — see
+ * {@link MediaCommandService}.
+ *
+ * The key is the SHA-256 that MeteringStoragePort computes while the upload
+ * is written, so the bytes are read once. The decision is therefore made after
+ * the write: a hit drops the copy just stored (once the reference commits) and
+ * the caller releases the quota it reserved for it. Hits pay a PUT and a
+ * delete instead of a second local read of every upload.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MediaDeduplicationService {
+
+    private final MediaRepository mediaRepository;
+    private final MediaObjectRepository objectRepository;
+    private final MediaCommandService commandService;
+    private final StoragePort storagePort;
+    private final MediaProperties mediaProperties;
+
+    public boolean isEnabled() {
+        return mediaProperties.isDeduplicationEnabled();
+    }
+
+    /**
+     * Takes a reference on a stored object with the same content as the copy
+     * just written and inserts the uploader's own Media row for it; the copy
+     * is deleted after commit. Empty if there is no match or the object was
+     * released before the reference could be taken — the caller then keeps
+     * the copy and saves it with {@link #saveNew}.
+     */
+    @Transactional
+    public Optional<Media> reuseExisting(StorageResult copy, MultipartFile multipart, String wabaId,
+                                         MediaType mediaType, Long orgId, Long projectId) {
+        String checksum = copy.getChecksumSha256();
+        if (checksum == null) {
+            return Optional.empty();
+        }
+        Optional<MediaObject> existing = objectRepository
+                .findFirstByChecksumAndOrganisationIdAndProjectIdOrderByIdAsc(checksum, orgId, projectId)
+                .filter(object -> objectRepository.acquire(object.getId()) == 1);
+        if (existing.isEmpty()) {
+            return Optional.empty();
+        }
+
+        MediaObject object = existing.get();
+        // No quota delta: the object's bytes are already charged
+        Media saved = mediaRepository.save(Media.builder()
+                .originalFilename(multipart.getOriginalFilename())
+                .storedFilename(object.getStorageKey())
+                .mimeType(multipart.getContentType())
+                .fileSize(object.getFileSize())
+                .checksum(object.getChecksum())
+                .wabaId(wabaId)
+                .mediaType(mediaType)
+                .storageProvider(object.getStorageProvider())
+                .storageKey(object.getStorageKey())
+                .storageBucket(object.getStorageBucket())
+                .storageRegion(object.getStorageRegion())
+                .mediaUrl(object.getMediaUrl())
+                .organisationId(orgId)
+                .projectId(projectId)
+                .status(MediaStatus.ACTIVE)
+                .createdAt(Instant.now())
+                .build());
+
+        deleteAfterCommit(copy.getStorageKey());
+
+        log.info("Dedup hit: media id={} reuses key={} for org={} project={} checksum={}",
+                saved.getId(), object.getStorageKey(), orgId, projectId, checksum);
+        return Optional.of(saved);
+    }
+
+    /**
+     * Inserts the Media row of a newly stored object and, with dedup on,
+     * registers the object so later identical uploads can share it.
+     */
+    @Transactional
+    public Media saveNew(Media media) {
+        Media saved = commandService.save(media);
+        if (isEnabled() && saved.getChecksum() != null) {
+            objectRepository.save(MediaObject.builder()
+                    .organisationId(saved.getOrganisationId())
+                    .projectId(saved.getProjectId())
+                    .checksum(saved.getChecksum())
+                    .storageProvider(saved.getStorageProvider())
+                    .storageKey(saved.getStorageKey())
+                    .storageBucket(saved.getStorageBucket())
+                    .storageRegion(saved.getStorageRegion())
+                    .mediaUrl(saved.getMediaUrl())
+                    .fileSize(saved.getFileSize())
+                    .createdAt(saved.getCreatedAt())
+                    .build());
+        }
+        return saved;
+    }
+
+    public MediaUploadResponse toReusedResponse(Media media) {
+        return MediaUploadResponse.builder()
+                .url(media.getMediaUrl())
+                .originalFilename(media.getOriginalFilename())
+                .storedFilename(media.getStorageKey())
+                .mediaType(media.getMediaType())
+                .contentType(media.getMimeType())
+                .fileSizeBytes(media.getFileSize())
+                .mediaId(media.getMediaId())
+                .uploadedAt(media.getCreatedAt())
+                .deduplicated(true)
+                .build();
+    }
+
+    private void deleteAfterCommit(String storageKey) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    storagePort.delete(storageKey);
+                } catch (Exception ex) {
+                    log.warn("Failed to delete duplicate copy key={}: {}", storageKey, ex.getMessage());
+                }
+            }
+        });
+    }
+}
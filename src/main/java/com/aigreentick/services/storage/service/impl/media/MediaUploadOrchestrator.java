@@ -1,5 +1,6 @@
 package com.aigreentick.services.storage.service.impl.media;
 
+import com.aigreentick.services.storage.config.properties.MediaProperties;
 import com.aigreentick.services.storage.context.UserContext;
 import com.aigreentick.services.storage.domain.Media;
 import com.aigreentick.services.storage.dto.response.MediaUploadResponse;
@@ -23,6 +24,8 @@ import com.aigreentick.services.storage.util.FileUtils;
 import com.aigreentick.services.storage.validator.MediaValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -38,7 +41,7 @@ import java.time.Instant;
 
 /**
  * Orchestrates the full media upload flow:
- * validate → quota check (local DB) → convert to temp file → store → persist.
+ * validate → quota check (local DB) → stream to storage → persist.
  *
  * Quota is enforced entirely within the Storage Service using local
  * org_storage and project_storage tables. No remote service call needed.
@@ -56,6 +59,7 @@ public class MediaUploadOrchestrator {
     private final MediaMapper mediaMapper;
     private final MediaValidator mediaValidator;
     private final QuotaService quotaService;
+    private final MediaProperties mediaProperties;
 
     /**
      * Full upload flow inside a single transaction:
@@ -88,9 +92,6 @@ public class MediaUploadOrchestrator {
             String contentType = multipart.getContentType();
             MediaType mediaType = mediaValidator.detectMediaType(contentType);
 
-            // 2. Convert MultipartFile to temp file ONCE
-            tempFile = FileUtils.convertMultipartToFile(multipart);
-
             StorageMetadata metadata = StorageMetadata.builder()
                     .originalFilename(multipart.getOriginalFilename())
                     .contentType(contentType)
@@ -101,13 +102,23 @@ public class MediaUploadOrchestrator {
                     .fileExtension(extractExtension(multipart.getOriginalFilename()))
                     .build();
 
-            // 3. Persist to storage provider
-            StorageResult storageResult = saveToStorage(tempFile, metadata);
+            // 2-3. Persist to storage provider — streamed straight from the multipart
+            //      part, or via a temp file when streaming is disabled
+            boolean streaming = mediaProperties.isStreamingUploadEnabled();
+            StorageResult storageResult;
+            if (streaming) {
+                storageResult = saveToStorage(multipart, metadata);
+            } else {
+                tempFile = FileUtils.convertMultipartToFile(multipart);
+                storageResult = saveToStorage(tempFile, metadata);
+            }
 
             // 4. (Optional) Upload to WhatsApp — best-effort, does not block
             String whatsappMediaId = null;
             try {
-                whatsappMediaId = pushToWhatsApp(tempFile, contentType, projectId, wabaId);
+                whatsappMediaId = streaming
+                        ? pushToWhatsApp(multipart.getResource(), contentType, projectId, wabaId)
+                        : pushToWhatsApp(new FileSystemResource(tempFile), contentType, projectId, wabaId);
             } catch (Exception ex) {
                 log.warn("WhatsApp upload skipped for file='{}': {}",
                         multipart.getOriginalFilename(), ex.getMessage());
@@ -120,6 +131,7 @@ public class MediaUploadOrchestrator {
                     .storedFilename(storageResult.getStorageKey())
                     .mimeType(contentType)
                     .fileSize(multipart.getSize())
+                    .checksum(storageResult.getChecksumSha256())
                     .wabaId(wabaId)
                     .mediaType(mediaType)
                     .storageProvider(storageResult.getProvider())
@@ -180,6 +192,15 @@ public class MediaUploadOrchestrator {
 
     // ── Private helpers ───────────────────────────────────────────────────────
 
+    private StorageResult saveToStorage(MultipartFile multipart, StorageMetadata metadata) {
+        try (InputStream is = multipart.getInputStream()) {
+            return storagePort.save(is, metadata);
+        } catch (IOException ex) {
+            log.error("Failed to open multipart stream for storage upload: {}", multipart.getOriginalFilename(), ex);
+            throw new MediaUploadException("Failed to read multipart stream for storage: " + ex.getMessage(), ex);
+        }
+    }
+
     private StorageResult saveToStorage(File tempFile, StorageMetadata metadata) {
         try (InputStream is = new FileInputStream(tempFile)) {
             return storagePort.save(is, metadata);
@@ -189,7 +210,7 @@ public class MediaUploadOrchestrator {
         }
     }
 
-    private String pushToWhatsApp(File file, String contentType, Long projectId, String wabaId) {
+    private String pushToWhatsApp(Resource file, String contentType, Long projectId, String wabaId) {
         AccessTokenCredentials creds = organisationClient.getPhoneNumberCredentials(projectId, wabaId);
         FacebookApiResult<WhatsappMediaUploadResponse> result =
                 facebookClient.uploadMedia(file, contentType, creds.getId(), creds.getAccessToken());
@@ -0,0 +1,203 @@
+package com.aigreentick.services.storage.service.impl.media;
+
+import com.aigreentick.services.storage.domain.Media;
+import com.aigreentick.services.storage.dto.response.MediaUploadResponse;
+import com.aigreentick.services.storage.dto.storage.StorageMetadata;
+import com.aigreentick.services.storage.dto.storage.StorageResult;
+import com.aigreentick.services.storage.enums.MediaStatus;
+import com.aigreentick.services.storage.enums.MediaType;
+import com.aigreentick.services.storage.exception.MediaUploadException;
+import com.aigreentick.services.storage.exception.MediaValidationException;
+import com.aigreentick.services.storage.exception.StorageLimitExceededException;
+import com.aigreentick.services.storage.service.impl.quota.OptimisticQuotaService;
+import com.aigreentick.services.storage.service.impl.quota.QuotaDeltaOutbox;
+import com.aigreentick.services.storage.service.port.AsyncStoragePort;
+import com.aigreentick.services.storage.validator.MediaValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+/**
+ * Non-blocking upload pipeline for the reactive upload endpoint.
+ *
+ * The controller returns the resulting Mono, so Spring MVC hands the request
+ * over to async processing and the Tomcat thread is released. Storage goes
+ * through {@link AsyncStoragePort}; quota and DB work run on boundedElastic.
+ *
+ * Flow: validate (caller thread) → reserve quota → stream to storage → [dedup by digest] → persist.
+ * On any failure after the reservation, or a dedup hit, the quota is released again.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveMediaUploadService {
+
+    private final AsyncStoragePort storagePort;
+    private final MediaValidator mediaValidator;
+    private final OptimisticQuotaService quotaService;
+    private final QuotaDeltaOutbox deltaOutbox;
+    private final MediaDeduplicationService deduplicationService;
+
+    public Mono<MediaUploadResponse> upload(MultipartFile multipart, String wabaId,
+                                            Long orgId, Long projectId) {
+        if (multipart == null || multipart.isEmpty()) {
+            return Mono.error(new MediaValidationException("Uploaded file is empty or null"));
+        }
+
+        long startTime = System.currentTimeMillis();
+        String contentType = multipart.getContentType();
+        MediaType mediaType;
+        try {
+            mediaValidator.validateFile(multipart);
+            mediaType = mediaValidator.detectMediaType(contentType);
+        } catch (Exception ex) {
+            return Mono.error(ex);
+        }
+
+        StorageMetadata metadata = StorageMetadata.builder()
+                .originalFilename(multipart.getOriginalFilename())
+                .contentType(contentType)
+                .fileSize(multipart.getSize())
+                .organisationId(orgId)
+                .projectId(projectId)
+                .mediaType(mediaType)
+                .fileExtension(extractExtension(multipart.getOriginalFilename()))
+                .build();
+
+        return uploadNew(multipart, metadata, wabaId, mediaType, orgId, projectId)
+                .doOnSuccess(resp -> log.info("Reactive upload complete: key={} org={} project={} duration={}ms",
+                        resp.getStoredFilename(), orgId, projectId, System.currentTimeMillis() - startTime))
+                .onErrorMap(ex -> !(ex instanceof MediaValidationException
+                                || ex instanceof StorageLimitExceededException
+                                || ex instanceof MediaUploadException),
+                        ex -> {
+                            log.error("Reactive media upload failed: file='{}' org={} project={}",
+                                    multipart.getOriginalFilename(), orgId, projectId, ex);
+                            return new MediaUploadException("Media upload failed: " + ex.getMessage(), ex);
+                        });
+    }
+
+    // ── Pipeline stages ───────────────────────────────────────────────────────
+
+    private Mono<MediaUploadResponse> uploadNew(MultipartFile multipart, StorageMetadata metadata,
+                                                String wabaId, MediaType mediaType,
+                                                Long orgId, Long projectId) {
+        // 1. Reserve quota — optimistic lock + retry, runs in its own tx
+        Mono<Void> reserve = Mono.<Void>fromRunnable(
+                        () -> quotaService.reserveQuota(orgId, projectId, multipart.getSize()))
+                .subscribeOn(Schedulers.boundedElastic());
+
+        // 2-3. Store, then share an identical object or insert the Media row;
+        //      roll quota back on failure
+        Mono<MediaUploadResponse> storeAndPersist = Mono.defer(() -> store(multipart, metadata))
+                .flatMap(sr -> deduplicationService.isEnabled()
+                        ? reuseOrPersist(sr, multipart, wabaId, mediaType, orgId, projectId)
+                        : persist(sr, multipart, wabaId, mediaType, orgId, projectId))
+                .onErrorResume(ex -> releaseQuota(orgId, projectId, multipart.getSize())
+                        .then(Mono.error(ex)));
+
+        return reserve.then(storeAndPersist);
+    }
+
+    private Mono<StorageResult> store(MultipartFile multipart, StorageMetadata metadata) {
+        // Native async save — the provider completes the future, no scheduler thread waits on it
+        return Mono.using(
+                () -> openStream(multipart),
+                is -> Mono.fromFuture(() -> storagePort.saveAsync(is, metadata)),
+                this::closeQuietly);
+    }
+
+    private InputStream openStream(MultipartFile multipart) {
+        try {
+            return multipart.getInputStream();
+        } catch (IOException ex) {
+            throw new MediaUploadException("Failed to read multipart stream for storage: " + ex.getMessage(), ex);
+        }
+    }
+
+    private void closeQuietly(InputStream is) {
+        try {
+            is.close();
+        } catch (IOException ex) {
+            log.warn("Failed to close multipart stream: {}", ex.getMessage());
+        }
+    }
+
+    /** Dedup keyed by the digest of the write; a hit drops the copy and its quota. */
+    private Mono<MediaUploadResponse> reuseOrPersist(StorageResult storageResult, MultipartFile multipart,
+                                                     String wabaId, MediaType mediaType,
+                                                     Long orgId, Long projectId) {
+        return Mono.fromCallable(() -> deduplicationService.reuseExisting(
+                        storageResult, multipart, wabaId, mediaType, orgId, projectId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(reused -> reused.isPresent()
+                        ? releaseQuota(orgId, projectId, multipart.getSize())
+                                .thenReturn(deduplicationService.toReusedResponse(reused.get()))
+                        : persist(storageResult, multipart, wabaId, mediaType, orgId, projectId));
+    }
+
+    private Mono<MediaUploadResponse> persist(StorageResult storageResult, MultipartFile multipart,
+                                              String wabaId, MediaType mediaType,
+                                              Long orgId, Long projectId) {
+        return Mono.fromCallable(() -> {
+                    Instant now = Instant.now();
+                    Media media = Media.builder()
+                            .originalFilename(multipart.getOriginalFilename())
+                            .storedFilename(storageResult.getStorageKey())
+                            .mimeType(multipart.getContentType())
+                            .fileSize(multipart.getSize())
+                            .checksum(storageResult.getChecksumSha256())
+                            .wabaId(wabaId)
+                            .mediaType(mediaType)
+                            .storageProvider(storageResult.getProvider())
+                            .storageKey(storageResult.getStorageKey())
+                            .storageBucket(storageResult.getBucket())
+                            .storageRegion(storageResult.getRegion())
+                            .mediaUrl(storageResult.getPublicUrl())
+                            .organisationId(orgId)
+                            .projectId(projectId)
+                            .status(MediaStatus.ACTIVE)
+                            .createdAt(now)
+                            .build();
+
+                    deduplicationService.saveNew(media);
+
+                    return MediaUploadResponse.builder()
+                            .url(storageResult.getPublicUrl())
+                            .originalFilename(multipart.getOriginalFilename())
+                            .storedFilename(storageResult.getStorageKey())
+                            .mediaType(mediaType)
+                            .contentType(multipart.getContentType())
+                            .fileSizeBytes(multipart.getSize())
+                            .uploadedAt(now)
+                            .build();
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Void> releaseQuota(Long orgId, Long projectId, long size) {
+        return Mono.<Void>fromRunnable(() -> {
+                    try {
+                        quotaService.releaseQuota(orgId, projectId, size);
+                        log.info("Quota released after reactive upload: org={} project={} size={}",
+                                orgId, projectId, size);
+                    } catch (Exception rollbackEx) {
+                        log.error("Failed to rollback quota: org={} project={}", orgId, projectId, rollbackEx);
+                        deltaOutbox.releaseFailed(orgId, projectId, size);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private String extractExtension(String filename) {
+        if (filename == null || !filename.contains(".")) return "";
+        return filename.substring(filename.lastIndexOf("."));
+    }
+}
@@ -2,25 +2,39 @@ package com.aigreentick.services.storage.service.impl.quota;
 
 import com.aigreentick.services.storage.domain.OrgStorage;
 import com.aigreentick.services.storage.domain.ProjectStorage;
+import com.aigreentick.services.storage.enums.QuotaReservationResult;
 import com.aigreentick.services.storage.exception.MediaValidationException;
 import com.aigreentick.services.storage.exception.StorageLimitExceededException;
 import com.aigreentick.services.storage.repository.OrgStorageRepository;
 import com.aigreentick.services.storage.repository.ProjectStorageRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.orm.ObjectOptimisticLockingFailureException;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * Optimistic-locking quota service for high-concurrency uploads.
  *
- * Uses @Version on entities + @Retryable to handle conflicts.
+ * Uses @Version on entities + a RetryTemplate to handle conflicts.
  * Each retry runs in a FRESH transaction (REQUIRES_NEW) so the
- * stale entity is re-read from DB with the latest version.
+ * stale entity is re-read from DB with the latest version. Retries happen
+ * inside the {@link QuotaMetrics} timing, so a call is timed once with its
+ * backoff included.
+ *
+ * When the in-memory {@link QuotaLedger} is enabled every method delegates
+ * to it instead, without opening a transaction at all. With quota leasing
+ * enabled, reservations are served from this node's {@link QuotaLeaseManager}
+ * lease first and only fall back to the database paths below. With
+ * coalescing enabled, concurrent reservations for the same project are
+ * group-committed by {@link QuotaReservationCoalescer}. Every database path
+ * invalidates the project's {@link QuotaViewCache} entries when it returns.
+ * Every call is timed by {@link QuotaMetrics} under the path that served it;
+ * optimistic-lock retries are counted by {@link QuotaRetryListener}.
  */
 @Slf4j
 @Service
@@ -29,14 +43,58 @@ public class OptimisticQuotaService {
 
         private final ProjectStorageRepository projectStorageRepo;
         private final OrgStorageRepository orgStorageRepo;
+        private final QuotaLedger ledger;
+        private final QuotaLeaseManager leaseManager;
+        private final QuotaReservationCoalescer coalescer;
+        private final QuotaViewCache viewCache;
+        private final QuotaMetrics metrics;
+        private final QuotaRetryListener retryListener;
+        private final PlatformTransactionManager transactionManager;
+
+        private RetryTemplate retryTemplate;
+
+        @PostConstruct
+        void init() {
+                // Exponential backoff with jitter: 50ms, 100ms, 200ms, ... over 5 attempts
+                retryTemplate = RetryTemplate.builder()
+                                .maxAttempts(5)
+                                .exponentialBackoff(50, 2, 30_000, true)
+                                .retryOn(ObjectOptimisticLockingFailureException.class)
+                                .withListener(retryListener)
+                                .build();
+        }
 
         /**
          * Reserve quota using optimistic locking.
-         * On version conflict, Spring Retry retries with exponential backoff + jitter.
+         * On version conflict, the transaction is retried with exponential backoff + jitter.
          */
-        @Retryable(retryFor = ObjectOptimisticLockingFailureException.class, maxAttempts = 5, backoff = @Backoff(delay = 50, multiplier = 2, random = true))
-        @Transactional(propagation = Propagation.REQUIRES_NEW)
         public void reserveQuota(Long orgId, Long projectId, long fileSize) {
+                metrics.record(QuotaMetrics.RESERVE, QuotaMetrics.OPTIMISTIC, orgId, projectId, op -> {
+                        if (ledger.isEnabled()) {
+                                op.path(QuotaMetrics.LEDGER);
+                                ledger.reserve(orgId, projectId, fileSize);
+                                return;
+                        }
+                        try {
+                                if (leaseManager.isEnabled() && leaseManager.tryReserve(orgId, projectId, fileSize)) {
+                                        op.path(QuotaMetrics.LEASE);
+                                        return;
+                                }
+                                if (coalescer.isEnabled()) {
+                                        // Batched conditional UPDATE instead of one versioned transaction per upload
+                                        op.path(QuotaMetrics.COALESCED);
+                                        throwIfRejected(coalescer.reserve(orgId, projectId, fileSize), orgId, projectId, fileSize);
+                                        return;
+                                }
+                                inNewTransactionRetrying("reserveQuota", orgId, projectId,
+                                                () -> reserveVersioned(orgId, projectId, fileSize));
+                        } finally {
+                                viewCache.invalidate(orgId, projectId);
+                        }
+                });
+        }
+
+        private void reserveVersioned(Long orgId, Long projectId, long fileSize) {
                 // 1. Read project row (plain SELECT — no lock)
                 ProjectStorage project = projectStorageRepo.findByOrgAndProject(orgId, projectId)
                                 .orElseThrow(() -> new MediaValidationException(
@@ -64,7 +122,7 @@ public class OptimisticQuotaService {
 
                 // 3. Increment — on flush, @Version triggers optimistic lock check.
                 // If another thread committed first, ObjectOptimisticLockingFailureException
-                // is thrown and @Retryable re-reads + retries.
+                // is thrown and the retry template re-reads + retries.
                 project.incrementUsage(fileSize);
                 org.incrementUsage(fileSize);
 
@@ -78,11 +136,33 @@ public class OptimisticQuotaService {
         }
 
         /**
-         * Release quota — also uses optimistic locking with retry.
+         * Release quota — also uses optimistic locking with retry. With
+         * coalescing enabled, reservations go through the combined UPDATE, so
+         * releases use the matching relative UPDATEs rather than a versioned
+         * read-modify-write on the same rows.
          */
-        @Retryable(retryFor = ObjectOptimisticLockingFailureException.class, maxAttempts = 5, backoff = @Backoff(delay = 50, multiplier = 2, random = true))
-        @Transactional(propagation = Propagation.REQUIRES_NEW)
         public void releaseQuota(Long orgId, Long projectId, long fileSize) {
+                metrics.record(QuotaMetrics.RELEASE, QuotaMetrics.OPTIMISTIC, orgId, projectId, op -> {
+                        if (ledger.isEnabled()) {
+                                op.path(QuotaMetrics.LEDGER);
+                                ledger.release(orgId, projectId, fileSize);
+                                return;
+                        }
+                        try {
+                                if (coalescer.isEnabled()) {
+                                        op.path(QuotaMetrics.ATOMIC);
+                                        inNewTransaction(() -> releaseRelative(orgId, projectId, fileSize));
+                                        return;
+                                }
+                                inNewTransactionRetrying("releaseQuota", orgId, projectId,
+                                                () -> releaseVersioned(orgId, projectId, fileSize));
+                        } finally {
+                                viewCache.invalidate(orgId, projectId);
+                        }
+                });
+        }
+
+        private void releaseVersioned(Long orgId, Long projectId, long fileSize) {
                 projectStorageRepo.findByOrgAndProject(orgId, projectId)
                                 .ifPresent(p -> {
                                         p.decrementUsage(fileSize);
@@ -98,61 +178,110 @@ public class OptimisticQuotaService {
                 log.debug("Quota released (optimistic): org={} project={} fileSize={}", orgId, projectId, fileSize);
         }
 
+        private void releaseRelative(Long orgId, Long projectId, long size) {
+                projectStorageRepo.decrementUsage(orgId, projectId, size);
+                orgStorageRepo.decrementUsage(orgId, size);
+        }
+
         // ── Atomic Batch Quota (no optimistic lock needed) ──────────────────────
 
         /**
-         * Reserve quota atomically using single UPDATE statements.
-         * No @Version / @Retryable needed — the WHERE clause ensures atomicity.
+         * Reserve quota atomically: project and org are checked and incremented
+         * by ONE multi-table UPDATE. No @Version / retry needed — the WHERE
+         * clause ensures atomicity, and there is no compensating UPDATE.
          *
          * @throws StorageLimitExceededException if either project or org quota is
          *                                       exceeded
          * @throws MediaValidationException      if quota rows don't exist
          */
-        @Transactional(propagation = Propagation.REQUIRES_NEW)
         public void reserveQuotaAtomic(Long orgId, Long projectId, long totalSize) {
-                // 1. Atomic project-level reservation
-                int projUpdated = projectStorageRepo.incrementUsage(orgId, projectId, totalSize);
-                if (projUpdated == 0) {
-                        // Could be: row doesn't exist OR quota exceeded
-                        boolean exists = projectStorageRepo.findByOrgAndProject(orgId, projectId).isPresent();
-                        if (!exists) {
-                                throw new MediaValidationException(
-                                                String.format("Storage quota not provisioned for org=%d project=%d. " +
-                                                                "Ask your admin to provision quota first.", orgId,
-                                                                projectId));
+                metrics.record(QuotaMetrics.RESERVE, QuotaMetrics.ATOMIC, orgId, projectId, op -> {
+                        if (ledger.isEnabled()) {
+                                op.path(QuotaMetrics.LEDGER);
+                                ledger.reserve(orgId, projectId, totalSize);
+                                return;
+                        }
+                        if (leaseManager.isEnabled() && leaseManager.tryReserve(orgId, projectId, totalSize)) {
+                                op.path(QuotaMetrics.LEASE);
+                                viewCache.invalidate(orgId, projectId);
+                                return;
                         }
-                        throw new StorageLimitExceededException(
-                                        String.format("Project storage quota exceeded for org=%d project=%d. " +
-                                                        "Required: %d bytes", orgId, projectId, totalSize));
-                }
 
-                // 2. Atomic org-level reservation
-                int orgUpdated = orgStorageRepo.incrementUsage(orgId, totalSize);
-                if (orgUpdated == 0) {
-                        // Rollback the project increment we just did
-                        projectStorageRepo.decrementUsage(orgId, projectId, totalSize);
+                        if (coalescer.isEnabled()) op.path(QuotaMetrics.COALESCED);
+                        throwIfRejected(tryReserveQuotaAtomic(orgId, projectId, totalSize), orgId, projectId, totalSize);
+                });
+        }
 
-                        boolean exists = orgStorageRepo.findByOrgId(orgId).isPresent();
-                        if (!exists) {
-                                throw new MediaValidationException(
-                                                String.format("Organisation storage quota not provisioned for org=%d",
-                                                                orgId));
-                        }
-                        throw new StorageLimitExceededException(
+        /**
+         * Single-statement reservation straight against the quota rows (group-
+         * committed with concurrent reservations when coalescing is enabled),
+         * reporting which limit failed instead of throwing.
+         */
+        public QuotaReservationResult tryReserveQuotaAtomic(Long orgId, Long projectId, long totalSize) {
+                try {
+                        return coalescer.reserve(orgId, projectId, totalSize);
+                } finally {
+                        viewCache.invalidate(orgId, projectId);
+                }
+        }
+
+        private void throwIfRejected(QuotaReservationResult result, Long orgId, Long projectId, long totalSize) {
+                switch (result) {
+                        case RESERVED -> log.debug("Quota reserved (atomic): org={} project={} totalSize={}",
+                                        orgId, projectId, totalSize);
+                        case PROJECT_NOT_PROVISIONED -> throw new MediaValidationException(
+                                        String.format("Storage quota not provisioned for org=%d project=%d. " +
+                                                        "Ask your admin to provision quota first.", orgId, projectId));
+                        case ORG_NOT_PROVISIONED -> throw new MediaValidationException(
+                                        String.format("Organisation storage quota not provisioned for org=%d", orgId));
+                        case PROJECT_LIMIT_EXCEEDED -> throw new StorageLimitExceededException(
+                                        String.format("Project storage quota exceeded for org=%d project=%d. " +
+                                                        "Required: %d bytes", orgId, projectId, totalSize));
+                        case ORG_LIMIT_EXCEEDED -> throw new StorageLimitExceededException(
                                         String.format("Organisation storage quota exceeded for org=%d. " +
                                                         "Required: %d bytes", orgId, totalSize));
                 }
-
-                log.debug("Quota reserved (atomic): org={} project={} totalSize={}", orgId, projectId, totalSize);
         }
 
         /**
          * Release quota atomically.
          */
-        @Transactional(propagation = Propagation.REQUIRES_NEW)
         public void releaseQuotaAtomic(Long orgId, Long projectId, long totalSize) {
-                projectStorageRepo.decrementUsage(orgId, projectId, totalSize);
-                orgStorageRepo.decrementUsage(orgId, totalSize);
+                metrics.record(QuotaMetrics.RELEASE, QuotaMetrics.ATOMIC, orgId, projectId, op -> {
+                        if (ledger.isEnabled()) {
+                                op.path(QuotaMetrics.LEDGER);
+                                ledger.release(orgId, projectId, totalSize);
+                                return;
+                        }
+                        try {
+                                inNewTransaction(() -> releaseRelative(orgId, projectId, totalSize));
+                        } finally {
+                                viewCache.invalidate(orgId, projectId);
+                        }
+                });
                 log.debug("Quota released (atomic): org={} project={} totalSize={}", orgId, projectId, totalSize);
         }
+
+        /**
+         * Programmatic REQUIRES_NEW so the ledger path above never opens a
+         * transaction.
+         */
+        private void inNewTransaction(Runnable work) {
+                requiresNew().executeWithoutResult(status -> work.run());
+        }
+
+        /**
+         * One fresh transaction per attempt. Version conflicts surface at
+         * commit and are retried; {@link QuotaRetryListener} counts them.
+         */
+        private void inNewTransactionRetrying(String method, Long orgId, Long projectId, Runnable work) {
+                retryTemplate.execute(new QuotaRetryListener.Attempt(method, orgId, projectId,
+                                () -> inNewTransaction(work)));
+        }
+
+        private TransactionTemplate requiresNew() {
+                TransactionTemplate template = new TransactionTemplate(transactionManager);
+                template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                return template;
+        }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import com.aigreentick.services.storage.config.properties.QuotaDriftProperties;
+import com.aigreentick.services.storage.domain.QuotaDeltaEvent;
+import com.aigreentick.services.storage.enums.QuotaDeltaType;
+import com.aigreentick.services.storage.repository.QuotaDeltaEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+
+/**
+ * Write side of the quota drift outbox.
+ *
+ * Media changes are recorded in the caller's transaction, so a row exists
+ * exactly when the change committed. Failed quota rollbacks are recorded in
+ * a transaction of their own, since the caller is already on an error path.
+ * Does nothing unless drift detection is enabled.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QuotaDeltaOutbox {
+
+    private final QuotaDriftProperties properties;
+    private final QuotaDeltaEventRepository eventRepo;
+    private final PlatformTransactionManager transactionManager;
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public void mediaInserted(Long orgId, Long projectId, long bytes) {
+        record(QuotaDeltaType.MEDIA_INSERTED, orgId, projectId, bytes, TransactionDefinition.PROPAGATION_REQUIRED);
+    }
+
+    public void mediaDeleted(Long orgId, Long projectId, long bytes) {
+        record(QuotaDeltaType.MEDIA_DELETED, orgId, projectId, -bytes, TransactionDefinition.PROPAGATION_REQUIRED);
+    }
+
+    /** Bulk media delete that did not release quota per row. */
+    public void projectPurged(Long orgId, Long projectId) {
+        record(QuotaDeltaType.PROJECT_PURGED, orgId, projectId, 0, TransactionDefinition.PROPAGATION_REQUIRED);
+    }
+
+    /**
+     * Reserved bytes that could not be released. The drift worker releases
+     * them; if even this write fails the nightly reconciliation still will.
+     */
+    public void releaseFailed(Long orgId, Long projectId, long bytes) {
+        if (!isEnabled() || bytes <= 0) return;
+        try {
+            record(QuotaDeltaType.RELEASE_FAILED, orgId, projectId, -bytes,
+                    TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        } catch (Exception ex) {
+            log.error("Failed to record unreleased quota org={} project={} bytes={}",
+                    orgId, projectId, bytes, ex);
+        }
+    }
+
+    private void record(QuotaDeltaType type, Long orgId, Long projectId, long deltaBytes, int propagation) {
+        if (!isEnabled()) return;
+
+        Instant now = Instant.now();
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(propagation);
+        template.executeWithoutResult(status -> eventRepo.save(QuotaDeltaEvent.builder()
+                .orgId(orgId)
+                .projectId(projectId)
+                .deltaType(type)
+                .deltaBytes(deltaBytes)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .build()));
+    }
+}
@@ -0,0 +1,114 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import com.aigreentick.services.storage.config.properties.QuotaMetricsProperties;
+import com.aigreentick.services.storage.domain.ProjectStorageId;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Approximate top-K of the projects with the most quota operations, using
+ * the Space-Saving algorithm: a fixed number of counters, and a project
+ * that is not tracked takes over the least active counter (inheriting its
+ * count as the possible overestimate). Memory stays bounded however many
+ * projects there are, and every truly hot project is kept.
+ *
+ * Once full, an untracked project is only considered for admission on one
+ * operation in ADMISSION_SAMPLE, and only if no other admission is running:
+ * the quota hot path never waits on the tracker. A project busy enough to
+ * matter is admitted within a few dozen operations; one-off projects almost
+ * never touch the lock. Operations before admission are not counted.
+ *
+ * Version conflicts (optimistic-lock retries) are counted per tracked
+ * project alongside, which is what tells a hot project from a contended one.
+ */
+@Component
+@RequiredArgsConstructor
+public class QuotaHotProjectTracker {
+
+    private static final int ADMISSION_SAMPLE = 16;
+
+    private final QuotaMetricsProperties properties;
+    private final Map<ProjectStorageId, Slot> slots = new ConcurrentHashMap<>();
+    private final ReentrantLock admission = new ReentrantLock();
+
+    public record HotProject(Long orgId, Long projectId, long operations, long conflicts, long overestimate) {}
+
+    /** One logical quota call, counted once however many attempts it took. */
+    public void operation(Long orgId, Long projectId) {
+        Slot slot = slot(orgId, projectId);
+        if (slot != null) slot.operations.increment();
+    }
+
+    /** One failed attempt; the call itself is counted by {@link #operation}. */
+    public void conflict(Long orgId, Long projectId) {
+        Slot slot = slot(orgId, projectId);
+        if (slot != null) slot.conflicts.increment();
+    }
+
+    /** Most active projects first. */
+    public List<HotProject> top(int limit) {
+        return slots.entrySet().stream()
+                .map(e -> new HotProject(e.getKey().getOrgId(), e.getKey().getProjectId(),
+                        e.getValue().operations.sum(), e.getValue().conflicts.sum(), e.getValue().overestimate))
+                .sorted(Comparator.comparingLong(HotProject::operations).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public void reset() {
+        slots.clear();
+    }
+
+    /** The project's slot, or null if it is not tracked and not admitted this time. */
+    private Slot slot(Long orgId, Long projectId) {
+        ProjectStorageId key = new ProjectStorageId(orgId, projectId);
+        Slot slot = slots.get(key);
+        if (slot != null) return slot;
+
+        boolean full = slots.size() >= properties.getHotProjectCapacity();
+        if (full && ThreadLocalRandom.current().nextInt(ADMISSION_SAMPLE) != 0) return null;
+        if (!admission.tryLock()) return null;
+        try {
+            return admit(key);
+        } finally {
+            admission.unlock();
+        }
+    }
+
+    /** Caller holds the admission lock. */
+    private Slot admit(ProjectStorageId key) {
+        Slot slot = slots.get(key);
+        if (slot != null) return slot;
+
+        long floor = 0;
+        if (slots.size() >= properties.getHotProjectCapacity()) {
+            Map.Entry<ProjectStorageId, Slot> coldest = slots.entrySet().stream()
+                    .min(Comparator.comparingLong(e -> e.getValue().operations.sum()))
+                    .orElseThrow();
+            slots.remove(coldest.getKey());
+            floor = coldest.getValue().operations.sum();
+        }
+        slot = new Slot(floor);
+        slots.put(key, slot);
+        return slot;
+    }
+
+    private static final class Slot {
+        final LongAdder operations = new LongAdder();
+        final LongAdder conflicts = new LongAdder();
+        final long overestimate;
+
+        Slot(long floor) {
+            this.overestimate = floor;
+            operations.add(floor);
+        }
+    }
+}
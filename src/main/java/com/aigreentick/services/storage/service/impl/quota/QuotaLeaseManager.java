@@ -0,0 +1,181 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import com.aigreentick.services.storage.config.properties.QuotaLeaseProperties;
+import com.aigreentick.services.storage.domain.ProjectStorageId;
+import com.aigreentick.services.storage.repository.QuotaLeaseRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Quota headroom leasing across replicas.
+ *
+ * Instead of one conditional UPDATE on project_storage per upload, a node
+ * claims a chunk of a project's remaining bytes (same conditional UPDATE,
+ * chunk-sized) and hands reservations out of it locally with a CAS. Row
+ * contention drops from one update per upload to one per lease.
+ *
+ * - Uploads larger than a chunk, or that don't fit once no further chunk can
+ *   be claimed, fall back to a direct reservation (see OptimisticQuotaService).
+ *   Before that fallback the node's leftover headroom is returned so it does
+ *   not strand quota near the limit.
+ * - Releases always go straight to the quota rows. quota_lease.leased_bytes
+ *   is only written on a claim, so it is not the live headroom: while a
+ *   node holds a lease row, reconciliation and drift correction leave the
+ *   project alone.
+ * - Idle leases are returned by a heartbeat thread, which also keeps this
+ *   node's lease rows alive. Everything is returned on shutdown; after a
+ *   crash the rows expire and the next reconciliation drops the headroom.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QuotaLeaseManager {
+
+    private final QuotaLeaseProperties properties;
+    private final QuotaLeaseStore store;
+    private final QuotaLeaseRepository leaseRepo;
+
+    @Value("${spring.application.name:storage-service}")
+    private String applicationName;
+
+    private final Map<ProjectStorageId, Lease> leases = new ConcurrentHashMap<>();
+    private String nodeId;
+    private ScheduledExecutorService heartbeat;
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // ── Lifecycle ────────────────────────────────────────────────────────────
+
+    @PostConstruct
+    void start() {
+        if (!isEnabled()) return;
+        nodeId = applicationName + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "quota-lease-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = properties.getHeartbeatInterval().toMillis();
+        heartbeat.scheduleWithFixedDelay(this::heartbeatQuietly, interval, interval, TimeUnit.MILLISECONDS);
+
+        log.info("Quota leasing enabled: node={} chunk={} bytes", nodeId, properties.getChunkBytes());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (heartbeat == null) return;
+        heartbeat.shutdown();
+        heartbeat.awaitTermination(10, TimeUnit.SECONDS);
+        leases.forEach(this::retire);
+        log.info("Quota leases returned on shutdown: node={}", nodeId);
+    }
+
+    // ── Reserve ──────────────────────────────────────────────────────────────
+
+    /**
+     * Serves {@code size} bytes from this node's lease for the project,
+     * claiming a new chunk when it runs dry. Returns false when the caller
+     * must reserve directly instead.
+     */
+    public boolean tryReserve(Long orgId, Long projectId, long size) {
+        if (size > properties.getChunkBytes()) return false;
+
+        ProjectStorageId key = new ProjectStorageId(orgId, projectId);
+        while (true) {
+            Lease lease = leases.computeIfAbsent(key, k -> new Lease());
+            if (lease.tryTake(size)) return true;
+
+            synchronized (lease) {
+                if (lease.retired) continue;
+                if (lease.tryTake(size)) return true;
+
+                long chunk = properties.getChunkBytes();
+                long leasedAfter = lease.available.get() + chunk;
+                if (store.claim(nodeId, orgId, projectId, chunk, leasedAfter, rowExpiry())) {
+                    lease.available.addAndGet(chunk);
+                    log.debug("Quota lease claimed: node={} org={} project={} chunk={}",
+                            nodeId, orgId, projectId, chunk);
+                    continue;
+                }
+
+                // No room for another chunk — hand back the leftover so the direct path can use it
+                giveBack(key, lease);
+                return false;
+            }
+        }
+    }
+
+    // ── Heartbeat / return ───────────────────────────────────────────────────
+
+    private void heartbeatQuietly() {
+        try {
+            long idleCutoff = System.currentTimeMillis() - properties.getIdleTimeout().toMillis();
+            leases.forEach((key, lease) -> {
+                if (lease.lastUsed < idleCutoff) retire(key, lease);
+            });
+            leaseRepo.refresh(nodeId, rowExpiry());
+        } catch (Exception ex) {
+            log.error("Quota lease heartbeat failed: node={}", nodeId, ex);
+        }
+    }
+
+    /** Removes the lease from this node and returns its unused bytes. */
+    private void retire(ProjectStorageId key, Lease lease) {
+        synchronized (lease) {
+            if (lease.retired) return;
+            lease.retired = true;
+            leases.remove(key, lease);
+            giveBack(key, lease);
+        }
+    }
+
+    /** Caller holds the lease monitor. */
+    private void giveBack(ProjectStorageId key, Lease lease) {
+        long unused = lease.available.getAndSet(0);
+        try {
+            store.giveBack(nodeId, key.getOrgId(), key.getProjectId(), unused);
+            log.debug("Quota lease returned: node={} org={} project={} unused={}",
+                    nodeId, key.getOrgId(), key.getProjectId(), unused);
+        } catch (Exception ex) {
+            // Still counted as used; reconciliation frees it once the row expires
+            log.error("Failed to return {} leased bytes org={} project={}",
+                    unused, key.getOrgId(), key.getProjectId(), ex);
+        }
+    }
+
+    private Instant rowExpiry() {
+        return Instant.now().plus(properties.getRowExpiry());
+    }
+
+    private static final class Lease {
+        final AtomicLong available = new AtomicLong();
+        volatile long lastUsed = System.currentTimeMillis();
+        boolean retired;
+
+        boolean tryTake(long size) {
+            long current;
+            do {
+                current = available.get();
+                if (current < size) return false;
+            } while (!available.compareAndSet(current, current - size));
+            lastUsed = System.currentTimeMillis();
+            return true;
+        }
+    }
+}
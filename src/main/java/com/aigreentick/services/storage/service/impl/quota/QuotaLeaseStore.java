@@ -0,0 +1,59 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import com.aigreentick.services.storage.domain.QuotaLease;
+import com.aigreentick.services.storage.domain.QuotaLeaseId;
+import com.aigreentick.services.storage.repository.OrgStorageRepository;
+import com.aigreentick.services.storage.repository.ProjectStorageRepository;
+import com.aigreentick.services.storage.repository.QuotaLeaseRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Database side of quota leasing. Claims and returns use the same
+ * conditional UPDATEs as reserveQuotaAtomic / releaseQuotaAtomic, so leased
+ * bytes are ordinary used_bytes as far as every other node is concerned.
+ */
+@Component
+@RequiredArgsConstructor
+public class QuotaLeaseStore {
+
+    private final ProjectStorageRepository projectStorageRepo;
+    private final OrgStorageRepository orgStorageRepo;
+    private final QuotaLeaseRepository leaseRepo;
+
+    /**
+     * Claims {@code chunk} bytes at project and org level and records the
+     * node's resulting headroom. Returns false if either limit has no room
+     * for a whole chunk (or the quota rows don't exist).
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean claim(String nodeId, Long orgId, Long projectId, long chunk,
+                         long leasedBytes, Instant expiresAt) {
+        if (projectStorageRepo.incrementProjectAndOrgUsage(orgId, projectId, chunk) == 0) {
+            return false;
+        }
+        leaseRepo.save(QuotaLease.builder()
+                .nodeId(nodeId)
+                .orgId(orgId)
+                .projectId(projectId)
+                .leasedBytes(leasedBytes)
+                .expiresAt(expiresAt)
+                .updatedAt(Instant.now())
+                .build());
+        return true;
+    }
+
+    /** Releases unused headroom and drops the node's lease row. */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void giveBack(String nodeId, Long orgId, Long projectId, long unusedBytes) {
+        if (unusedBytes > 0) {
+            projectStorageRepo.decrementUsage(orgId, projectId, unusedBytes);
+            orgStorageRepo.decrementUsage(orgId, unusedBytes);
+        }
+        leaseRepo.deleteById(new QuotaLeaseId(nodeId, orgId, projectId));
+    }
+}
@@ -0,0 +1,414 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import com.aigreentick.services.storage.config.properties.QuotaLedgerProperties;
+import com.aigreentick.services.storage.domain.OrgStorage;
+import com.aigreentick.services.storage.domain.ProjectStorage;
+import com.aigreentick.services.storage.domain.ProjectStorageId;
+import com.aigreentick.services.storage.exception.MediaValidationException;
+import com.aigreentick.services.storage.exception.StorageLimitExceededException;
+import com.aigreentick.services.storage.repository.OrgStorageRepository;
+import com.aigreentick.services.storage.repository.ProjectStorageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory quota ledger for single-node deployments.
+ *
+ * Holds one counter per org and per (org, project), loaded from
+ * org_storage / project_storage at startup (or on first use). A reservation
+ * is a compare-and-set against max_bytes plus one journal append; the
+ * accumulated deltas are written back by a flush thread.
+ *
+ * Crash safety:
+ * - A reservation is acknowledged only after its journal record is fsynced
+ *   (group-committed), so no admitted byte is lost.
+ * - Each flush rotates the journal and commits the deltas together with a
+ *   checkpoint row naming the last segment they cover.
+ * - On startup every segment above the checkpoint is replayed into the
+ *   database before the counters are loaded.
+ * Releases are journaled without fsync: losing one only overcounts usage,
+ * which reconciliation corrects.
+ *
+ * While enabled, every quota change must go through this ledger — the quota
+ * services and reconciliation delegate here.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QuotaLedger {
+
+    private final QuotaLedgerProperties properties;
+    private final QuotaLedgerStore store;
+    private final OrgStorageRepository orgStorageRepo;
+    private final ProjectStorageRepository projectStorageRepo;
+
+    private final Map<Long, Counter> orgs = new ConcurrentHashMap<>();
+    private final Map<ProjectStorageId, Counter> projects = new ConcurrentHashMap<>();
+
+    /** Held shared by every counter change + append, exclusively by journal rotation. */
+    private final ReentrantReadWriteLock rotationLock = new ReentrantReadWriteLock();
+    /** Serialises flush and reload so a delta in transit is never lost from both sides. */
+    private final Object flushLock = new Object();
+
+    private QuotaLedgerJournal journal;
+    private ScheduledExecutorService flusher;
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // ── Lifecycle ────────────────────────────────────────────────────────────
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!isEnabled()) return;
+
+        Path dir = Path.of(properties.getJournalDir());
+        long nextSegment = recover(dir) + 1;
+        journal = new QuotaLedgerJournal(dir, nextSegment, properties.isFsync());
+
+        orgStorageRepo.findAll().forEach(o -> orgs.put(o.getOrgId(), new Counter(o.getUsedBytes(), o.getMaxBytes())));
+        projectStorageRepo.findAll().forEach(p -> projects.put(
+                new ProjectStorageId(p.getOrgId(), p.getProjectId()), new Counter(p.getUsedBytes(), p.getMaxBytes())));
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "quota-ledger-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = properties.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+
+        log.info("Quota ledger started: orgs={} projects={} journal={} segment={}",
+                orgs.size(), projects.size(), dir.toAbsolutePath(), nextSegment);
+    }
+
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        if (flusher == null) return;
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flushQuietly();
+        journal.close();
+    }
+
+    /**
+     * Replays every journal segment newer than the checkpoint into the
+     * database. Returns the last segment number now covered by the checkpoint.
+     */
+    private long recover(Path dir) throws IOException {
+        long checkpoint = store.flushedSegment(properties.getLedgerId());
+        long last = checkpoint;
+        int replayed = 0;
+        Map<ProjectStorageId, Long> projectDeltas = new HashMap<>();
+        Map<Long, Long> orgDeltas = new HashMap<>();
+
+        for (Path segment : QuotaLedgerJournal.listSegments(dir)) {
+            long number = QuotaLedgerJournal.segmentNumber(segment);
+            last = Math.max(last, number);
+            if (number <= checkpoint) continue;
+
+            List<QuotaLedgerJournal.Entry> entries = QuotaLedgerJournal.read(segment);
+            for (QuotaLedgerJournal.Entry e : entries) {
+                projectDeltas.merge(new ProjectStorageId(e.orgId(), e.projectId()), e.projectDelta(), Long::sum);
+                orgDeltas.merge(e.orgId(), e.orgDelta(), Long::sum);
+            }
+            replayed += entries.size();
+        }
+
+        if (last > checkpoint) {
+            store.apply(properties.getLedgerId(), last, withoutZeros(projectDeltas), withoutZeros(orgDeltas));
+            log.warn("Quota ledger replayed {} journal records up to segment {} after an unclean shutdown",
+                    replayed, last);
+        }
+        QuotaLedgerJournal.deleteSegments(dir, last);
+        return last;
+    }
+
+    // ── Reserve / release ────────────────────────────────────────────────────
+
+    /**
+     * Reserves {@code size} bytes against both the project and the org limit.
+     *
+     * @throws StorageLimitExceededException if either limit would be exceeded
+     * @throws MediaValidationException      if quota rows don't exist
+     */
+    public void reserve(Long orgId, Long projectId, long size) {
+        Counter project = projectCounter(orgId, projectId);
+        Counter org = orgCounter(orgId);
+
+        long seq;
+        rotationLock.readLock().lock();
+        try {
+            if (!project.tryReserve(size)) {
+                throw new StorageLimitExceededException(
+                        String.format("Project storage quota exceeded. Available: %d bytes, required: %d bytes",
+                                project.remaining(), size));
+            }
+            if (!org.tryReserve(size)) {
+                project.used.addAndGet(-size);
+                throw new StorageLimitExceededException(
+                        String.format("Organisation storage quota exceeded. Available: %d bytes, required: %d bytes",
+                                org.remaining(), size));
+            }
+            try {
+                seq = journal.append(orgId, projectId, size, size);
+            } catch (IOException ex) {
+                project.used.addAndGet(-size);
+                org.used.addAndGet(-size);
+                throw new UncheckedIOException("Quota journal write failed", ex);
+            }
+            project.pending.addAndGet(size);
+            org.pending.addAndGet(size);
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+
+        try {
+            journal.sync(seq);
+        } catch (IOException ex) {
+            release(orgId, projectId, size);
+            throw new UncheckedIOException("Quota journal sync failed", ex);
+        }
+
+        log.debug("Quota reserved (ledger): org={} project={} size={} | projUsed={}/{}",
+                orgId, projectId, size, project.used.get(), project.maxBytes);
+    }
+
+    /** Releases {@code size} bytes at both levels, never below zero. Missing rows are ignored. */
+    public void release(Long orgId, Long projectId, long size) {
+        Counter project = findProjectCounter(orgId, projectId);
+        Counter org = findOrgCounter(orgId);
+
+        rotationLock.readLock().lock();
+        try {
+            long projectDelta = project != null ? project.release(size) : 0;
+            long orgDelta = org != null ? org.release(size) : 0;
+            if (projectDelta == 0 && orgDelta == 0) return;
+
+            if (project != null) project.pending.addAndGet(projectDelta);
+            if (org != null) org.pending.addAndGet(orgDelta);
+            try {
+                journal.append(orgId, projectId, projectDelta, orgDelta);
+            } catch (IOException ex) {
+                // Still flushed from memory; only a crash before that flush would overcount
+                log.warn("Quota journal write failed for release org={} project={} size={}: {}",
+                        orgId, projectId, size, ex.getMessage());
+            }
+        } finally {
+            rotationLock.readLock().unlock();
+        }
+
+        log.debug("Quota released (ledger): org={} project={} size={}", orgId, projectId, size);
+    }
+
+    // ── Limits / resync ──────────────────────────────────────────────────────
+
+    public void updateOrgLimit(Long orgId, long maxBytes) {
+        Counter counter = orgs.get(orgId);
+        if (counter != null) counter.maxBytes = maxBytes;
+    }
+
+    public void updateProjectLimit(Long orgId, Long projectId, long maxBytes) {
+        Counter counter = projects.get(new ProjectStorageId(orgId, projectId));
+        if (counter != null) counter.maxBytes = maxBytes;
+    }
+
+    /**
+     * Flushes every pending delta, then runs {@code work} with reservations
+     * and releases held off until it returns. Reconciliation rewrites
+     * used_bytes inside this, so no delta can be both in the rows it reads
+     * and still pending in memory (and applied again by the next flush).
+     * Call {@link #reload()} once the rows are rewritten.
+     */
+    public <T> T withFlushedDeltas(Supplier<T> work) {
+        synchronized (flushLock) {
+            rotationLock.writeLock().lock();
+            try {
+                flush();
+                return work.get();
+            } finally {
+                rotationLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Re-reads every quota row after someone else rewrote used_bytes
+     * (reconciliation). Deltas not yet flushed are kept on top of the new
+     * values; they must not be part of the rewritten rows — see
+     * {@link #withFlushedDeltas}. Blocks reservations while the rows are read.
+     */
+    public void reload() {
+        synchronized (flushLock) {
+            rotationLock.writeLock().lock();
+            try {
+                for (OrgStorage o : orgStorageRepo.findAll()) {
+                    Counter c = orgs.get(o.getOrgId());
+                    if (c != null) c.resync(o.getUsedBytes(), o.getMaxBytes());
+                }
+                for (ProjectStorage p : projectStorageRepo.findAll()) {
+                    Counter c = projects.get(new ProjectStorageId(p.getOrgId(), p.getProjectId()));
+                    if (c != null) c.resync(p.getUsedBytes(), p.getMaxBytes());
+                }
+            } finally {
+                rotationLock.writeLock().unlock();
+            }
+        }
+        log.info("Quota ledger reloaded from database");
+    }
+
+    // ── Write-behind ─────────────────────────────────────────────────────────
+
+    /**
+     * Rotates the journal and writes every pending delta to the database
+     * together with the checkpoint. On failure the deltas go back to pending
+     * and the next flush covers them.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<ProjectStorageId, Long> projectDeltas = new HashMap<>();
+            Map<Long, Long> orgDeltas = new HashMap<>();
+            long segment;
+
+            rotationLock.writeLock().lock();
+            try {
+                projects.forEach((id, c) -> {
+                    long delta = c.pending.getAndSet(0);
+                    if (delta != 0) projectDeltas.put(id, delta);
+                });
+                orgs.forEach((id, c) -> {
+                    long delta = c.pending.getAndSet(0);
+                    if (delta != 0) orgDeltas.put(id, delta);
+                });
+                if (projectDeltas.isEmpty() && orgDeltas.isEmpty() && journal.isSegmentEmpty()) {
+                    return;
+                }
+                segment = journal.rotate();
+            } catch (IOException ex) {
+                restore(projectDeltas, orgDeltas);
+                throw new UncheckedIOException("Quota journal rotation failed", ex);
+            } finally {
+                rotationLock.writeLock().unlock();
+            }
+
+            try {
+                store.apply(properties.getLedgerId(), segment, projectDeltas, orgDeltas);
+            } catch (RuntimeException ex) {
+                restore(projectDeltas, orgDeltas);
+                throw ex;
+            }
+            journal.deleteUpTo(segment);
+
+            log.debug("Quota ledger flushed segment {}: projects={} orgs={}",
+                    segment, projectDeltas.size(), orgDeltas.size());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception ex) {
+            log.error("Quota ledger flush failed — deltas kept for the next attempt", ex);
+        }
+    }
+
+    private void restore(Map<ProjectStorageId, Long> projectDeltas, Map<Long, Long> orgDeltas) {
+        projectDeltas.forEach((id, delta) -> projects.get(id).pending.addAndGet(delta));
+        orgDeltas.forEach((id, delta) -> orgs.get(id).pending.addAndGet(delta));
+    }
+
+    // ── Counters ─────────────────────────────────────────────────────────────
+
+    private Counter projectCounter(Long orgId, Long projectId) {
+        return projects.computeIfAbsent(new ProjectStorageId(orgId, projectId), id ->
+                projectStorageRepo.findByOrgAndProject(orgId, projectId)
+                        .map(p -> new Counter(p.getUsedBytes(), p.getMaxBytes()))
+                        .orElseThrow(() -> new MediaValidationException(
+                                String.format("Storage quota not provisioned for org=%d project=%d. " +
+                                              "Ask your admin to provision quota first.", orgId, projectId))));
+    }
+
+    private Counter orgCounter(Long orgId) {
+        return orgs.computeIfAbsent(orgId, id ->
+                orgStorageRepo.findByOrgId(orgId)
+                        .map(o -> new Counter(o.getUsedBytes(), o.getMaxBytes()))
+                        .orElseThrow(() -> new MediaValidationException(
+                                String.format("Organisation storage quota not provisioned for org=%d", orgId))));
+    }
+
+    private Counter findProjectCounter(Long orgId, Long projectId) {
+        return projects.computeIfAbsent(new ProjectStorageId(orgId, projectId), id ->
+                projectStorageRepo.findByOrgAndProject(orgId, projectId)
+                        .map(p -> new Counter(p.getUsedBytes(), p.getMaxBytes()))
+                        .orElse(null));
+    }
+
+    private Counter findOrgCounter(Long orgId) {
+        return orgs.computeIfAbsent(orgId, id ->
+                orgStorageRepo.findByOrgId(orgId)
+                        .map(o -> new Counter(o.getUsedBytes(), o.getMaxBytes()))
+                        .orElse(null));
+    }
+
+    private static <K> Map<K, Long> withoutZeros(Map<K, Long> deltas) {
+        deltas.values().removeIf(d -> d == 0);
+        return deltas;
+    }
+
+    /**
+     * used is the authoritative in-memory usage; pending is the part of it
+     * not yet written to the database.
+     */
+    private static final class Counter {
+        final AtomicLong used;
+        final AtomicLong pending = new AtomicLong();
+        volatile long maxBytes;
+
+        Counter(long used, long maxBytes) {
+            this.used = new AtomicLong(used);
+            this.maxBytes = maxBytes;
+        }
+
+        boolean tryReserve(long size) {
+            long current;
+            do {
+                current = used.get();
+                if (current + size > maxBytes) return false;
+            } while (!used.compareAndSet(current, current + size));
+            return true;
+        }
+
+        /** Returns the (non-positive) delta actually applied, mirroring the floor-at-zero UPDATE. */
+        long release(long size) {
+            long previous = used.getAndUpdate(u -> Math.max(0, u - size));
+            return Math.max(0, previous - size) - previous;
+        }
+
+        long remaining() {
+            return maxBytes - used.get();
+        }
+
+        void resync(long databaseUsed, long databaseMax) {
+            used.set(databaseUsed + pending.get());
+            maxBytes = databaseMax;
+        }
+    }
+}
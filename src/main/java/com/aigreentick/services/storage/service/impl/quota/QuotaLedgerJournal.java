@@ -0,0 +1,195 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of quota ledger deltas, split into numbered segments.
+ *
+ * Each record is (orgId, projectId, projectDelta, orgDelta) plus a CRC32, in
+ * a fixed 36-byte layout. A torn record at the tail of a segment fails its
+ * CRC and ends the replay of that segment — it was never acknowledged.
+ *
+ * The ledger rotates to a new segment on every flush; once a segment's deltas
+ * are committed to the database (with a checkpoint row) the file is deleted.
+ *
+ * fsyncs are group-committed: concurrent callers of {@link #sync(long)} share
+ * one force() of the channel.
+ */
+@Slf4j
+class QuotaLedgerJournal implements Closeable {
+
+    static final int RECORD_SIZE = 36;
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".journal";
+
+    private final Path dir;
+    private final boolean fsync;
+    private final Object syncLock = new Object();
+    private final AtomicLong syncedSeq = new AtomicLong();
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private long segment;
+    private long writtenSeq;
+    private long recordsInSegment;
+
+    QuotaLedgerJournal(Path dir, long firstSegment, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+        open(firstSegment);
+    }
+
+    /** Appends one record and returns its sequence number for {@link #sync(long)}. */
+    synchronized long append(long orgId, long projectId, long projectDelta, long orgDelta) throws IOException {
+        buffer.clear();
+        buffer.putLong(orgId).putLong(projectId).putLong(projectDelta).putLong(orgDelta);
+        crc.reset();
+        crc.update(buffer.array(), 0, RECORD_SIZE - 4);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        recordsInSegment++;
+        return ++writtenSeq;
+    }
+
+    /** Blocks until the record with this sequence number is on disk. */
+    void sync(long seq) throws IOException {
+        if (!fsync) return;
+        synchronized (syncLock) {
+            if (syncedSeq.get() >= seq) return;
+            long target;
+            FileChannel current;
+            synchronized (this) {
+                target = writtenSeq;
+                current = channel;
+            }
+            try {
+                current.force(false);
+            } catch (ClosedChannelException ex) {
+                // Rotated meanwhile — rotate() forced the segment before closing it
+            }
+            syncedSeq.accumulateAndGet(target, Math::max);
+        }
+    }
+
+    synchronized boolean isSegmentEmpty() {
+        return recordsInSegment == 0;
+    }
+
+    /** Closes the current segment (forced to disk) and starts the next one. Returns the closed segment number. */
+    synchronized long rotate() throws IOException {
+        long closed = segment;
+        channel.force(false);
+        channel.close();
+        syncedSeq.accumulateAndGet(writtenSeq, Math::max);
+        open(segment + 1);
+        return closed;
+    }
+
+    /** Deletes every segment up to and including this number. */
+    void deleteUpTo(long segmentNo) {
+        deleteSegments(dir, segmentNo);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private void open(long segmentNo) throws IOException {
+        this.segment = segmentNo;
+        this.recordsInSegment = 0;
+        this.channel = FileChannel.open(segmentPath(dir, segmentNo),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    // ── Recovery ─────────────────────────────────────────────────────────────
+
+    record Entry(long orgId, long projectId, long projectDelta, long orgDelta) {}
+
+    static List<Path> listSegments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(QuotaLedgerJournal::isSegment)
+                    .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                    .toList();
+        }
+    }
+
+    static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /** Reads every intact record of a segment, stopping at the first torn or corrupt one. */
+    static List<Entry> read(Path segmentPath) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        CRC32 check = new CRC32();
+        try (FileChannel in = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            while (true) {
+                record.clear();
+                while (record.hasRemaining()) {
+                    if (in.read(record) < 0) break;
+                }
+                if (record.hasRemaining()) {
+                    if (record.position() > 0) {
+                        log.warn("Ignoring torn record at the end of {}", segmentPath);
+                    }
+                    return entries;
+                }
+                check.reset();
+                check.update(record.array(), 0, RECORD_SIZE - 4);
+                record.flip();
+                Entry entry = new Entry(record.getLong(), record.getLong(), record.getLong(), record.getLong());
+                if (record.getInt() != (int) check.getValue()) {
+                    log.warn("Corrupt record in {} after {} entries — ignoring the rest", segmentPath, entries.size());
+                    return entries;
+                }
+                entries.add(entry);
+            }
+        }
+    }
+
+    static void deleteSegments(Path dir, long upTo) {
+        try {
+            for (Path path : listSegments(dir)) {
+                if (segmentNumber(path) <= upTo) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Failed to delete flushed quota journal segments up to {}: {}", upTo, ex.getMessage());
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    private static Path segmentPath(Path dir, long segmentNo) {
+        return dir.resolve(String.format("%s%020d%s", PREFIX, segmentNo, SUFFIX));
+    }
+}
@@ -0,0 +1,50 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import com.aigreentick.services.storage.domain.ProjectStorageId;
+import com.aigreentick.services.storage.domain.QuotaLedgerCheckpoint;
+import com.aigreentick.services.storage.repository.OrgStorageRepository;
+import com.aigreentick.services.storage.repository.ProjectStorageRepository;
+import com.aigreentick.services.storage.repository.QuotaLedgerCheckpointRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Database side of the quota ledger: applies flushed deltas and moves the
+ * checkpoint in one transaction.
+ */
+@Component
+@RequiredArgsConstructor
+public class QuotaLedgerStore {
+
+    private final ProjectStorageRepository projectStorageRepo;
+    private final OrgStorageRepository orgStorageRepo;
+    private final QuotaLedgerCheckpointRepository checkpointRepo;
+
+    /**
+     * Applies the deltas of every journal segment up to {@code segment}.
+     * Lock ordering: project_storage rows first, then org_storage.
+     */
+    @Transactional
+    public void apply(String ledgerId, long segment,
+                      Map<ProjectStorageId, Long> projectDeltas, Map<Long, Long> orgDeltas) {
+        projectDeltas.forEach((id, delta) -> projectStorageRepo.applyUsageDelta(id.getOrgId(), id.getProjectId(), delta));
+        orgDeltas.forEach(orgStorageRepo::applyUsageDelta);
+
+        checkpointRepo.save(QuotaLedgerCheckpoint.builder()
+                .ledgerId(ledgerId)
+                .flushedSegment(segment)
+                .updatedAt(Instant.now())
+                .build());
+    }
+
+    @Transactional(readOnly = true)
+    public long flushedSegment(String ledgerId) {
+        return checkpointRepo.findById(ledgerId)
+                .map(QuotaLedgerCheckpoint::getFlushedSegment)
+                .orElse(0L);
+    }
+}
@@ -0,0 +1,74 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import com.aigreentick.services.storage.exception.MediaValidationException;
+import com.aigreentick.services.storage.exception.StorageLimitExceededException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Latency of quota reserve/release calls, tagged by the path that actually
+ * served them, plus per-project activity for {@link QuotaHotProjectTracker}.
+ *
+ * Timers: quota.reserve and quota.release, tags
+ * path = pessimistic | optimistic | atomic | coalesced | lease | ledger,
+ * outcome = success | rejected | conflict | error.
+ */
+@Component
+@RequiredArgsConstructor
+public class QuotaMetrics {
+
+    public static final String RESERVE = "reserve";
+    public static final String RELEASE = "release";
+
+    public static final String PESSIMISTIC = "pessimistic";
+    public static final String OPTIMISTIC = "optimistic";
+    public static final String ATOMIC = "atomic";
+    public static final String COALESCED = "coalesced";
+    public static final String LEASE = "lease";
+    public static final String LEDGER = "ledger";
+
+    private final MeterRegistry meterRegistry;
+    private final QuotaHotProjectTracker hotProjects;
+
+    /**
+     * Runs one quota call and times it. The body starts out tagged with
+     * {@code defaultPath} and calls {@link Op#path} when it takes another.
+     */
+    public void record(String operation, String defaultPath, Long orgId, Long projectId, Consumer<Op> body) {
+        Op op = new Op(defaultPath);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            body.accept(op);
+        } catch (StorageLimitExceededException | MediaValidationException ex) {
+            outcome = "rejected";
+            throw ex;
+        } catch (ObjectOptimisticLockingFailureException ex) {
+            outcome = "conflict";
+            throw ex;
+        } catch (RuntimeException ex) {
+            outcome = "error";
+            throw ex;
+        } finally {
+            sample.stop(meterRegistry.timer("quota." + operation, "path", op.path, "outcome", outcome));
+            hotProjects.operation(orgId, projectId);
+        }
+    }
+
+    public static final class Op {
+        private String path;
+
+        private Op(String path) {
+            this.path = path;
+        }
+
+        public void path(String path) {
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import com.aigreentick.services.storage.config.properties.QuotaCoalescingProperties;
+import com.aigreentick.services.storage.domain.ProjectStorageId;
+import com.aigreentick.services.storage.dto.quota.QuotaHeadroom;
+import com.aigreentick.services.storage.enums.QuotaReservationResult;
+import com.aigreentick.services.storage.repository.ProjectStorageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Group commit for quota reservations.
+ *
+ * Reservations for the same (org, project) that arrive within a short window
+ * are summed and applied with ONE combined project + org UPDATE instead of
+ * one competing transaction each. The first arrival leads the batch: it waits
+ * up to 'window' (or until 'maxBatch' joined), closes the batch and commits
+ * it; everyone else just waits for their outcome.
+ *
+ * If the sum does not fit, the batch is split by a partial-fit rule: waiters
+ * are admitted in arrival order while they fit the smaller of the project and
+ * org headroom, the admitted sum is reserved in one UPDATE and the rest are
+ * rejected with the limit that was tighter.
+ *
+ * A batch never takes more than 'maxBatch' waiters: the one that fills it
+ * also unpublishes it, so later arrivals start the next batch. Whatever the
+ * leader's commit throws (Errors included) completes every waiter.
+ *
+ * With coalescing disabled, {@link #reserve} is a plain single-statement
+ * reservation. Waiting uses ReentrantLock so virtual threads don't pin.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QuotaReservationCoalescer {
+
+    private final QuotaCoalescingProperties properties;
+    private final ProjectStorageRepository projectStorageRepo;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<ProjectStorageId, Batch> openBatches = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Reserves {@code size} bytes at project and org level, coalesced with
+     * concurrent reservations for the same project when enabled.
+     */
+    public QuotaReservationResult reserve(Long orgId, Long projectId, long size) {
+        if (!isEnabled()) {
+            return attempt(orgId, projectId, size).result();
+        }
+
+        ProjectStorageId key = new ProjectStorageId(orgId, projectId);
+        Waiter waiter = new Waiter(size);
+        Batch batch;
+        boolean leader;
+        while (true) {
+            batch = openBatches.computeIfAbsent(key, k -> new Batch());
+            batch.lock.lock();
+            try {
+                if (batch.closed || batch.waiters.size() >= properties.getMaxBatch()) {
+                    openBatches.remove(key, batch);
+                    continue;
+                }
+                batch.waiters.add(waiter);
+                leader = batch.waiters.size() == 1;
+                if (batch.waiters.size() >= properties.getMaxBatch()) {
+                    // Full: nobody else may join while the leader wakes up
+                    openBatches.remove(key, batch);
+                    batch.full.signal();
+                }
+            } finally {
+                batch.lock.unlock();
+            }
+            break;
+        }
+
+        if (leader) {
+            lead(key, batch);
+        }
+        try {
+            return waiter.outcome.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException re ? re : ex;
+        }
+    }
+
+    // ── Leader ───────────────────────────────────────────────────────────────
+
+    private void lead(ProjectStorageId key, Batch batch) {
+        List<Waiter> waiters;
+        batch.lock.lock();
+        try {
+            long remaining = properties.getWindow().toNanos();
+            while (batch.waiters.size() < properties.getMaxBatch() && remaining > 0) {
+                try {
+                    remaining = batch.full.awaitNanos(remaining);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            batch.closed = true;
+            openBatches.remove(key, batch);
+            waiters = new ArrayList<>(batch.waiters);
+        } finally {
+            batch.lock.unlock();
+        }
+
+        try {
+            commit(key, waiters);
+        } catch (Throwable ex) {
+            // Waiters already settled by a partial commit keep their outcome
+            waiters.forEach(w -> w.outcome.completeExceptionally(ex));
+            if (ex instanceof Error error) throw error;
+        }
+    }
+
+    private void commit(ProjectStorageId key, List<Waiter> waiters) {
+        long total = waiters.stream().mapToLong(Waiter::size).sum();
+        Attempt all = attempt(key.getOrgId(), key.getProjectId(), total);
+
+        if (all.result().isReserved() || waiters.size() == 1 || all.headroom() == null
+                || all.result() == QuotaReservationResult.PROJECT_NOT_PROVISIONED
+                || all.result() == QuotaReservationResult.ORG_NOT_PROVISIONED) {
+            waiters.forEach(w -> w.outcome.complete(all.result()));
+            log.debug("Quota batch committed: org={} project={} waiters={} bytes={} result={}",
+                    key.getOrgId(), key.getProjectId(), waiters.size(), total, all.result());
+            return;
+        }
+
+        // ── Partial fit ──────────────────────────────────────────────────
+        QuotaHeadroom headroom = all.headroom();
+        long projectRoom = headroom.getProjectMax() - headroom.getProjectUsed();
+        long orgRoom = headroom.getOrgMax() - headroom.getOrgUsed();
+        long room = Math.min(projectRoom, orgRoom);
+        QuotaReservationResult rejection = projectRoom <= orgRoom
+                ? QuotaReservationResult.PROJECT_LIMIT_EXCEEDED
+                : QuotaReservationResult.ORG_LIMIT_EXCEEDED;
+
+        List<Waiter> admitted = new ArrayList<>();
+        long admittedBytes = 0;
+        for (Waiter w : waiters) {
+            if (admittedBytes + w.size() <= room) {
+                admitted.add(w);
+                admittedBytes += w.size();
+            } else {
+                w.outcome.complete(rejection);
+            }
+        }
+        if (admitted.isEmpty()) return;
+
+        Attempt partial = attempt(key.getOrgId(), key.getProjectId(), admittedBytes);
+        if (partial.result().isReserved()) {
+            admitted.forEach(w -> w.outcome.complete(QuotaReservationResult.RESERVED));
+        } else {
+            // Headroom moved under us — settle the admitted ones individually
+            for (Waiter w : admitted) {
+                w.outcome.complete(attempt(key.getOrgId(), key.getProjectId(), w.size()).result());
+            }
+        }
+        log.debug("Quota batch partially committed: org={} project={} admitted={}/{} bytes={}",
+                key.getOrgId(), key.getProjectId(), admitted.size(), waiters.size(), admittedBytes);
+    }
+
+    // ── Single statement ─────────────────────────────────────────────────────
+
+    /**
+     * One combined project + org UPDATE. When it matches nothing, one read of
+     * both counters tells which limit (or row) was the problem.
+     */
+    private Attempt attempt(Long orgId, Long projectId, long size) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template.execute(status -> {
+            if (projectStorageRepo.incrementProjectAndOrgUsage(orgId, projectId, size) > 0) {
+                return new Attempt(QuotaReservationResult.RESERVED, null);
+            }
+            QuotaHeadroom headroom = projectStorageRepo.findHeadroom(orgId, projectId);
+            return new Attempt(diagnose(headroom, size), headroom);
+        });
+    }
+
+    private QuotaReservationResult diagnose(QuotaHeadroom headroom, long size) {
+        if (headroom.getProjectMax() == null) return QuotaReservationResult.PROJECT_NOT_PROVISIONED;
+        if (headroom.getOrgMax() == null) return QuotaReservationResult.ORG_NOT_PROVISIONED;
+        if (headroom.getProjectUsed() + size > headroom.getProjectMax()) {
+            return QuotaReservationResult.PROJECT_LIMIT_EXCEEDED;
+        }
+        // Project had room, so the org limit is what stopped the UPDATE
+        // (or a concurrent release freed space since — reported as org)
+        return QuotaReservationResult.ORG_LIMIT_EXCEEDED;
+    }
+
+    private record Attempt(QuotaReservationResult result, QuotaHeadroom headroom) {}
+
+    private record Waiter(long size, CompletableFuture<QuotaReservationResult> outcome) {
+        Waiter(long size) {
+            this(size, new CompletableFuture<>());
+        }
+    }
+
+    private static final class Batch {
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition full = lock.newCondition();
+        final List<Waiter> waiters = new ArrayList<>();
+        boolean closed;
+    }
+}
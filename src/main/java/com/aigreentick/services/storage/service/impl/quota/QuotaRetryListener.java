@@ -0,0 +1,85 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instruments the optimistic-lock quota retries in {@link OptimisticQuotaService}.
+ *
+ * - quota.optimistic.conflicts: every failed attempt (version conflict)
+ * - quota.optimistic.retries.exhausted: calls that gave up
+ * - quota.optimistic.retry.elapsed: wall time of calls that needed at least
+ *   one retry, backoff included
+ *
+ * All tagged with the method name. Conflicts also feed the hot-project
+ * tracker, using the {@link Attempt}'s project.
+ */
+@Slf4j
+@Component("quotaRetryListener")
+@RequiredArgsConstructor
+public class QuotaRetryListener implements RetryListener {
+
+    private static final String STARTED_AT = "quota.retry.startedAt";
+
+    /** One retried quota call: the method it belongs to and its project. */
+    public record Attempt(String method, Long orgId, Long projectId, Runnable work)
+            implements RetryCallback<Void, RuntimeException> {
+
+        @Override
+        public Void doWithRetry(RetryContext context) {
+            work.run();
+            return null;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final QuotaHotProjectTracker hotProjects;
+
+    @Override
+    public <T, E extends Throwable> boolean open(RetryContext context, RetryCallback<T, E> callback) {
+        context.setAttribute(STARTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback,
+                                                 Throwable throwable) {
+        // Quota rejections surface here too but are not retried
+        if (!(throwable instanceof ObjectOptimisticLockingFailureException)) return;
+        meterRegistry.counter("quota.optimistic.conflicts", "method", method(callback)).increment();
+        if (callback instanceof Attempt attempt) {
+            hotProjects.conflict(attempt.orgId(), attempt.projectId());
+        }
+    }
+
+    @Override
+    public <T, E extends Throwable> void close(RetryContext context, RetryCallback<T, E> callback,
+                                               Throwable throwable) {
+        if (context.getRetryCount() == 0) return;
+
+        String method = method(callback);
+        // Still conflicting after the last attempt (other errors are not retried)
+        if (throwable instanceof ObjectOptimisticLockingFailureException) {
+            meterRegistry.counter("quota.optimistic.retries.exhausted", "method", method).increment();
+            log.warn("Quota retries exhausted: method={} attempts={}", method, context.getRetryCount(),
+                    throwable);
+        }
+        Object startedAt = context.getAttribute(STARTED_AT);
+        if (startedAt instanceof Long start) {
+            meterRegistry.timer("quota.optimistic.retry.elapsed", "method", method)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String method(RetryCallback<?, ?> callback) {
+        return callback instanceof Attempt attempt ? attempt.method() : "unknown";
+    }
+}
@@ -4,17 +4,37 @@ package com.aigreentick.services.storage.service.impl.quota;
 
 import com.aigreentick.services.storage.domain.OrgStorage;
 import com.aigreentick.services.storage.domain.ProjectStorage;
+import com.aigreentick.services.storage.domain.ProjectStorageId;
+import com.aigreentick.services.storage.dto.quota.BulkQuotaRequest;
+import com.aigreentick.services.storage.dto.quota.BulkQuotaRequest.OrgQuota;
+import com.aigreentick.services.storage.dto.quota.BulkQuotaRequest.ProjectQuota;
+import com.aigreentick.services.storage.dto.quota.BulkQuotaResponse;
+import com.aigreentick.services.storage.dto.quota.OrgQuotaView;
+import com.aigreentick.services.storage.dto.quota.ProjectQuotaView;
+import com.aigreentick.services.storage.dto.quota.QuotaProvisionResult;
 import com.aigreentick.services.storage.exception.MediaValidationException;
 import com.aigreentick.services.storage.exception.StorageLimitExceededException;
 import com.aigreentick.services.storage.repository.OrgStorageRepository;
 import com.aigreentick.services.storage.repository.ProjectStorageRepository;
+import com.aigreentick.services.storage.repository.QuotaProvisioningRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Handles all quota enforcement within a single DB transaction.
@@ -22,6 +42,12 @@ import java.time.Instant;
  * Lock ordering: project_storage FIRST, then org_storage — always.
  * This prevents deadlocks when concurrent uploads target different
  * projects under the same organisation.
+ *
+ * When the in-memory {@link QuotaLedger} is enabled, reserve/release go to
+ * the ledger and are tied to the caller's transaction outcome instead.
+ *
+ * Reads for the quota endpoints go through {@link QuotaViewCache}; every
+ * change here invalidates it once the transaction completes.
  */
 @Slf4j
 @Service
@@ -30,6 +56,10 @@ public class QuotaService {
 
     private final ProjectStorageRepository projectStorageRepo;
     private final OrgStorageRepository orgStorageRepo;
+    private final QuotaProvisioningRepository provisioningRepo;
+    private final QuotaLedger ledger;
+    private final QuotaViewCache viewCache;
+    private final QuotaMetrics metrics;
 
     // ── Check + Reserve ─────────────────────────────────────────────────────
 
@@ -40,6 +70,19 @@ public class QuotaService {
      */
     @Transactional(propagation = Propagation.MANDATORY)  // must join caller's tx
     public void reserveQuota(Long orgId, Long projectId, long fileSize) {
+        metrics.record(QuotaMetrics.RESERVE, QuotaMetrics.PESSIMISTIC, orgId, projectId,
+                op -> reserveLocked(op, orgId, projectId, fileSize));
+    }
+
+    private void reserveLocked(QuotaMetrics.Op op, Long orgId, Long projectId, long fileSize) {
+        viewCache.invalidateAfterCommit(orgId, projectId);
+        if (ledger.isEnabled()) {
+            op.path(QuotaMetrics.LEDGER);
+            ledger.reserve(orgId, projectId, fileSize);
+            onRollback(() -> ledger.release(orgId, projectId, fileSize));
+            return;
+        }
+
         // 1. Lock project row first
         ProjectStorage project = projectStorageRepo.findByIdForUpdate(orgId, projectId)
                 .orElseThrow(() -> new MediaValidationException(
@@ -84,6 +127,18 @@ public class QuotaService {
      */
     @Transactional(propagation = Propagation.MANDATORY)
     public void releaseQuota(Long orgId, Long projectId, long fileSize) {
+        metrics.record(QuotaMetrics.RELEASE, QuotaMetrics.PESSIMISTIC, orgId, projectId,
+                op -> releaseLocked(op, orgId, projectId, fileSize));
+    }
+
+    private void releaseLocked(QuotaMetrics.Op op, Long orgId, Long projectId, long fileSize) {
+        viewCache.invalidateAfterCommit(orgId, projectId);
+        if (ledger.isEnabled()) {
+            op.path(QuotaMetrics.LEDGER);
+            afterCommit(() -> ledger.release(orgId, projectId, fileSize));
+            return;
+        }
+
         // Same lock ordering: project first, org second
         projectStorageRepo.findByIdForUpdate(orgId, projectId)
                 .ifPresent(p -> {
@@ -122,6 +177,8 @@ public class QuotaService {
             log.info("Updating org quota: orgId={} maxBytes={}", orgId, maxBytes);
         }
 
+        afterCommit(() -> ledger.updateOrgLimit(orgId, maxBytes));
+        viewCache.invalidateAfterCommit(orgId, null);
         return orgStorageRepo.save(org);
     }
 
@@ -155,20 +212,148 @@ public class QuotaService {
             log.info("Updating project quota: orgId={} projectId={} maxBytes={}", orgId, projectId, maxBytes);
         }
 
+        afterCommit(() -> ledger.updateProjectLimit(orgId, projectId, maxBytes));
+        viewCache.invalidateAfterCommit(orgId, projectId);
         return projectStorageRepo.save(project);
     }
 
+    // ── Bulk provisioning ───────────────────────────────────────────────────
+
+    /**
+     * Provisions many org and project quotas in one transaction using
+     * batched upserts. Rows with missing ids, negative limits, duplicates,
+     * or (for projects) an org quota that exists neither in the database nor
+     * in this request are rejected individually; the rest are applied.
+     */
+    @Transactional
+    public BulkQuotaResponse bulkUpsert(BulkQuotaRequest request) {
+        List<OrgQuota> orgs = request.getOrgs() != null ? request.getOrgs() : List.of();
+        List<ProjectQuota> projects = request.getProjects() != null ? request.getProjects() : List.of();
+        QuotaProvisionResult[] orgResults = new QuotaProvisionResult[orgs.size()];
+        QuotaProvisionResult[] projectResults = new QuotaProvisionResult[projects.size()];
+
+        // 1. Org rows
+        Set<Long> requestedOrgIds = new HashSet<>();
+        for (int i = 0; i < orgs.size(); i++) {
+            OrgQuota row = orgs.get(i);
+            String error = rejectOrg(row, requestedOrgIds);
+            if (error != null) orgResults[i] = QuotaProvisionResult.rejected(row.getOrgId(), null, error);
+        }
+
+        // 2. One lookup for every org the request touches
+        Set<Long> referencedOrgIds = new HashSet<>(requestedOrgIds);
+        projects.stream().map(ProjectQuota::getOrgId).filter(Objects::nonNull).forEach(referencedOrgIds::add);
+        Set<Long> existingOrgIds = referencedOrgIds.isEmpty()
+                ? Set.of() : provisioningRepo.findExistingOrgIds(referencedOrgIds);
+
+        // 3. Project rows
+        Set<ProjectStorageId> requestedProjects = new HashSet<>();
+        for (int i = 0; i < projects.size(); i++) {
+            ProjectQuota row = projects.get(i);
+            String error = rejectProject(row, requestedProjects);
+            if (error == null && !existingOrgIds.contains(row.getOrgId()) && !requestedOrgIds.contains(row.getOrgId())) {
+                requestedProjects.remove(new ProjectStorageId(row.getOrgId(), row.getProjectId()));
+                error = "Org quota for org=" + row.getOrgId() + " does not exist. Provision org quota first.";
+            }
+            if (error != null) {
+                projectResults[i] = QuotaProvisionResult.rejected(row.getOrgId(), row.getProjectId(), error);
+            }
+        }
+        Set<ProjectStorageId> existingProjects = requestedProjects.isEmpty()
+                ? Set.of() : provisioningRepo.findExistingProjects(requestedProjects);
+
+        // 4. Batched upserts — orgs first for the project FK
+        List<OrgQuota> acceptedOrgs = new ArrayList<>();
+        for (int i = 0; i < orgs.size(); i++) {
+            if (orgResults[i] != null) continue;
+            OrgQuota row = orgs.get(i);
+            acceptedOrgs.add(row);
+            orgResults[i] = QuotaProvisionResult.applied(row.getOrgId(), null, row.getMaxBytes(),
+                    existingOrgIds.contains(row.getOrgId()));
+        }
+        List<ProjectQuota> acceptedProjects = new ArrayList<>();
+        for (int i = 0; i < projects.size(); i++) {
+            if (projectResults[i] != null) continue;
+            ProjectQuota row = projects.get(i);
+            acceptedProjects.add(row);
+            projectResults[i] = QuotaProvisionResult.applied(row.getOrgId(), row.getProjectId(), row.getMaxBytes(),
+                    existingProjects.contains(new ProjectStorageId(row.getOrgId(), row.getProjectId())));
+        }
+        provisioningRepo.upsertOrgs(acceptedOrgs);
+        provisioningRepo.upsertProjects(acceptedProjects);
+
+        afterCommit(() -> {
+            acceptedOrgs.forEach(o -> ledger.updateOrgLimit(o.getOrgId(), o.getMaxBytes()));
+            acceptedProjects.forEach(p -> ledger.updateProjectLimit(p.getOrgId(), p.getProjectId(), p.getMaxBytes()));
+        });
+        viewCache.invalidateAllAfterCommit();
+
+        Map<QuotaProvisionResult.Status, Long> counts = Stream.concat(Arrays.stream(orgResults), Arrays.stream(projectResults))
+                .collect(Collectors.groupingBy(QuotaProvisionResult::getStatus, Collectors.counting()));
+        BulkQuotaResponse response = BulkQuotaResponse.builder()
+                .createdCount(counts.getOrDefault(QuotaProvisionResult.Status.CREATED, 0L).intValue())
+                .updatedCount(counts.getOrDefault(QuotaProvisionResult.Status.UPDATED, 0L).intValue())
+                .rejectedCount(counts.getOrDefault(QuotaProvisionResult.Status.REJECTED, 0L).intValue())
+                .orgs(Arrays.asList(orgResults))
+                .projects(Arrays.asList(projectResults))
+                .build();
+        log.info("Bulk quota provisioned: orgs={} projects={} created={} updated={} rejected={}",
+                orgs.size(), projects.size(), response.getCreatedCount(),
+                response.getUpdatedCount(), response.getRejectedCount());
+        return response;
+    }
+
+    private static String rejectOrg(OrgQuota row, Set<Long> seen) {
+        if (row.getOrgId() == null) return "orgId is required";
+        if (row.getMaxBytes() == null || row.getMaxBytes() < 0) return "maxBytes must be zero or greater";
+        if (!seen.add(row.getOrgId())) return "Duplicate orgId in request";
+        return null;
+    }
+
+    private static String rejectProject(ProjectQuota row, Set<ProjectStorageId> seen) {
+        if (row.getOrgId() == null || row.getProjectId() == null) return "orgId and projectId are required";
+        if (row.getMaxBytes() == null || row.getMaxBytes() < 0) return "maxBytes must be zero or greater";
+        if (!seen.add(new ProjectStorageId(row.getOrgId(), row.getProjectId()))) {
+            return "Duplicate project in request";
+        }
+        return null;
+    }
+
     // ── Read ────────────────────────────────────────────────────────────────
 
-    @Transactional(readOnly = true)
-    public OrgStorage getOrgQuota(Long orgId) {
-        return orgStorageRepo.findById(orgId).orElse(null);
+    /** Cached snapshot; no transaction or connection on a hit. */
+    public OrgQuotaView getOrgQuota(Long orgId) {
+        return viewCache.org(orgId, () -> orgStorageRepo.findById(orgId)
+                .map(o -> new OrgQuotaView(o.getOrgId(), o.getMaxBytes(), o.getUsedBytes()))
+                .orElse(null));
     }
 
-    @Transactional(readOnly = true)
-    public ProjectStorage getProjectQuota(Long orgId, Long projectId) {
-        return projectStorageRepo
+    /** Cached snapshot; no transaction or connection on a hit. */
+    public ProjectQuotaView getProjectQuota(Long orgId, Long projectId) {
+        return viewCache.project(orgId, projectId, () -> projectStorageRepo
                 .findById(new com.aigreentick.services.storage.domain.ProjectStorageId(orgId, projectId))
-                .orElse(null);
+                .map(p -> new ProjectQuotaView(p.getOrgId(), p.getProjectId(), p.getMaxBytes(), p.getUsedBytes()))
+                .orElse(null));
+    }
+
+    // ── Ledger hooks ────────────────────────────────────────────────────────
+
+    private void afterCommit(Runnable action) {
+        if (!ledger.isEnabled()) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void onRollback(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) action.run();
+            }
+        });
     }
-}
\ No newline at end of file
+}
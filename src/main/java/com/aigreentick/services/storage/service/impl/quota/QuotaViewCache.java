@@ -0,0 +1,144 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import com.aigreentick.services.storage.config.properties.QuotaViewCacheProperties;
+import com.aigreentick.services.storage.dto.quota.OrgQuotaView;
+import com.aigreentick.services.storage.dto.quota.ProjectQuotaView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Read-through near-cache of quota snapshots for the quota read endpoints,
+ * so dashboard polling is served from memory instead of the rows uploads
+ * are updating. Reservation checks never read from here.
+ *
+ * Every counter or limit change on this node invalidates the project and
+ * org entries. Invalidation leaves a tombstone, and a load only installs its
+ * result if the entry it started from is still in place, so a read that
+ * raced a change can never cache the pre-change value. Changes made by
+ * other replicas are picked up once 'ttl' expires.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QuotaViewCache {
+
+    private final QuotaViewCacheProperties properties;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // ── Read-through ─────────────────────────────────────────────────────────
+
+    public OrgQuotaView org(Long orgId, Supplier<OrgQuotaView> loader) {
+        return (OrgQuotaView) get(new Key(orgId, null), loader);
+    }
+
+    public ProjectQuotaView project(Long orgId, Long projectId, Supplier<ProjectQuotaView> loader) {
+        return (ProjectQuotaView) get(new Key(orgId, projectId), loader);
+    }
+
+    private Object get(Key key, Supplier<?> loader) {
+        if (!isEnabled()) return loader.get();
+
+        long now = System.currentTimeMillis();
+        Entry seen = entries.get(key);
+        if (seen != null && !seen.tombstone && seen.expiresAt > now) {
+            return seen.value;
+        }
+
+        Object value = loader.get();
+        if (value != null) {
+            install(key, seen, new Entry(value, false, now + properties.getTtl().toMillis()));
+        }
+        return value;
+    }
+
+    private void install(Key key, Entry seen, Entry fresh) {
+        if (seen == null && entries.size() >= properties.getMaxEntries()) {
+            sweep();
+            if (entries.size() >= properties.getMaxEntries()) return;
+        }
+        // Fails if an invalidation (or another load) replaced the entry meanwhile
+        boolean installed = seen == null
+                ? entries.putIfAbsent(key, fresh) == null
+                : entries.replace(key, seen, fresh);
+        if (!installed) {
+            log.trace("Quota view load for {} lost a race, not cached", key);
+        }
+    }
+
+    // ── Invalidation ─────────────────────────────────────────────────────────
+
+    /** Counters of the project (and so its org) changed; projectId null for an org-only change. */
+    public void invalidate(Long orgId, Long projectId) {
+        if (!isEnabled()) return;
+        if (projectId != null) tombstone(new Key(orgId, projectId));
+        tombstone(new Key(orgId, null));
+    }
+
+    /** Same as {@link #invalidate}, once the current transaction commits. */
+    public void invalidateAfterCommit(Long orgId, Long projectId) {
+        if (!isEnabled()) return;
+        afterCompletion(() -> invalidate(orgId, projectId));
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /** Bulk changes: drop everything once the current transaction completes. */
+    public void invalidateAllAfterCommit() {
+        if (!isEnabled()) return;
+        afterCompletion(this::invalidateAll);
+    }
+
+    private void afterCompletion(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+
+    private void tombstone(Key key) {
+        // Outlives any load that could have started before the change
+        entries.put(key, new Entry(null, true, System.currentTimeMillis() + properties.getTtl().toMillis()));
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        int before = entries.size();
+        entries.values().removeIf(e -> e.expiresAt <= now);
+        log.debug("Quota view cache sweep removed {} entries", before - entries.size());
+    }
+
+    /** projectId is null for an org entry. */
+    private record Key(Long orgId, Long projectId) {}
+
+    /** Identity matters: replace() compares instances, not values. */
+    private static final class Entry {
+        final Object value;
+        final boolean tombstone;
+        final long expiresAt;
+
+        Entry(Object value, boolean tombstone, long expiresAt) {
+            this.value = value;
+            this.tombstone = tombstone;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
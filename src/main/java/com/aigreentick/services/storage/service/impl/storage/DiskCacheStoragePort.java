@@ -0,0 +1,324 @@
+package com.aigreentick.services.storage.service.impl.storage;
+
+import com.aigreentick.services.storage.dto.storage.StorageMetadata;
+import com.aigreentick.services.storage.dto.storage.StorageResult;
+import com.aigreentick.services.storage.enums.StorageProviderType;
+import com.aigreentick.services.storage.exception.StorageException;
+import com.aigreentick.services.storage.service.port.AsyncStoragePort;
+import com.aigreentick.services.storage.util.StreamLengths;
+import com.aigreentick.services.storage.util.TeeInputStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decorator that keeps local disk copies of a remote provider's objects
+ * in the {@link DiskObjectCache}.
+ *
+ * - retrieve: read-through. A hit streams the local copy. A miss downloads
+ *   the object into a temp file, installs it and streams it from disk.
+ *   Concurrent misses for one key are single-flight: one caller downloads,
+ *   the others wait and then open the installed copy.
+ * - save: write-through. The upload is teed into a temp file while the
+ *   provider reads it, and installed under the returned key on success.
+ * - delete: drops the local copy first.
+ *
+ * Objects over max-object-bytes are streamed through uncached. When the
+ * provider announces the length (S3 content-length) they bypass the cache
+ * before the first byte; otherwise the downloader gets what it already
+ * spooled followed by the rest of the provider stream. Either way the key is
+ * remembered as too large, so later retrieves go straight to the provider
+ * and waiting callers fetch for themselves.
+ *
+ * Not a Spring component — created by StorageProviderConfig around the
+ * selected provider, like {@link MeteringStoragePort}.
+ */
+@Slf4j
+public class DiskCacheStoragePort implements AsyncStoragePort {
+
+    private final AsyncStoragePort delegate;
+    private final DiskObjectCache cache;
+
+    private static final int MAX_OVERSIZE_KEYS = 10_000;
+
+    /** Downloads in progress; completes with the installed copy, or null if not cached. */
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    /** Keys known to exceed max-object-bytes; bounded, eldest dropped first. */
+    private final Set<String> oversize = Collections.synchronizedSet(Collections.newSetFromMap(
+            new LinkedHashMap<>(256, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_OVERSIZE_KEYS;
+                }
+            }));
+
+    public DiskCacheStoragePort(AsyncStoragePort delegate, DiskObjectCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    // ── Reads ────────────────────────────────────────────────────────────────
+
+    @Override
+    public InputStream retrieve(String storageKey) throws StorageException {
+        InputStream local = openCached(cache.lookup(storageKey));
+        if (local != null) return local;
+        if (oversize.contains(storageKey)) return delegate.retrieve(storageKey);
+
+        CompletableFuture<Path> download = new CompletableFuture<>();
+        CompletableFuture<Path> running = inFlight.putIfAbsent(storageKey, download);
+        if (running != null) {
+            local = openCached(awaitDownload(running));
+            // Not cached (too large) or already evicted: fetch independently
+            return local != null ? local : delegate.retrieve(storageKey);
+        }
+
+        try {
+            return download(storageKey, download);
+        } catch (RuntimeException ex) {
+            download.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(storageKey, download);
+        }
+    }
+
+    @Override
+    public CompletableFuture<InputStream> retrieveAsync(String storageKey) {
+        InputStream local = openCached(cache.lookup(storageKey));
+        if (local != null) return CompletableFuture.completedFuture(local);
+        if (oversize.contains(storageKey)) return delegate.retrieveAsync(storageKey);
+        return CompletableFuture.supplyAsync(() -> retrieve(storageKey), cache.fillExecutor());
+    }
+
+    private InputStream download(String storageKey, CompletableFuture<Path> download) {
+        long max = cache.maxObjectBytes();
+        Path temp = null;
+        InputStream remote = delegate.retrieve(storageKey);
+        if (StreamLengths.known(remote) > max) {
+            markOversize(storageKey, download);
+            return remote;
+        }
+        try {
+            temp = cache.newTempFile();
+            long copied;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                copied = copy(remote, out, max + 1);
+            }
+
+            if (copied > max) {
+                markOversize(storageKey, download);
+                return new SequenceInputStream(new SpoolInputStream(temp, cache), remote);
+            }
+            remote.close();
+
+            // Opened before the move: the descriptor survives any later eviction
+            InputStream local = Files.newInputStream(temp);
+            try {
+                cache.install(storageKey, temp, copied);
+            } catch (IOException ex) {
+                local.close();
+                throw ex;
+            }
+            download.complete(cache.lookup(storageKey));
+            return local;
+        } catch (IOException ex) {
+            closeQuietly(remote);
+            if (temp != null) cache.discard(temp);
+            throw new StorageException("Failed to cache object on local disk", ex,
+                    delegate.getProviderType(), storageKey);
+        }
+    }
+
+    private void markOversize(String storageKey, CompletableFuture<Path> download) {
+        oversize.add(storageKey);
+        download.complete(null);
+        log.debug("Object too large for disk cache, streaming through: key={}", storageKey);
+    }
+
+    private Path awaitDownload(CompletableFuture<Path> running) {
+        try {
+            return running.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException re ? re : ex;
+        }
+    }
+
+    /** Opens a cached copy, or null if there is none (or it was evicted just now). */
+    private static InputStream openCached(Path path) {
+        if (path == null) return null;
+        try {
+            return Files.newInputStream(path);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            log.warn("Failed to open disk cache file {}: {}", path, ex.getMessage());
+            return null;
+        }
+    }
+
+    // ── Writes ───────────────────────────────────────────────────────────────
+
+    @Override
+    public StorageResult save(InputStream inputStream, StorageMetadata metadata) throws StorageException {
+        Staged staged = stage(inputStream, metadata);
+        if (staged == null) return delegate.save(inputStream, metadata);
+
+        StorageResult result;
+        try {
+            result = delegate.save(staged.tee(), metadata);
+        } catch (RuntimeException ex) {
+            staged.abort(cache);
+            throw ex;
+        }
+        staged.commit(cache, result.getStorageKey(), metadata);
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<StorageResult> saveAsync(InputStream inputStream, StorageMetadata metadata) {
+        Staged staged = stage(inputStream, metadata);
+        if (staged == null) return delegate.saveAsync(inputStream, metadata);
+
+        return delegate.saveAsync(staged.tee(), metadata).whenComplete((result, ex) -> {
+            if (ex != null) {
+                staged.abort(cache);
+            } else {
+                staged.commit(cache, result.getStorageKey(), metadata);
+            }
+        });
+    }
+
+    /** A tee into a temp file, or null to save uncached (too large or no temp file). */
+    private Staged stage(InputStream inputStream, StorageMetadata metadata) {
+        Long size = metadata.getFileSize();
+        if (size == null || size > cache.maxObjectBytes()) return null;
+        try {
+            Path temp = cache.newTempFile();
+            OutputStream out = Files.newOutputStream(temp);
+            return new Staged(temp, out, new TeeInputStream(inputStream, out));
+        } catch (IOException ex) {
+            log.warn("Disk cache write-through skipped: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    private record Staged(Path temp, OutputStream out, TeeInputStream tee) {
+
+        void commit(DiskObjectCache cache, String storageKey, StorageMetadata metadata) {
+            try {
+                out.close();
+                if (tee.isSinkFailed() || tee.getCopied() != metadata.getFileSize()) {
+                    cache.discard(temp);
+                    return;
+                }
+                cache.install(storageKey, temp, tee.getCopied());
+            } catch (IOException ex) {
+                log.warn("Disk cache write-through failed for key={}: {}", storageKey, ex.getMessage());
+                cache.discard(temp);
+            }
+        }
+
+        void abort(DiskObjectCache cache) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // discarded below
+            }
+            cache.discard(temp);
+        }
+    }
+
+    // ── Invalidation ─────────────────────────────────────────────────────────
+
+    @Override
+    public boolean delete(String storageKey) throws StorageException {
+        cache.invalidate(storageKey);
+        oversize.remove(storageKey);
+        return delegate.delete(storageKey);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String storageKey) {
+        cache.invalidate(storageKey);
+        oversize.remove(storageKey);
+        return delegate.deleteAsync(storageKey);
+    }
+
+    // ── Pass-through ─────────────────────────────────────────────────────────
+
+    @Override
+    public boolean exists(String storageKey) {
+        return cache.lookup(storageKey) != null || delegate.exists(storageKey);
+    }
+
+    @Override
+    public String getPublicUrl(String storageKey, Duration expiry) {
+        return delegate.getPublicUrl(storageKey, expiry);
+    }
+
+    @Override
+    public StorageProviderType getProviderType() {
+        return delegate.getProviderType();
+    }
+
+    // ── Helpers ──────────────────────────────────────────────────────────────
+
+    /** Copies at most {@code limit} bytes; returns the number copied. */
+    private static long copy(InputStream in, OutputStream out, long limit) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long copied = 0;
+        while (copied < limit) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, limit - copied));
+            if (n < 0) break;
+            out.write(buffer, 0, n);
+            copied += n;
+        }
+        return copied;
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ex) {
+            log.debug("Failed to close provider stream: {}", ex.getMessage());
+        }
+    }
+
+    /** Reads a spooled temp file and deletes it on close. */
+    private static final class SpoolInputStream extends FilterInputStream {
+        private final Path temp;
+        private final DiskObjectCache cache;
+
+        SpoolInputStream(Path temp, DiskObjectCache cache) throws IOException {
+            super(Files.newInputStream(temp));
+            this.temp = temp;
+            this.cache = cache;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                cache.discard(temp);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.aigreentick.services.storage.service.impl.storage;
+
+import com.aigreentick.services.storage.config.properties.DiskCacheProperties;
+import com.aigreentick.services.storage.util.ChecksumUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Byte-bounded LRU store of object copies on local disk, used by
+ * {@link DiskCacheStoragePort}.
+ *
+ * Objects are stored under data/{hh}/{sha256(storageKey)}, so keys never
+ * become paths. Files are always written to tmp/ first and moved into place
+ * atomically; a crash leaves only tmp/ garbage, which startup removes.
+ * Startup also rebuilds the index from data/, oldest file first.
+ *
+ * Index changes and file moves/deletes happen under one lock, so an evicted
+ * copy can never delete a newer one installed under the same name. Readers
+ * open files without the lock: an open file survives its eviction.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DiskObjectCache {
+
+    private final DiskCacheProperties properties;
+
+    /** hash → size, in access order (eldest first). */
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(1024, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long totalBytes;
+
+    private Path dataDir;
+    private Path tmpDir;
+
+    /** Runs blocking fills for retrieveAsync. */
+    private final ExecutorService fillExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    // ── Lifecycle ────────────────────────────────────────────────────────────
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!isEnabled()) return;
+        Path root = Paths.get(properties.getDirectory()).toAbsolutePath().normalize();
+        dataDir = root.resolve("data");
+        tmpDir = root.resolve("tmp");
+        Files.createDirectories(dataDir);
+        Files.createDirectories(tmpDir);
+
+        try (Stream<Path> leftovers = Files.list(tmpDir)) {
+            leftovers.forEach(this::discard);
+        }
+
+        List<Cached> found = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attrs.isRegularFile()) {
+                    found.add(new Cached(file.getFileName().toString(), attrs.size(),
+                            attrs.lastModifiedTime().toMillis()));
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong(Cached::modified));
+        lock.lock();
+        try {
+            for (Cached c : found) {
+                index.put(c.hash(), c.size());
+                totalBytes += c.size();
+            }
+            evict(null);
+        } finally {
+            lock.unlock();
+        }
+        log.info("Disk cache ready at {}: {} objects, {} bytes (capacity {})",
+                root, index.size(), totalBytes, properties.getCapacityBytes());
+    }
+
+    @PreDestroy
+    void stop() {
+        fillExecutor.shutdown();
+    }
+
+    public ExecutorService fillExecutor() {
+        return fillExecutor;
+    }
+
+    public long maxObjectBytes() {
+        return Math.min(properties.getMaxObjectBytes(), properties.getCapacityBytes());
+    }
+
+    // ── Lookup ───────────────────────────────────────────────────────────────
+
+    /** Cached copy of the object (now most recently used), or null. */
+    public Path lookup(String storageKey) {
+        String hash = hash(storageKey);
+        lock.lock();
+        try {
+            return index.get(hash) != null ? pathFor(hash) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ── Fill ─────────────────────────────────────────────────────────────────
+
+    /** A new, empty file to write an object into before {@link #install}. */
+    public Path newTempFile() throws IOException {
+        return Files.createFile(tmpDir.resolve(UUID.randomUUID() + ".part"));
+    }
+
+    /**
+     * Moves a complete temp file into the cache as the object's copy,
+     * replacing any previous one, then evicts beyond capacity.
+     */
+    public void install(String storageKey, Path temp, long size) throws IOException {
+        String hash = hash(storageKey);
+        Path target = pathFor(hash);
+        Files.createDirectories(target.getParent());
+        lock.lock();
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Long previous = index.put(hash, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            evict(hash);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(String storageKey) {
+        if (!isEnabled()) return;
+        String hash = hash(storageKey);
+        lock.lock();
+        try {
+            Long size = index.remove(hash);
+            if (size != null) {
+                totalBytes -= size;
+                deleteQuietly(pathFor(hash));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Deletes a temp file that will not be installed. */
+    public void discard(Path temp) {
+        deleteQuietly(temp);
+    }
+
+    // ── Internals (lock held) ────────────────────────────────────────────────
+
+    /** Least recently used first, never the entry just installed. */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        int evicted = 0;
+        while (totalBytes > properties.getCapacityBytes() && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (eldest.getKey().equals(keep)) continue;
+            deleteQuietly(pathFor(eldest.getKey()));
+            totalBytes -= eldest.getValue();
+            it.remove();
+            evicted++;
+        }
+        if (evicted > 0) {
+            log.debug("Disk cache evicted {} objects, {} bytes held", evicted, totalBytes);
+        }
+    }
+
+    private Path pathFor(String hash) {
+        return dataDir.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static String hash(String storageKey) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return ChecksumUtils.toHex(sha256.digest(storageKey.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 algorithm not available", ex);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Failed to delete disk cache file {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private record Cached(String hash, long size, long modified) {}
+}
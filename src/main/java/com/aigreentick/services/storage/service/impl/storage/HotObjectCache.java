@@ -0,0 +1,268 @@
+package com.aigreentick.services.storage.service.impl.storage;
+
+import com.aigreentick.services.storage.config.properties.MediaServeProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size-bounded, off-heap cache of small, popular stored objects (campaign
+ * images during a broadcast), keyed by storage key.
+ *
+ * Bytes live in direct ByteBuffers, so a few hundred MB of hot images adds
+ * no GC pressure; the capacity counts against -XX:MaxDirectMemorySize.
+ * Storage keys are never reused for different content, so entries only
+ * leave through eviction or {@link #invalidate} on delete.
+ *
+ * Eviction is W-TinyLFU, byte-weighted:
+ * - New objects enter a small LRU window (1% of capacity).
+ * - Objects leaving the window compete with the main segment's LRU victim
+ *   on the {@link FrequencySketch} estimate; the more popular one stays.
+ * - The main segment is a segmented LRU: a hit in probation promotes to
+ *   protected (80% of main), overflow from protected falls back to probation.
+ * - Every lookup, hit or miss, feeds the sketch. Objects are only copied in
+ *   once they have been asked for before ({@link #admits}), so one-off
+ *   reads never displace anything.
+ *
+ * Lookups are a lock-free map read. The bookkeeping of a hit takes the lock
+ * only if it is free — under contention the LRU reorder is skipped, which
+ * costs a little precision and never blocks the serving thread.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HotObjectCache {
+
+    /** Sizing hint for the sketch: capacity / this ≈ number of objects held. */
+    private static final int ASSUMED_OBJECT_BYTES = 64 * 1024;
+
+    private final MediaServeProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Segment window = new Segment();
+    private final Segment probation = new Segment();
+    private final Segment protectedSegment = new Segment();
+
+    private FrequencySketch sketch;
+    private long windowCapacity;
+    private long mainCapacity;
+    private long protectedCapacity;
+    private Counter hits;
+    private Counter misses;
+
+    /** Runs the blocking read-ahead of fills for retrieveAsync. */
+    private final ExecutorService fillExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public boolean isEnabled() {
+        return properties.isHotCacheEnabled();
+    }
+
+    @PostConstruct
+    void init() {
+        if (!isEnabled()) return;
+        long capacity = properties.getHotCacheCapacityBytes();
+        windowCapacity = Math.max(1, capacity / 100);
+        mainCapacity = capacity - windowCapacity;
+        protectedCapacity = mainCapacity * 8 / 10;
+        sketch = new FrequencySketch((int) Math.min(Math.max(capacity / ASSUMED_OBJECT_BYTES, 1), 1 << 22));
+
+        hits = Counter.builder("media.hotcache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("media.hotcache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("media.hotcache.bytes", this, HotObjectCache::weightedSize).register(meterRegistry);
+        Gauge.builder("media.hotcache.objects", nodes, Map::size).register(meterRegistry);
+
+        log.info("Hot object cache enabled: capacity={} bytes, max object={} bytes",
+                capacity, properties.getHotCacheMaxObjectBytes());
+    }
+
+    @PreDestroy
+    void stop() {
+        fillExecutor.shutdown();
+    }
+
+    public ExecutorService fillExecutor() {
+        return fillExecutor;
+    }
+
+    // ── Lookup ───────────────────────────────────────────────────────────────
+
+    /** Read-only view of the cached bytes (position 0), or null on a miss. */
+    public ByteBuffer get(String storageKey) {
+        if (!isEnabled()) return null;
+
+        Node node = nodes.get(storageKey);
+        if (lock.tryLock()) {
+            try {
+                sketch.increment(storageKey);
+                if (node != null && node.segment != null) onHit(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return node.content.duplicate();
+    }
+
+    /** Whether an object of this size, asked for before, is worth copying in. */
+    public boolean admits(String storageKey, long size) {
+        return isEnabled()
+                && size <= properties.getHotCacheMaxObjectBytes()
+                && size <= mainCapacity
+                // Racy read of the sketch: an estimate either way
+                && sketch.frequency(storageKey) >= 2;
+    }
+
+    public long maxObjectBytes() {
+        return properties.getHotCacheMaxObjectBytes();
+    }
+
+    // ── Fill / invalidate ────────────────────────────────────────────────────
+
+    /**
+     * Caches a filled, flipped buffer (ideally direct) and returns a view of
+     * what is now cached — the existing entry if another thread got there first.
+     */
+    public ByteBuffer put(String storageKey, ByteBuffer content) {
+        if (!isEnabled()) return content;
+
+        lock.lock();
+        try {
+            Node existing = nodes.get(storageKey);
+            if (existing != null) return existing.content.duplicate();
+
+            Node node = new Node(storageKey, content.asReadOnlyBuffer());
+            nodes.put(storageKey, node);
+            window.linkLast(node);
+            evict();
+            return node.content.duplicate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(String storageKey) {
+        if (!isEnabled()) return;
+        lock.lock();
+        try {
+            Node node = nodes.remove(storageKey);
+            if (node != null && node.segment != null) {
+                node.segment.unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ── Policy (lock held) ───────────────────────────────────────────────────
+
+    private void onHit(Node node) {
+        if (node.segment == probation) {
+            probation.unlink(node);
+            protectedSegment.linkLast(node);
+            while (protectedSegment.bytes > protectedCapacity) {
+                Node demoted = protectedSegment.first;
+                protectedSegment.unlink(demoted);
+                probation.linkLast(demoted);
+            }
+        } else {
+            node.segment.moveToLast(node);
+        }
+    }
+
+    private void evict() {
+        while (window.bytes > windowCapacity) {
+            Node candidate = window.first;
+            window.unlink(candidate);
+            admitToMain(candidate);
+        }
+    }
+
+    /** The window's LRU entry against main's victims: the less popular side is dropped. */
+    private void admitToMain(Node candidate) {
+        int candidateFrequency = sketch.frequency(candidate.key);
+        while (probation.bytes + protectedSegment.bytes + candidate.size > mainCapacity) {
+            Node victim = probation.first != null ? probation.first : protectedSegment.first;
+            if (victim == null || candidateFrequency <= sketch.frequency(victim.key)) {
+                drop(candidate);
+                return;
+            }
+            victim.segment.unlink(victim);
+            drop(victim);
+        }
+        probation.linkLast(candidate);
+    }
+
+    private void drop(Node node) {
+        nodes.remove(node.key, node);
+    }
+
+    private long weightedSize() {
+        return window.bytes + probation.bytes + protectedSegment.bytes;
+    }
+
+    // ── Structures ───────────────────────────────────────────────────────────
+
+    private static final class Node {
+        final String key;
+        final ByteBuffer content;
+        final int size;
+        Segment segment;
+        Node prev;
+        Node next;
+
+        Node(String key, ByteBuffer content) {
+            this.key = key;
+            this.content = content;
+            this.size = content.remaining();
+        }
+    }
+
+    /** Intrusive LRU list: first is least recently used. Byte-weighted. */
+    private static final class Segment {
+        Node first;
+        Node last;
+        long bytes;
+
+        void linkLast(Node node) {
+            node.segment = this;
+            node.prev = last;
+            node.next = null;
+            if (last == null) first = node; else last.next = node;
+            last = node;
+            bytes += node.size;
+        }
+
+        void unlink(Node node) {
+            if (node.prev == null) first = node.next; else node.prev.next = node.next;
+            if (node.next == null) last = node.prev; else node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            node.segment = null;
+            bytes -= node.size;
+        }
+
+        void moveToLast(Node node) {
+            if (last == node) return;
+            unlink(node);
+            linkLast(node);
+        }
+    }
+}
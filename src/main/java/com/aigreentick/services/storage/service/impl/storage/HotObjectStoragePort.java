@@ -0,0 +1,156 @@
+package com.aigreentick.services.storage.service.impl.storage;
+
+import com.aigreentick.services.storage.dto.storage.StorageMetadata;
+import com.aigreentick.services.storage.dto.storage.StorageResult;
+import com.aigreentick.services.storage.enums.StorageProviderType;
+import com.aigreentick.services.storage.exception.StorageException;
+import com.aigreentick.services.storage.service.port.AsyncStoragePort;
+import com.aigreentick.services.storage.util.ByteBufferInputStream;
+import com.aigreentick.services.storage.util.StreamLengths;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decorator that answers retrieve() for hot small objects from the
+ * {@link HotObjectCache} instead of the provider.
+ *
+ * On a miss for a key the cache would admit, the object is read into memory
+ * and cached. Where the provider stream announces its length (S3
+ * content-length, a local file) admission is decided on that size up front.
+ * Otherwise up to max-object-bytes + 1 are read ahead: if the stream ends
+ * within that, the object is cached; if not, the caller gets the read-ahead
+ * followed by the rest of the provider stream and the key is remembered as
+ * too large, so it is never read ahead again. Keys seen for the first time
+ * are never read ahead.
+ *
+ * retrieveAsync does the read-ahead on the cache's fill executor, never on
+ * the provider's completion thread.
+ *
+ * Not a Spring component — created by StorageProviderConfig around the
+ * selected provider, like {@link MeteringStoragePort}.
+ */
+@Slf4j
+public class HotObjectStoragePort implements AsyncStoragePort {
+
+    private static final int MAX_OVERSIZE_KEYS = 10_000;
+
+    private final AsyncStoragePort delegate;
+    private final HotObjectCache cache;
+
+    /** Keys read ahead past max-object-bytes; bounded, eldest dropped first. */
+    private final Set<String> oversize = Collections.synchronizedSet(Collections.newSetFromMap(
+            new LinkedHashMap<>(256, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_OVERSIZE_KEYS;
+                }
+            }));
+
+    public HotObjectStoragePort(AsyncStoragePort delegate, HotObjectCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    // ── Reads ────────────────────────────────────────────────────────────────
+
+    @Override
+    public InputStream retrieve(String storageKey) throws StorageException {
+        ByteBuffer cached = cache.get(storageKey);
+        if (cached != null) return new ByteBufferInputStream(cached);
+        return fill(storageKey, delegate.retrieve(storageKey));
+    }
+
+    @Override
+    public CompletableFuture<InputStream> retrieveAsync(String storageKey) {
+        ByteBuffer cached = cache.get(storageKey);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(new ByteBufferInputStream(cached));
+        }
+        return delegate.retrieveAsync(storageKey)
+                .thenApplyAsync(in -> fill(storageKey, in), cache.fillExecutor());
+    }
+
+    private InputStream fill(String storageKey, InputStream in) {
+        long known = StreamLengths.known(in);
+        if (known >= 0 ? !cache.admits(storageKey, known)
+                : oversize.contains(storageKey) || !cache.admits(storageKey, 0)) {
+            return in;
+        }
+        long max = cache.maxObjectBytes();
+        try {
+            byte[] head = in.readNBytes((int) Math.min(max + 1, Integer.MAX_VALUE));
+            if (head.length > max) {
+                oversize.add(storageKey);
+                return new SequenceInputStream(new ByteArrayInputStream(head), in);
+            }
+            in.close();
+            ByteBuffer content = ByteBuffer.allocateDirect(head.length).put(head).flip();
+            return new ByteBufferInputStream(cache.put(storageKey, content));
+        } catch (IOException ex) {
+            closeQuietly(in);
+            throw new StorageException("Failed to read object", ex, delegate.getProviderType(), storageKey);
+        }
+    }
+
+    // ── Invalidation ─────────────────────────────────────────────────────────
+
+    @Override
+    public boolean delete(String storageKey) throws StorageException {
+        cache.invalidate(storageKey);
+        oversize.remove(storageKey);
+        return delegate.delete(storageKey);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String storageKey) {
+        cache.invalidate(storageKey);
+        oversize.remove(storageKey);
+        return delegate.deleteAsync(storageKey);
+    }
+
+    // ── Pass-through ─────────────────────────────────────────────────────────
+
+    @Override
+    public StorageResult save(InputStream inputStream, StorageMetadata metadata) throws StorageException {
+        return delegate.save(inputStream, metadata);
+    }
+
+    @Override
+    public CompletableFuture<StorageResult> saveAsync(InputStream inputStream, StorageMetadata metadata) {
+        return delegate.saveAsync(inputStream, metadata);
+    }
+
+    @Override
+    public boolean exists(String storageKey) {
+        return delegate.exists(storageKey);
+    }
+
+    @Override
+    public String getPublicUrl(String storageKey, Duration expiry) {
+        return delegate.getPublicUrl(storageKey, expiry);
+    }
+
+    @Override
+    public StorageProviderType getProviderType() {
+        return delegate.getProviderType();
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ex) {
+            log.debug("Failed to close provider stream: {}", ex.getMessage());
+        }
+    }
+}
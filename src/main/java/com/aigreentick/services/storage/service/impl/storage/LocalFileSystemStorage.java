@@ -7,26 +7,54 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import com.aigreentick.services.storage.config.properties.provider.LocalStorageProperties;
+import com.aigreentick.services.storage.dto.storage.ChunkPart;
 import com.aigreentick.services.storage.dto.storage.StorageMetadata;
 import com.aigreentick.services.storage.dto.storage.StorageResult;
 import com.aigreentick.services.storage.enums.StorageProviderType;
 import com.aigreentick.services.storage.exception.StorageException;
-import com.aigreentick.services.storage.service.port.StoragePort;
+import com.aigreentick.services.storage.service.port.AsyncStoragePort;
+import com.aigreentick.services.storage.service.port.ChunkedUploadPort;
+
+import jakarta.annotation.PreDestroy;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 @ConditionalOnProperty(prefix = "storage.providers.local", name = "enabled", havingValue = "true")
-public class LocalFileSystemStorage implements StoragePort {
+public class LocalFileSystemStorage implements AsyncStoragePort, ChunkedUploadPort {
+
+    private static final int ASYNC_WRITE_BUFFER_SIZE = 64 * 1024;
     
     private final LocalStorageProperties properties;
+
+    /** Completion-handler pool for AsynchronousFileChannel I/O. */
+    private final ExecutorService ioExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdown();
+    }
     
     @Override
     public StorageResult save(InputStream inputStream, StorageMetadata metadata) throws StorageException {
@@ -42,15 +70,7 @@ public class LocalFileSystemStorage implements StoragePort {
             
             log.info("File saved to local storage: {}", storageKey);
             
-            return StorageResult.builder()
-                    .storageKey(storageKey)
-                    .publicUrl(properties.getBaseUrl() + storageKey)
-                    .provider(StorageProviderType.LOCAL)
-                    .bucket(properties.getRootPath())
-                    .region("local")
-                    .fileSize(metadata.getFileSize())
-                    .contentType(metadata.getContentType())
-                    .build();
+            return buildResult(storageKey, metadata);
                     
         } catch (IOException e) {
             log.error("Failed to save file to local storage", e);
@@ -58,6 +78,147 @@ public class LocalFileSystemStorage implements StoragePort {
         }
     }
     
+    @Override
+    public CompletableFuture<StorageResult> saveAsync(InputStream inputStream, StorageMetadata metadata) {
+        String storageKey = metadata.generateStorageKey();
+        Path filePath = resolveFilePath(storageKey);
+        CompletableFuture<StorageResult> result = new CompletableFuture<>();
+
+        try {
+            Files.createDirectories(filePath.getParent());
+            AsynchronousFileChannel channel = AsynchronousFileChannel.open(filePath,
+                    EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING),
+                    ioExecutor);
+
+            CompletableFuture<Long> written = new CompletableFuture<>();
+            // Kick off from the I/O pool so the caller never blocks on the first read
+            ioExecutor.execute(() -> writeNextChunk(channel, inputStream,
+                    ByteBuffer.allocate(ASYNC_WRITE_BUFFER_SIZE), 0L, written));
+
+            written.whenComplete((bytes, ex) -> {
+                closeQuietly(channel);
+                if (ex != null) {
+                    log.error("Failed to save file to local storage (async): {}", storageKey, ex);
+                    deleteQuietly(filePath);
+                    result.completeExceptionally(new StorageException(
+                            "Failed to save file to local storage", ex, StorageProviderType.LOCAL, storageKey));
+                    return;
+                }
+                log.info("File saved to local storage (async): {} ({} bytes)", storageKey, bytes);
+                result.complete(buildResult(storageKey, metadata));
+            });
+
+        } catch (IOException e) {
+            log.error("Failed to open local file for async write: {}", storageKey, e);
+            result.completeExceptionally(new StorageException(
+                    "Failed to save file to local storage", e, StorageProviderType.LOCAL, storageKey));
+        }
+        return result;
+    }
+
+    /**
+     * Read one chunk from the source stream and write it at {@code position};
+     * the completion handler schedules the next chunk until EOF.
+     */
+    private void writeNextChunk(AsynchronousFileChannel channel, InputStream in, ByteBuffer buffer,
+                                long position, CompletableFuture<Long> done) {
+        try {
+            buffer.clear();
+            int read = in.read(buffer.array(), 0, buffer.capacity());
+            if (read == -1) {
+                done.complete(position);
+                return;
+            }
+            buffer.limit(read);
+
+            channel.write(buffer, position, position, new CompletionHandler<Integer, Long>() {
+                @Override
+                public void completed(Integer bytesWritten, Long writePosition) {
+                    long next = writePosition + bytesWritten;
+                    if (buffer.hasRemaining()) {
+                        channel.write(buffer, next, next, this);   // partial write
+                    } else {
+                        writeNextChunk(channel, in, buffer, next, done);
+                    }
+                }
+
+                @Override
+                public void failed(Throwable ex, Long writePosition) {
+                    done.completeExceptionally(ex);
+                }
+            });
+        } catch (Exception ex) {
+            done.completeExceptionally(ex);
+        }
+    }
+
+    // ── Resumable uploads (preallocated staging file) ────────────────────────
+
+    @Override
+    public String initiateChunked(String storageKey, StorageMetadata metadata) throws StorageException {
+        String uploadId = UUID.randomUUID().toString();
+        Path staging = resolveStagingPath(storageKey, uploadId);
+        try {
+            Files.createDirectories(staging.getParent());
+            // Reserve the full length up front so parts can land at any offset
+            try (RandomAccessFile file = new RandomAccessFile(staging.toFile(), "rw")) {
+                file.setLength(metadata.getFileSize());
+            }
+            log.info("Chunked upload staged: key={} size={}", storageKey, metadata.getFileSize());
+            return uploadId;
+        } catch (IOException e) {
+            deleteQuietly(staging);
+            log.error("Failed to preallocate staging file: {}", staging, e);
+            throw new StorageException("Failed to start chunked upload", e, StorageProviderType.LOCAL, storageKey);
+        }
+    }
+
+    @Override
+    public String writeChunk(String storageKey, String uploadId, ChunkPart part, InputStream data)
+            throws StorageException {
+        Path staging = resolveStagingPath(storageKey, uploadId);
+        try (FileChannel channel = FileChannel.open(staging, StandardOpenOption.WRITE)) {
+            ReadableByteChannel source = Channels.newChannel(data);
+            long position = part.getOffset();
+            long end = part.getOffset() + part.getSize();
+            while (position < end) {
+                long transferred = channel.transferFrom(source, position, end - position);
+                if (transferred <= 0) {
+                    throw new EOFException(String.format("Part %d ended after %d of %d bytes",
+                            part.getPartNumber(), position - part.getOffset(), part.getSize()));
+                }
+                position += transferred;
+            }
+            return null;
+        } catch (NoSuchFileException e) {
+            throw new StorageException("Chunked upload not found: " + storageKey, e, StorageProviderType.LOCAL, storageKey);
+        } catch (IOException e) {
+            log.error("Failed to write part {} for key={}", part.getPartNumber(), storageKey, e);
+            throw new StorageException("Failed to write part " + part.getPartNumber(), e, StorageProviderType.LOCAL, storageKey);
+        }
+    }
+
+    @Override
+    public StorageResult completeChunked(String storageKey, String uploadId, StorageMetadata metadata,
+                                         List<ChunkPart> parts) throws StorageException {
+        Path staging = resolveStagingPath(storageKey, uploadId);
+        try {
+            // Same directory, so the rename is atomic — readers never see a partial object
+            Files.move(staging, resolveFilePath(storageKey), StandardCopyOption.ATOMIC_MOVE);
+            log.info("Chunked upload completed: key={} parts={}", storageKey, parts.size());
+            return buildResult(storageKey, metadata);
+        } catch (IOException e) {
+            log.error("Failed to finalise chunked upload: key={}", storageKey, e);
+            throw new StorageException("Failed to complete chunked upload", e, StorageProviderType.LOCAL, storageKey);
+        }
+    }
+
+    @Override
+    public void abortChunked(String storageKey, String uploadId) {
+        deleteQuietly(resolveStagingPath(storageKey, uploadId));
+    }
+
     @Override
     public InputStream retrieve(String storageKey) throws StorageException {
         try {
@@ -75,6 +236,12 @@ public class LocalFileSystemStorage implements StoragePort {
         }
     }
     
+    @Override
+    public CompletableFuture<InputStream> retrieveAsync(String storageKey) {
+        // Opening a local file is a metadata-only call; the stream itself is read by the caller
+        return CompletableFuture.supplyAsync(() -> retrieve(storageKey), ioExecutor);
+    }
+
     @Override
     public boolean delete(String storageKey) throws StorageException {
         try {
@@ -95,6 +262,11 @@ public class LocalFileSystemStorage implements StoragePort {
         }
     }
     
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String storageKey) {
+        return CompletableFuture.supplyAsync(() -> delete(storageKey), ioExecutor);
+    }
+
     @Override
     public boolean exists(String storageKey) {
         Path filePath = resolveFilePath(storageKey);
@@ -115,4 +287,36 @@ public class LocalFileSystemStorage implements StoragePort {
     private Path resolveFilePath(String storageKey) {
         return Paths.get(properties.getRootPath(), storageKey).normalize();
     }
+
+    private Path resolveStagingPath(String storageKey, String uploadId) {
+        return Paths.get(properties.getRootPath(), storageKey + "." + uploadId + ".part").normalize();
+    }
+
+    private StorageResult buildResult(String storageKey, StorageMetadata metadata) {
+        return StorageResult.builder()
+                .storageKey(storageKey)
+                .publicUrl(properties.getBaseUrl() + storageKey)
+                .provider(StorageProviderType.LOCAL)
+                .bucket(properties.getRootPath())
+                .region("local")
+                .fileSize(metadata.getFileSize())
+                .contentType(metadata.getContentType())
+                .build();
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.warn("Failed to close channel: {}", e.getMessage());
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to remove partial file {}: {}", path, e.getMessage());
+        }
+    }
 }
\ No newline at end of file
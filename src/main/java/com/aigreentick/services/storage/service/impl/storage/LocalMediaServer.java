@@ -0,0 +1,320 @@
+package com.aigreentick.services.storage.service.impl.storage;
+
+import com.aigreentick.services.storage.config.properties.provider.LocalStorageProperties;
+import com.aigreentick.services.storage.dto.storage.MediaServeMetadata;
+import com.aigreentick.services.storage.exception.MediaNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serving engine for locally stored media.
+ *
+ * - Bodies never pass through the heap: a full file or single range of a
+ *   hot small object is written from the off-heap {@link HotObjectCache};
+ *   otherwise it is handed to Tomcat's sendfile when the connector supports
+ *   it, or (and for multi-range) FileChannel.transferTo copies straight into
+ *   the response channel.
+ * - Range: single ranges answer 206 with Content-Range, several answer
+ *   multipart/byteranges, unsatisfiable ones 416. If-Range is honoured.
+ * - Conditional GET: strong ETag, If-None-Match before If-Modified-Since,
+ *   304 without a body.
+ * - HEAD: the same headers as GET, no body.
+ * - Headers come from the {@link MediaMetadataIndex}, so 304s and HEADs for
+ *   indexed objects touch neither disk nor MySQL. Objects without a media
+ *   row fall back to the file's size and mtime, and its extension for the
+ *   content type.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocalMediaServer {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /** More ranges than this are answered with the whole file. */
+    private static final int MAX_RANGES = 16;
+
+    private static final String CACHE_CONTROL = "public, max-age=86400";
+
+    private final LocalStorageProperties properties;
+    private final MediaMetadataIndex metadataIndex;
+    private final HotObjectCache hotCache;
+
+    public void serve(String storageKey, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path file = resolve(storageKey);
+        MediaServeMetadata metadata = metadataIndex.lookup(storageKey);
+        if (metadata == null) {
+            metadata = fromFile(file, storageKey);
+        }
+
+        long length = metadata.size();
+        long lastModified = metadata.lastModified();
+        String etag = metadata.etag();
+        String contentType = metadata.mimeType();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        boolean head = "HEAD".equals(request.getMethod());
+        List<HttpRange> ranges = requestedRanges(request, etag, lastModified);
+
+        // ── Whole file ───────────────────────────────────────────────────
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!head) send(storageKey, request, response, file, length, 0, length);
+            return;
+        }
+
+        // ── Validate ranges ──────────────────────────────────────────────
+        List<long[]> spans = new ArrayList<>(ranges.size());
+        try {
+            for (HttpRange range : ranges) {
+                spans.add(new long[] { range.getRangeStart(length), range.getRangeEnd(length) });
+            }
+        } catch (IllegalArgumentException ex) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setContentLengthLong(0);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        // ── Single range ─────────────────────────────────────────────────
+        if (spans.size() == 1) {
+            long start = spans.get(0)[0];
+            long end = spans.get(0)[1];
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!head) send(storageKey, request, response, file, length, start, end + 1);
+            return;
+        }
+
+        // ── Multiple ranges: multipart/byteranges ────────────────────────
+        String boundary = UUID.randomUUID().toString();
+        List<byte[]> partHeaders = new ArrayList<>(spans.size());
+        long contentLength = 0;
+        for (long[] span : spans) {
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + span[0] + "-" + span[1] + "/" + length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + (span[1] - span[0] + 1);
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) return;
+
+        try (FileChannel channel = open(storageKey, file)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            for (int i = 0; i < spans.size(); i++) {
+                out.write(partHeaders.get(i));
+                transfer(channel, spans.get(i)[0], spans.get(i)[1] + 1, target);
+            }
+            out.write(closing);
+        }
+    }
+
+    // ── Conditional requests ─────────────────────────────────────────────────
+
+    private boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // Weak comparison, as RFC 9110 requires for If-None-Match
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || stripWeak(tag).equals(etag)) return true;
+            }
+            return false;
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        // HTTP dates have whole-second precision
+        return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /** Parsed Range header, or empty to serve the whole file. */
+    private List<HttpRange> requestedRanges(HttpServletRequest request, String etag, long lastModified) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !header.startsWith("bytes=")) return List.of();
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            boolean current = ifRange.startsWith("\"")
+                    ? ifRange.trim().equals(etag)
+                    : dateHeader(request, HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+            if (!current) return List.of();
+        }
+
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() > MAX_RANGES ? List.of() : ranges;
+        } catch (IllegalArgumentException ex) {
+            // Malformed Range headers are ignored (RFC 9110 §14.2)
+            return List.of();
+        }
+    }
+
+    // ── Body ─────────────────────────────────────────────────────────────────
+
+    /**
+     * Sends [start, end) of the file: from the hot-object cache when it holds
+     * (or now admits) the object, else sendfile when available, else transferTo.
+     */
+    private void send(String storageKey, HttpServletRequest request, HttpServletResponse response,
+                      Path file, long length, long start, long end) throws IOException {
+        ByteBuffer cached = cachedBody(storageKey, file, length);
+        if (cached != null) {
+            cached.limit((int) end).position((int) start);
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            while (cached.hasRemaining()) {
+                target.write(cached);
+            }
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat opens the file only after the headers are out
+            if (!Files.isRegularFile(file)) {
+                metadataIndex.evict(storageKey);
+                throw new MediaNotFoundException("File not found: " + storageKey);
+            }
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel channel = open(storageKey, file)) {
+            transfer(channel, start, end, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    /** The whole object from the hot-object cache, loading it if it is now popular enough; else null. */
+    private ByteBuffer cachedBody(String storageKey, Path file, long length) throws IOException {
+        if (!hotCache.isEnabled() || length > hotCache.maxObjectBytes()) return null;
+
+        ByteBuffer cached = hotCache.get(storageKey);
+        if (cached != null && cached.remaining() != length) {
+            hotCache.invalidate(storageKey);
+            cached = null;
+        }
+        if (cached != null || !hotCache.admits(storageKey, length)) return cached;
+
+        ByteBuffer content = ByteBuffer.allocateDirect((int) length);
+        try (FileChannel channel = open(storageKey, file)) {
+            while (content.hasRemaining()) {
+                if (channel.read(content) < 0) break;
+            }
+        }
+        // Size changed under the index — leave it to the file path
+        if (content.hasRemaining()) return null;
+        return hotCache.put(storageKey, content.flip());
+    }
+
+    /** Opens the file before anything is written, so a missing file is still a clean 404. */
+    private FileChannel open(String storageKey, Path file) throws IOException {
+        try {
+            return FileChannel.open(file, StandardOpenOption.READ);
+        } catch (NoSuchFileException ex) {
+            metadataIndex.evict(storageKey);
+            throw new MediaNotFoundException("File not found: " + storageKey);
+        }
+    }
+
+    private void transfer(FileChannel channel, long start, long end, WritableByteChannel target)
+            throws IOException {
+        long position = start;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, target);
+            if (sent <= 0) break;
+            position += sent;
+        }
+    }
+
+    // ── Helpers ──────────────────────────────────────────────────────────────
+
+    /** Headers from the file itself, for objects with no media row. */
+    private MediaServeMetadata fromFile(Path file, String storageKey) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            throw new MediaNotFoundException("File not found: " + storageKey);
+        }
+        if (!attrs.isRegularFile()) {
+            throw new MediaNotFoundException("File not found: " + storageKey);
+        }
+        String contentType = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+        return MediaServeMetadata.of(contentType, attrs.size(), attrs.lastModifiedTime().toMillis());
+    }
+
+    private Path resolve(String storageKey) {
+        // Prevent path traversal
+        if (storageKey.contains("..")) {
+            throw new MediaNotFoundException("Invalid path: " + storageKey);
+        }
+        Path root = Paths.get(properties.getRootPath()).normalize();
+        Path file = root.resolve(storageKey).normalize();
+        // Ensure resolved path is still within root
+        if (!file.startsWith(root)) {
+            throw new MediaNotFoundException("Invalid path: " + storageKey);
+        }
+        return file;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException ex) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.aigreentick.services.storage.service.impl.storage;
+
+import com.aigreentick.services.storage.config.properties.MediaServeProperties;
+import com.aigreentick.services.storage.dto.storage.MediaServeMetadata;
+import com.aigreentick.services.storage.enums.MediaStatus;
+import com.aigreentick.services.storage.repository.MediaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, lazily loaded index from storage key to serving headers
+ * (content type, size, ETag, Last-Modified), so repeat requests for the same
+ * object resolve their headers and 304s from memory.
+ *
+ * A miss reads the ACTIVE media row once. Keys without a row are remembered
+ * for 'negative-ttl' only, and the caller falls back to the file itself.
+ * Storage keys are never reused for different content, so positive entries
+ * need no expiry; they are dropped when their row is inserted or deleted on
+ * this node, and otherwise only by eviction.
+ *
+ * Eviction is CLOCK-style second chance: a hit marks the entry, and when the
+ * index is full one thread walks it, clearing marks and removing unmarked
+ * entries until it is back to 90% of 'max-entries'.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MediaMetadataIndex {
+
+    private final MediaServeProperties properties;
+    private final MediaRepository mediaRepository;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public boolean isEnabled() {
+        return properties.isMetadataIndexEnabled();
+    }
+
+    /** Headers for the key, or null if it has no ACTIVE media row. */
+    public MediaServeMetadata lookup(String storageKey) {
+        if (!isEnabled()) return null;
+
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(storageKey);
+        if (entry != null && (entry.metadata != null || entry.expiresAt > now)) {
+            entry.referenced = true;
+            return entry.metadata;
+        }
+
+        MediaServeMetadata metadata = mediaRepository
+                .findFirstByStorageKeyAndStatusOrderByIdAsc(storageKey, MediaStatus.ACTIVE)
+                .map(MediaServeMetadata::of)
+                .orElse(null);
+        long expiresAt = metadata != null
+                ? Long.MAX_VALUE
+                : now + properties.getMetadataIndexNegativeTtl().toMillis();
+        install(storageKey, entry, new Entry(metadata, expiresAt));
+        return metadata;
+    }
+
+    // ── Invalidation ─────────────────────────────────────────────────────────
+
+    public void evict(String storageKey) {
+        entries.remove(storageKey);
+    }
+
+    /** Drops the key once the current transaction completes (row inserted or deleted). */
+    public void evictAfterCommit(String storageKey) {
+        if (!isEnabled() || storageKey == null) return;
+        afterCompletion(() -> evict(storageKey));
+    }
+
+    /** Bulk deletes: drops every key under the prefix once the transaction completes. */
+    public void evictPrefixAfterCommit(String prefix) {
+        if (!isEnabled()) return;
+        afterCompletion(() -> entries.keySet().removeIf(key -> key.startsWith(prefix)));
+    }
+
+    private void afterCompletion(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+
+    // ── Bounding ─────────────────────────────────────────────────────────────
+
+    private void install(String storageKey, Entry seen, Entry fresh) {
+        if (seen == null && entries.size() >= properties.getMetadataIndexMaxEntries()) {
+            if (evictionLock.tryLock()) {
+                try {
+                    evict();
+                } finally {
+                    evictionLock.unlock();
+                }
+            }
+            // Still full (another thread is evicting) — answer uncached rather than grow
+            if (entries.size() >= properties.getMetadataIndexMaxEntries()) return;
+        }
+        // An eviction of this key in the meantime wins over the load
+        if (seen == null) {
+            entries.putIfAbsent(storageKey, fresh);
+        } else {
+            entries.replace(storageKey, seen, fresh);
+        }
+    }
+
+    private void evict() {
+        int target = properties.getMetadataIndexMaxEntries() * 9 / 10;
+        long now = System.currentTimeMillis();
+        int before = entries.size();
+        // Two passes: the first may only clear marks
+        for (int pass = 0; pass < 2 && entries.size() > target; pass++) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext() && entries.size() > target) {
+                Entry e = it.next();
+                if (e.metadata == null && e.expiresAt <= now) {
+                    it.remove();
+                } else if (e.referenced) {
+                    e.referenced = false;
+                } else {
+                    it.remove();
+                }
+            }
+        }
+        log.debug("Media metadata index evicted {} entries", before - entries.size());
+    }
+
+    /** metadata is null for a negative entry. Identity matters for replace(). */
+    private static final class Entry {
+        final MediaServeMetadata metadata;
+        final long expiresAt;
+        volatile boolean referenced;
+
+        Entry(MediaServeMetadata metadata, long expiresAt) {
+            this.metadata = metadata;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.aigreentick.services.storage.service.impl.storage;
+
+import com.aigreentick.services.storage.dto.storage.StorageMetadata;
+import com.aigreentick.services.storage.dto.storage.StorageResult;
+import com.aigreentick.services.storage.enums.StorageProviderType;
+import com.aigreentick.services.storage.exception.StorageException;
+import com.aigreentick.services.storage.service.port.AsyncStoragePort;
+import com.aigreentick.services.storage.util.DigestingInputStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Decorator around the active provider that meters every write.
+ *
+ * The provider reads the upload through a {@link DigestingInputStream}, so
+ * SHA-256, byte count and optionally CRC32C come out of the same pass that
+ * stores the bytes. They are returned on the {@link StorageResult}, and the
+ * SHA-256 is also the deduplication key (MediaDeduplicationService). If the
+ * byte count differs from the declared size, the object is deleted and the
+ * save fails.
+ *
+ * Not a Spring component — created by StorageProviderConfig around the
+ * selected provider so it never shows up in the provider list.
+ */
+@Slf4j
+public class MeteringStoragePort implements AsyncStoragePort {
+
+    private final AsyncStoragePort delegate;
+    private final boolean computeCrc32c;
+
+    public MeteringStoragePort(AsyncStoragePort delegate, boolean computeCrc32c) {
+        this.delegate = delegate;
+        this.computeCrc32c = computeCrc32c;
+    }
+
+    @Override
+    public StorageResult save(InputStream inputStream, StorageMetadata metadata) throws StorageException {
+        DigestingInputStream metered = new DigestingInputStream(inputStream, computeCrc32c);
+        return complete(delegate.save(metered, metadata), metered, metadata);
+    }
+
+    @Override
+    public CompletableFuture<StorageResult> saveAsync(InputStream inputStream, StorageMetadata metadata) {
+        DigestingInputStream metered = new DigestingInputStream(inputStream, computeCrc32c);
+        return delegate.saveAsync(metered, metadata)
+                .thenApply(result -> complete(result, metered, metadata));
+    }
+
+    private StorageResult complete(StorageResult result, DigestingInputStream metered, StorageMetadata metadata) {
+        long actual = metered.getByteCount();
+        Long declared = metadata.getFileSize();
+        if (declared != null && declared != actual) {
+            log.error("Stored size mismatch: key={} declared={} actual={}", result.getStorageKey(), declared, actual);
+            try {
+                delegate.delete(result.getStorageKey());
+            } catch (Exception ex) {
+                log.warn("Failed to delete short/long object key={}: {}", result.getStorageKey(), ex.getMessage());
+            }
+            throw new StorageException(
+                    String.format("Stored %d bytes but %d were declared", actual, declared),
+                    delegate.getProviderType(), result.getStorageKey());
+        }
+
+        result.setFileSize(actual);
+        result.setChecksumSha256(metered.getSha256Hex());
+        if (computeCrc32c) {
+            result.setChecksumCrc32c(metered.getCrc32cBase64());
+        }
+        return result;
+    }
+
+    // ── Pass-through ─────────────────────────────────────────────────────────
+
+    @Override
+    public InputStream retrieve(String storageKey) throws StorageException {
+        return delegate.retrieve(storageKey);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> retrieveAsync(String storageKey) {
+        return delegate.retrieveAsync(storageKey);
+    }
+
+    @Override
+    public boolean delete(String storageKey) throws StorageException {
+        return delegate.delete(storageKey);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String storageKey) {
+        return delegate.deleteAsync(storageKey);
+    }
+
+    @Override
+    public boolean exists(String storageKey) {
+        return delegate.exists(storageKey);
+    }
+
+    @Override
+    public String getPublicUrl(String storageKey, Duration expiry) {
+        return delegate.getPublicUrl(storageKey, expiry);
+    }
+
+    @Override
+    public StorageProviderType getProviderType() {
+        return delegate.getProviderType();
+    }
+}
@@ -0,0 +1,85 @@
+package com.aigreentick.services.storage.service.impl.storage;
+
+import com.aigreentick.services.storage.config.properties.provider.S3StorageProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Expiry-aware cache of presigned GET URLs, keyed by (storageKey, duration bucket).
+ *
+ * Requested lifetimes are rounded up to whole minutes so callers asking for
+ * 14m59s and 15m share an entry. A cached URL is handed out again while at
+ * least presigned-url-min-remaining-ratio of its bucket is still left on it,
+ * so every caller gets a URL that stays valid for a useful while.
+ *
+ * Storage keys are never reused for different content, so entries are not
+ * evicted on delete — a URL to a deleted object simply 404s, as a freshly
+ * signed one would.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "storage.providers.s3", name = "enabled", havingValue = "true")
+public class PresignedUrlCache {
+
+    /** S3 rejects presigned URLs valid for longer than 7 days. */
+    private static final Duration MAX_EXPIRY = Duration.ofDays(7);
+
+    private final S3StorageProperties properties;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /** The lifetime to sign with for a requested expiry: whole minutes, at least one, at most 7 days. */
+    public Duration bucket(Duration expiry) {
+        long minutes = Math.max(1, (expiry.toSeconds() + 59) / 60);
+        Duration bucket = Duration.ofMinutes(minutes);
+        return bucket.compareTo(MAX_EXPIRY) > 0 ? MAX_EXPIRY : bucket;
+    }
+
+    /** A still-valid URL for this key and bucket, or null if one must be signed. */
+    public String get(String storageKey, Duration bucket) {
+        if (!properties.isPresignedUrlCacheEnabled()) return null;
+        Key key = new Key(storageKey, bucket.toSeconds());
+        Entry entry = entries.get(key);
+        if (entry == null) return null;
+        if (!isReusable(key, entry, Instant.now())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.url();
+    }
+
+    public void put(String storageKey, Duration bucket, String url, Instant expiresAt) {
+        if (!properties.isPresignedUrlCacheEnabled()) return;
+        if (entries.size() >= properties.getPresignedUrlCacheMaxEntries()) {
+            sweep();
+            if (entries.size() >= properties.getPresignedUrlCacheMaxEntries()) {
+                // Full of live entries — serve this one uncached rather than grow
+                return;
+            }
+        }
+        entries.put(new Key(storageKey, bucket.toSeconds()), new Entry(url, expiresAt));
+    }
+
+    private void sweep() {
+        Instant now = Instant.now();
+        int before = entries.size();
+        entries.entrySet().removeIf(e -> !isReusable(e.getKey(), e.getValue(), now));
+        log.debug("Presigned URL cache sweep removed {} entries", before - entries.size());
+    }
+
+    private boolean isReusable(Key key, Entry entry, Instant now) {
+        long minRemainingMillis = (long) (key.bucketSeconds() * 1000 * properties.getPresignedUrlMinRemainingRatio());
+        return Duration.between(now, entry.expiresAt()).toMillis() >= minRemainingMillis;
+    }
+
+    private record Key(String storageKey, long bucketSeconds) {}
+
+    private record Entry(String url, Instant expiresAt) {}
+}
@@ -6,39 +6,69 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import com.aigreentick.services.storage.config.properties.provider.S3StorageProperties;
+import com.aigreentick.services.storage.dto.storage.ChunkPart;
+import com.aigreentick.services.storage.dto.storage.ObjectHead;
+import com.aigreentick.services.storage.dto.storage.PresignedUpload;
 import com.aigreentick.services.storage.dto.storage.StorageMetadata;
 import com.aigreentick.services.storage.dto.storage.StorageResult;
 import com.aigreentick.services.storage.enums.StorageProviderType;
 import com.aigreentick.services.storage.exception.StorageException;
-import com.aigreentick.services.storage.service.port.StoragePort;
+import com.aigreentick.services.storage.service.port.AsyncStoragePort;
+import com.aigreentick.services.storage.service.port.ChunkedUploadPort;
+import com.aigreentick.services.storage.service.port.DirectUploadPort;
+
+import jakarta.annotation.PreDestroy;
 
 import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedPutObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedUploadPartRequest;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
 import software.amazon.awssdk.transfer.s3.model.CompletedUpload;
 import software.amazon.awssdk.transfer.s3.model.Upload;
 import software.amazon.awssdk.transfer.s3.model.UploadRequest;
 
 import java.io.InputStream;
+import java.net.URL;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 @ConditionalOnProperty(prefix = "storage.providers.s3", name = "enabled", havingValue = "true")
-public class S3StorageAdapter implements StoragePort {
+public class S3StorageAdapter implements AsyncStoragePort, ChunkedUploadPort, DirectUploadPort {
 
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
     private final S3TransferManager transferManager;
+    private final S3Presigner presigner;
+    private final PresignedUrlCache urlCache;
     private final S3StorageProperties properties;
 
+    /** Drains caller InputStreams into async request bodies (blocking reads, cheap virtual threads). */
+    private final ExecutorService streamReadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PreDestroy
+    public void shutdown() {
+        streamReadExecutor.shutdown();
+    }
+
     @Override
     public StorageResult save(InputStream inputStream, StorageMetadata metadata) throws StorageException {
         try {
@@ -48,44 +78,63 @@ public class S3StorageAdapter implements StoragePort {
             if (metadata.getFileSize() < properties.getMultipartThresholdBytes()) {
                 uploadSmallFile(inputStream, storageKey, metadata);
             } else {
-                uploadLargeFile(inputStream, storageKey, metadata);
+                // Blocking contract — wait for the transfer here, callers wanting
+                // to stay non-blocking use saveAsync instead
+                uploadLargeFile(inputStream, storageKey, metadata).join();
             }
 
             log.info("File uploaded to S3: bucket={}, key={}", properties.getBucket(), storageKey);
 
-            return StorageResult.builder()
-                    .storageKey(storageKey)
-                    .publicUrl(generatePublicUrl(storageKey))
-                    .provider(StorageProviderType.S3)
-                    .bucket(properties.getBucket())
-                    .region(properties.getRegion())
-                    .fileSize(metadata.getFileSize())
-                    .contentType(metadata.getContentType())
-                    .build();
+            return buildResult(storageKey, metadata);
 
         } catch (Exception e) {
             log.error("Failed to upload file to S3", e);
-            throw new StorageException("Failed to upload file to S3", e, StorageProviderType.S3);
+            throw new StorageException("Failed to upload file to S3", unwrap(e), StorageProviderType.S3);
         }
     }
 
+    @Override
+    public CompletableFuture<StorageResult> saveAsync(InputStream inputStream, StorageMetadata metadata) {
+        String storageKey = metadata.generateStorageKey();
+
+        CompletableFuture<?> transfer;
+        try {
+            transfer = metadata.getFileSize() < properties.getMultipartThresholdBytes()
+                    ? s3AsyncClient.putObject(buildPutRequest(storageKey, metadata),
+                            AsyncRequestBody.fromInputStream(inputStream, metadata.getFileSize(), streamReadExecutor))
+                    : uploadLargeFile(inputStream, storageKey, metadata);
+        } catch (Exception e) {
+            transfer = CompletableFuture.failedFuture(e);
+        }
+
+        return transfer.handle((ignored, ex) -> {
+            if (ex != null) {
+                log.error("Failed to upload file to S3 (async): key={}", storageKey, unwrap(ex));
+                throw new StorageException("Failed to upload file to S3", unwrap(ex), StorageProviderType.S3, storageKey);
+            }
+            log.info("File uploaded to S3 (async): bucket={}, key={}", properties.getBucket(), storageKey);
+            return buildResult(storageKey, metadata);
+        });
+    }
+
     private void uploadSmallFile(InputStream inputStream, String storageKey, StorageMetadata metadata) {
-        Map<String, String> metadataMap = buildMetadata(metadata);
+        s3Client.putObject(buildPutRequest(storageKey, metadata),
+                RequestBody.fromInputStream(inputStream, metadata.getFileSize()));
+    }
 
-        PutObjectRequest putRequest = PutObjectRequest.builder()
+    private PutObjectRequest buildPutRequest(String storageKey, StorageMetadata metadata) {
+        return PutObjectRequest.builder()
                 .bucket(properties.getBucket())
                 .key(storageKey)
                 .contentType(metadata.getContentType())
                 .contentLength(metadata.getFileSize())
                 .storageClass(properties.getStorageClass())
                 .acl(ObjectCannedACL.PRIVATE)
-                .metadata(metadataMap)
+                .metadata(buildMetadata(metadata))
                 .build();
-
-        s3Client.putObject(putRequest, RequestBody.fromInputStream(inputStream, metadata.getFileSize()));
     }
 
-    private void uploadLargeFile(InputStream inputStream, String storageKey, StorageMetadata metadata) {
+    private CompletableFuture<CompletedUpload> uploadLargeFile(InputStream inputStream, String storageKey, StorageMetadata metadata) {
         Map<String, String> metadataMap = buildMetadata(metadata);
 
         UploadRequest uploadRequest = UploadRequest.builder()
@@ -96,14 +145,166 @@ public class S3StorageAdapter implements StoragePort {
                         .acl(ObjectCannedACL.PRIVATE)
                         .storageClass(properties.getStorageClass())
                         .metadata(metadataMap))
-                .requestBody(AsyncRequestBody.fromInputStream(inputStream, metadata.getFileSize(), null))
+                .requestBody(AsyncRequestBody.fromInputStream(inputStream, metadata.getFileSize(), streamReadExecutor))
                 .build();
 
         Upload upload = transferManager.upload(uploadRequest);
-        @SuppressWarnings("unused")
-        CompletedUpload completed = upload.completionFuture().join();
+        return upload.completionFuture()
+                .whenComplete((completed, ex) -> {
+                    if (ex == null) log.info("Multipart upload completed for key: {}", storageKey);
+                });
+    }
+
+    // ── Resumable uploads (S3 multipart) ─────────────────────────────────────
 
-        log.info("Multipart upload completed for key: {}", storageKey);
+    @Override
+    public String initiateChunked(String storageKey, StorageMetadata metadata) throws StorageException {
+        try {
+            CreateMultipartUploadResponse response = s3Client.createMultipartUpload(req -> req
+                    .bucket(properties.getBucket())
+                    .key(storageKey)
+                    .contentType(metadata.getContentType())
+                    .acl(ObjectCannedACL.PRIVATE)
+                    .storageClass(properties.getStorageClass())
+                    .metadata(buildMetadata(metadata)));
+            log.info("Multipart upload initiated: key={} uploadId={}", storageKey, response.uploadId());
+            return response.uploadId();
+        } catch (Exception e) {
+            log.error("Failed to initiate multipart upload: key={}", storageKey, e);
+            throw new StorageException("Failed to initiate multipart upload", e, StorageProviderType.S3, storageKey);
+        }
+    }
+
+    @Override
+    public String writeChunk(String storageKey, String uploadId, ChunkPart part, InputStream data)
+            throws StorageException {
+        try {
+            UploadPartResponse response = s3Client.uploadPart(req -> req
+                            .bucket(properties.getBucket())
+                            .key(storageKey)
+                            .uploadId(uploadId)
+                            .partNumber(part.getPartNumber())
+                            .contentLength(part.getSize()),
+                    RequestBody.fromInputStream(data, part.getSize()));
+            return response.eTag();
+        } catch (Exception e) {
+            log.error("Failed to upload part {} for key={}", part.getPartNumber(), storageKey, e);
+            throw new StorageException("Failed to upload part " + part.getPartNumber(), e, StorageProviderType.S3, storageKey);
+        }
+    }
+
+    @Override
+    public StorageResult completeChunked(String storageKey, String uploadId, StorageMetadata metadata,
+                                         List<ChunkPart> parts) throws StorageException {
+        List<CompletedPart> completedParts = parts.stream()
+                .map(p -> CompletedPart.builder().partNumber(p.getPartNumber()).eTag(p.getEtag()).build())
+                .toList();
+        try {
+            s3Client.completeMultipartUpload(req -> req
+                    .bucket(properties.getBucket())
+                    .key(storageKey)
+                    .uploadId(uploadId)
+                    .multipartUpload(mu -> mu.parts(completedParts)));
+            log.info("Multipart upload completed: key={} parts={}", storageKey, parts.size());
+            return buildResult(storageKey, metadata);
+        } catch (Exception e) {
+            log.error("Failed to complete multipart upload: key={}", storageKey, e);
+            throw new StorageException("Failed to complete multipart upload", e, StorageProviderType.S3, storageKey);
+        }
+    }
+
+    @Override
+    public void abortChunked(String storageKey, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(req -> req
+                    .bucket(properties.getBucket())
+                    .key(storageKey)
+                    .uploadId(uploadId));
+            log.info("Multipart upload aborted: key={}", storageKey);
+        } catch (NoSuchUploadException e) {
+            log.debug("Multipart upload already gone: key={}", storageKey);
+        } catch (Exception e) {
+            // Bucket lifecycle rule for incomplete multipart uploads is the backstop
+            log.warn("Failed to abort multipart upload key={}: {}", storageKey, e.getMessage());
+        }
+    }
+
+    // ── Direct uploads (presigned PUT) ───────────────────────────────────────
+
+    @Override
+    public PresignedUpload presignPut(String storageKey, StorageMetadata metadata, String checksumSha256,
+                                      Duration expiry) throws StorageException {
+        PutObjectRequest.Builder put = buildPutRequest(storageKey, metadata).toBuilder();
+        if (checksumSha256 != null) {
+            put.checksumSHA256(checksumSha256);
+        }
+        try {
+            PresignedPutObjectRequest presigned = presigner.presignPutObject(req -> req
+                    .signatureDuration(expiry)
+                    .putObjectRequest(put.build()));
+            return toPresignedUpload(presigned.url(), presigned.signedHeaders(), presigned.expiration());
+        } catch (Exception e) {
+            log.error("Failed to presign PUT for key={}", storageKey, e);
+            throw new StorageException("Failed to presign upload", e, StorageProviderType.S3, storageKey);
+        }
+    }
+
+    @Override
+    public PresignedUpload presignPart(String storageKey, String uploadId, int partNumber, long partSize,
+                                       Duration expiry) throws StorageException {
+        try {
+            PresignedUploadPartRequest presigned = presigner.presignUploadPart(req -> req
+                    .signatureDuration(expiry)
+                    .uploadPartRequest(part -> part
+                            .bucket(properties.getBucket())
+                            .key(storageKey)
+                            .uploadId(uploadId)
+                            .partNumber(partNumber)
+                            .contentLength(partSize)));
+            return toPresignedUpload(presigned.url(), presigned.signedHeaders(), presigned.expiration());
+        } catch (Exception e) {
+            log.error("Failed to presign part {} for key={}", partNumber, storageKey, e);
+            throw new StorageException("Failed to presign upload part", e, StorageProviderType.S3, storageKey);
+        }
+    }
+
+    @Override
+    public Optional<ObjectHead> headObject(String storageKey) throws StorageException {
+        try {
+            HeadObjectResponse head = s3Client.headObject(req -> req
+                    .bucket(properties.getBucket())
+                    .key(storageKey)
+                    .checksumMode(ChecksumMode.ENABLED));
+            return Optional.of(ObjectHead.builder()
+                    .size(head.contentLength())
+                    .contentType(head.contentType())
+                    .etag(head.eTag())
+                    .checksumSha256(head.checksumSHA256())
+                    .build());
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (Exception e) {
+            log.error("Failed to head object: {}", storageKey, e);
+            throw new StorageException("Failed to read object metadata", e, StorageProviderType.S3, storageKey);
+        }
+    }
+
+    @Override
+    public StorageResult describe(String storageKey, StorageMetadata metadata) {
+        return buildResult(storageKey, metadata);
+    }
+
+    private PresignedUpload toPresignedUpload(URL url, Map<String, List<String>> signedHeaders, Instant expiration) {
+        // Host is set by the HTTP client itself; everything else must be sent verbatim
+        Map<String, String> headers = new HashMap<>();
+        signedHeaders.forEach((name, values) -> {
+            if (!"host".equalsIgnoreCase(name)) headers.put(name, String.join(",", values));
+        });
+        return PresignedUpload.builder()
+                .url(url.toString())
+                .headers(headers)
+                .expiresAt(expiration)
+                .build();
     }
 
     @Override
@@ -125,6 +326,27 @@ public class S3StorageAdapter implements StoragePort {
         }
     }
 
+    @Override
+    public CompletableFuture<InputStream> retrieveAsync(String storageKey) {
+        GetObjectRequest getRequest = GetObjectRequest.builder()
+                .bucket(properties.getBucket())
+                .key(storageKey)
+                .build();
+
+        // Completes once response headers arrive; the body streams as it is read
+        return s3AsyncClient.getObject(getRequest, AsyncResponseTransformer.<GetObjectResponse>toBlockingInputStream())
+                .handle((stream, ex) -> {
+                    if (ex == null) return stream;
+                    Throwable cause = unwrap(ex);
+                    if (cause instanceof NoSuchKeyException) {
+                        log.error("File not found in S3: {}", storageKey);
+                        throw new StorageException("File not found in S3: " + storageKey, cause, StorageProviderType.S3, storageKey);
+                    }
+                    log.error("Failed to retrieve file from S3 (async): {}", storageKey, cause);
+                    throw new StorageException("Failed to retrieve file from S3", cause, StorageProviderType.S3, storageKey);
+                });
+    }
+
     @Override
     public boolean delete(String storageKey) throws StorageException {
         try {
@@ -143,6 +365,24 @@ public class S3StorageAdapter implements StoragePort {
         }
     }
 
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String storageKey) {
+        DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
+                .bucket(properties.getBucket())
+                .key(storageKey)
+                .build();
+
+        return s3AsyncClient.deleteObject(deleteRequest)
+                .handle((resp, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to delete file from S3 (async): {}", storageKey, unwrap(ex));
+                        throw new StorageException("Failed to delete file from S3", unwrap(ex), StorageProviderType.S3, storageKey);
+                    }
+                    log.info("File deleted from S3: {}", storageKey);
+                    return true;
+                });
+    }
+
     @Override
     public boolean exists(String storageKey) {
         try {
@@ -175,6 +415,22 @@ public class S3StorageAdapter implements StoragePort {
         return StorageProviderType.S3;
     }
 
+    private StorageResult buildResult(String storageKey, StorageMetadata metadata) {
+        return StorageResult.builder()
+                .storageKey(storageKey)
+                .publicUrl(generatePublicUrl(storageKey))
+                .provider(StorageProviderType.S3)
+                .bucket(properties.getBucket())
+                .region(properties.getRegion())
+                .fileSize(metadata.getFileSize())
+                .contentType(metadata.getContentType())
+                .build();
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
     private String generatePublicUrl(String storageKey) {
         // Use CloudFront if configured
         // if (properties.getCloudfrontDomain() != null &&
@@ -190,22 +446,27 @@ public class S3StorageAdapter implements StoragePort {
     }
 
     private String generatePresignedUrl(String storageKey, Duration expiry) {
-        try (S3Presigner presigner = S3Presigner.builder()
-                .region(software.amazon.awssdk.regions.Region.of(properties.getRegion()))
-                .build()) {
+        Duration bucket = urlCache.bucket(expiry);
+        String cached = urlCache.get(storageKey, bucket);
+        if (cached != null) {
+            return cached;
+        }
 
+        try {
             GetObjectRequest getRequest = GetObjectRequest.builder()
                     .bucket(properties.getBucket())
                     .key(storageKey)
                     .build();
 
             GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
-                    .signatureDuration(expiry)
+                    .signatureDuration(bucket)
                     .getObjectRequest(getRequest)
                     .build();
 
             PresignedGetObjectRequest presignedRequest = presigner.presignGetObject(presignRequest);
-            return presignedRequest.url().toString();
+            String url = presignedRequest.url().toString();
+            urlCache.put(storageKey, bucket, url, presignedRequest.expiration());
+            return url;
 
         } catch (Exception e) {
             log.error("Failed to generate presigned URL for: {}", storageKey, e);
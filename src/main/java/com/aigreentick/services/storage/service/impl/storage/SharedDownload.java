@@ -0,0 +1,408 @@
+package com.aigreentick.services.storage.service.impl.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * One provider stream fanned out to any number of readers, for
+ * {@link SingleFlightStoragePort}.
+ *
+ * While the leader is the only reader it reads the source directly, keeping
+ * a copy of at most 'memoryThreshold' bytes so a follower can still join from
+ * offset 0. Once it reads past that with nobody else attached, the download
+ * is retired (no longer joinable) and the lone reader just streams on.
+ *
+ * When a second reader attaches, a pump thread takes over the source and
+ * drains it as fast as the provider delivers it: the first 'memoryThreshold'
+ * bytes go to in-memory chunks, the rest to a spill file. Every reader starts
+ * at offset 0 and reads at its own pace, blocking only when it has caught up
+ * with the pump, so a slow client never slows the download or the other
+ * readers.
+ *
+ * Readers are reference counted. When the last one closes the spill file is
+ * deleted and the memory dropped; if that happens before the source is
+ * drained, the source is closed. Once released, nobody can attach.
+ */
+@Slf4j
+class SharedDownload {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    /** readDirect(): the read has to go through the shared buffer. */
+    private static final int SHARED = -2;
+
+    private final String storageKey;
+    private final int memoryThreshold;
+    private final Path spillDirectory;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition progress = lock.newCondition();
+    /** Held by whoever reads the source: the lone reader, then the pump. */
+    private final ReentrantLock sourceLock = new ReentrantLock();
+
+    /** Completes once the source stream is open (or failed to open). */
+    final CompletableFuture<Void> opened = new CompletableFuture<>();
+
+    // Set once by begin(), published to readers through the lock
+    private InputStream source;
+    private Consumer<Runnable> pumpLauncher;
+    private Runnable retire;
+
+    // Written by the source reader only; published to readers through 'written' under the lock
+    private final byte[][] chunks;
+    private FileChannel spill;
+    private Path spillPath;
+
+    // Guarded by lock
+    private long written;
+    private boolean done;
+    private IOException failure;
+    private int readers;
+    private boolean released;
+    private boolean passthrough;
+    private boolean joinable = true;
+
+    SharedDownload(String storageKey, int memoryThreshold, Path spillDirectory) {
+        this.storageKey = storageKey;
+        this.memoryThreshold = memoryThreshold;
+        this.spillDirectory = spillDirectory;
+        // Fixed table: readers index it while the pump fills it, so it never resizes
+        this.chunks = new byte[(memoryThreshold + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+    }
+
+    // ── Readers ──────────────────────────────────────────────────────────────
+
+    /** A new reader from offset 0, or null if this download is released or no longer joinable. */
+    InputStream attach() {
+        boolean share;
+        lock.lock();
+        try {
+            if (released || !joinable) return null;
+            readers++;
+            // The lone reader hands the source over to a pump
+            share = passthrough;
+            passthrough = false;
+        } finally {
+            lock.unlock();
+        }
+        if (share) startPump();
+        return new Reader();
+    }
+
+    private void detach() {
+        boolean wasPassthrough;
+        lock.lock();
+        try {
+            if (--readers > 0) return;
+            released = true;
+            // Wakes a pump mid-download so it can stop
+            progress.signalAll();
+            wasPassthrough = passthrough;
+            if (!done && !passthrough) return;
+        } finally {
+            lock.unlock();
+        }
+        if (wasPassthrough) {
+            // No pump owns the source: the lone reader gave up on it
+            closeSource();
+            retire.run();
+        }
+        releaseStorage();
+    }
+
+    // ── Source ───────────────────────────────────────────────────────────────
+
+    /**
+     * The source is open. A lone reader reads it directly; if followers are
+     * already waiting (or nobody is left), {@code pumpLauncher} starts the pump.
+     * {@code retire} takes this download out of the in-flight map once a
+     * pass-through read ends or outgrows what a follower could replay.
+     */
+    void begin(InputStream source, Consumer<Runnable> pumpLauncher, Runnable retire) {
+        boolean pumpNow;
+        lock.lock();
+        try {
+            this.source = source;
+            this.pumpLauncher = pumpLauncher;
+            this.retire = retire;
+            pumpNow = readers != 1;
+            passthrough = !pumpNow;
+        } finally {
+            lock.unlock();
+        }
+        opened.complete(null);
+        if (pumpNow) startPump();
+    }
+
+    private void startPump() {
+        pumpLauncher.accept(this::pump);
+    }
+
+    /** Drains the source into memory / spill file. Runs on its own thread. */
+    private void pump() {
+        // Waits out a pass-through read still in progress; it may have hit the end already
+        sourceLock.lock();
+        sourceLock.unlock();
+        lock.lock();
+        try {
+            if (done) return;
+        } finally {
+            lock.unlock();
+        }
+        byte[] buffer = new byte[CHUNK_SIZE];
+        try (InputStream in = source) {
+            while (true) {
+                int n = in.read(buffer);
+                if (n < 0) break;
+                append(buffer, 0, n);
+                lock.lock();
+                try {
+                    written += n;
+                    progress.signalAll();
+                    if (released) {
+                        log.debug("Shared download abandoned by all readers: key={}", storageKey);
+                        break;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            finish(null);
+        } catch (IOException ex) {
+            finish(ex);
+        } catch (RuntimeException ex) {
+            finish(new IOException("Shared download failed", ex));
+        }
+    }
+
+    /** The source could not be opened: every attached reader sees the failure. */
+    void failOpen(RuntimeException ex) {
+        finish(new IOException("Failed to open " + storageKey, ex));
+        opened.completeExceptionally(ex);
+    }
+
+    private void finish(IOException ex) {
+        boolean release;
+        lock.lock();
+        try {
+            done = true;
+            failure = ex;
+            progress.signalAll();
+            release = released;
+        } finally {
+            lock.unlock();
+        }
+        if (ex != null) {
+            log.warn("Shared download failed: key={} error={}", storageKey, ex.getMessage());
+        }
+        if (release) releaseStorage();
+    }
+
+    private void append(byte[] buffer, int from, int n) throws IOException {
+        long offset = written; // only the source reader changes it
+        int copied = 0;
+        while (copied < n && offset + copied < memoryThreshold) {
+            int chunkIndex = (int) ((offset + copied) / CHUNK_SIZE);
+            int chunkOffset = (int) ((offset + copied) % CHUNK_SIZE);
+            if (chunks[chunkIndex] == null) chunks[chunkIndex] = new byte[CHUNK_SIZE];
+            int len = Math.min(n - copied, Math.min(CHUNK_SIZE - chunkOffset,
+                    (int) (memoryThreshold - offset - copied)));
+            System.arraycopy(buffer, from + copied, chunks[chunkIndex], chunkOffset, len);
+            copied += len;
+        }
+        if (copied < n) {
+            if (spill == null) openSpill();
+            ByteBuffer rest = ByteBuffer.wrap(buffer, from + copied, n - copied);
+            long position = offset + copied - memoryThreshold;
+            while (rest.hasRemaining()) {
+                position += spill.write(rest, position);
+            }
+        }
+    }
+
+    private void openSpill() throws IOException {
+        spillPath = spillDirectory.resolve(UUID.randomUUID() + ".spill");
+        spill = FileChannel.open(spillPath, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void closeSource() {
+        try {
+            source.close();
+        } catch (IOException ex) {
+            log.debug("Failed to close source of {}: {}", storageKey, ex.getMessage());
+        }
+    }
+
+    private void releaseStorage() {
+        Arrays.fill(chunks, null);
+        if (spill == null) return;
+        try {
+            spill.close();
+            Files.deleteIfExists(spillPath);
+        } catch (IOException ex) {
+            log.warn("Failed to delete spill file {}: {}", spillPath, ex.getMessage());
+        }
+    }
+
+    // ── Reader ───────────────────────────────────────────────────────────────
+
+    private final class Reader extends InputStream {
+        private long position;
+        private boolean closed;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) throw new IOException("Stream closed");
+            if (len == 0) return 0;
+
+            int direct = readDirect(b, off, len);
+            if (direct != SHARED) return direct;
+
+            long available = awaitData();
+            if (available < 0) return -1;
+            int n = (int) Math.min(len, available);
+
+            if (position < memoryThreshold) {
+                int chunkIndex = (int) (position / CHUNK_SIZE);
+                int chunkOffset = (int) (position % CHUNK_SIZE);
+                n = (int) Math.min(n, Math.min(CHUNK_SIZE - chunkOffset, memoryThreshold - position));
+                System.arraycopy(chunks[chunkIndex], chunkOffset, b, off, n);
+            } else {
+                n = spill.read(ByteBuffer.wrap(b, off, n), position - memoryThreshold);
+                if (n < 0) throw new IOException("Spill file truncated");
+            }
+            position += n;
+            return n;
+        }
+
+        /**
+         * Reads the source itself while this is the only reader, or returns
+         * SHARED once a pump has taken over (or this reader is behind it).
+         */
+        private int readDirect(byte[] b, int off, int len) throws IOException {
+            sourceLock.lock();
+            try {
+                lock.lock();
+                try {
+                    if (!passthrough || done || position != written) return SHARED;
+                } finally {
+                    lock.unlock();
+                }
+
+                int n;
+                try {
+                    n = source.read(b, off, len);
+                } catch (IOException ex) {
+                    endPassthrough(ex);
+                    throw ex;
+                } catch (RuntimeException ex) {
+                    endPassthrough(new IOException("Shared download failed", ex));
+                    throw ex;
+                }
+                if (n < 0) {
+                    endPassthrough(null);
+                    return -1;
+                }
+
+                // Keep what a follower would replay; past the threshold nobody can join
+                boolean keep;
+                boolean retireNow;
+                lock.lock();
+                try {
+                    keep = !passthrough || written + n <= memoryThreshold;
+                    retireNow = !keep && joinable;
+                    if (!keep) joinable = false;
+                } finally {
+                    lock.unlock();
+                }
+                if (retireNow) {
+                    Arrays.fill(chunks, null);
+                    retire.run();
+                }
+                if (keep) append(b, off, n);
+                lock.lock();
+                try {
+                    written += n;
+                    progress.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                position += n;
+                return n;
+            } finally {
+                sourceLock.unlock();
+            }
+        }
+
+        /** The lone reader hit the end of the source (or an error): nothing left to pump. */
+        private void endPassthrough(IOException ex) {
+            lock.lock();
+            try {
+                passthrough = false;
+                done = true;
+                failure = ex;
+                progress.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            closeSource();
+            retire.run();
+        }
+
+        /** Bytes readable at the current position, or -1 at the end of a complete download. */
+        private long awaitData() throws IOException {
+            lock.lock();
+            try {
+                while (position >= written && !done) {
+                    try {
+                        progress.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for shared download", ex);
+                    }
+                }
+                if (position < written) return written - position;
+                if (failure != null) throw failure;
+                return -1;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int available() {
+            lock.lock();
+            try {
+                return (int) Math.min(Integer.MAX_VALUE, written - position);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            detach();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.aigreentick.services.storage.service.impl.storage;
+
+import com.aigreentick.services.storage.config.properties.SingleFlightProperties;
+import com.aigreentick.services.storage.dto.storage.StorageMetadata;
+import com.aigreentick.services.storage.dto.storage.StorageResult;
+import com.aigreentick.services.storage.enums.StorageProviderType;
+import com.aigreentick.services.storage.exception.StorageException;
+import com.aigreentick.services.storage.service.port.AsyncStoragePort;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Stream;
+
+/**
+ * Decorator that coalesces concurrent retrieves of the same storage key.
+ *
+ * The first caller opens the provider stream and, while alone, reads it
+ * straight through (nothing is spilled). Callers arriving while that
+ * download is still joinable attach to it: a pump thread then drains the
+ * source into a {@link SharedDownload} (memory, then a spill file) and every
+ * reader reads from offset 0 at its own pace, so a broadcast's burst of
+ * requests for one object costs one provider read. Once the download is
+ * drained, retired or released, the next request starts a fresh one —
+ * caching across bursts is the job of the caches above.
+ *
+ * If the provider fails to open the object, every caller attached to that
+ * attempt gets the same StorageException.
+ *
+ * Not a Spring component — created by StorageProviderConfig directly around
+ * the selected provider, like {@link MeteringStoragePort}.
+ */
+@Slf4j
+public class SingleFlightStoragePort implements AsyncStoragePort {
+
+    private final AsyncStoragePort delegate;
+    private final SingleFlightProperties properties;
+    private final Path spillDirectory;
+    private final ThreadFactory pumpThreads = Thread.ofVirtual().name("single-flight-", 0).factory();
+
+    private final Map<String, SharedDownload> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlightStoragePort(AsyncStoragePort delegate, SingleFlightProperties properties) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.spillDirectory = Paths.get(properties.getSpillDirectory()).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(spillDirectory);
+            // Spill files only live as long as their readers: anything here is from a crash
+            try (Stream<Path> leftovers = Files.list(spillDirectory)) {
+                leftovers.filter(p -> p.getFileName().toString().endsWith(".spill"))
+                        .forEach(p -> p.toFile().delete());
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot prepare spill directory " + spillDirectory, ex);
+        }
+    }
+
+    // ── Reads ────────────────────────────────────────────────────────────────
+
+    @Override
+    public InputStream retrieve(String storageKey) throws StorageException {
+        Attached attached = attach(storageKey);
+        if (attached.leader()) {
+            try {
+                start(storageKey, attached.download(), delegate.retrieve(storageKey));
+            } catch (RuntimeException ex) {
+                abandon(storageKey, attached, ex);
+                closeQuietly(attached.reader());
+                throw ex;
+            }
+        }
+        awaitOpen(attached);
+        return attached.reader();
+    }
+
+    @Override
+    public CompletableFuture<InputStream> retrieveAsync(String storageKey) {
+        Attached attached = attach(storageKey);
+        if (attached.leader()) {
+            delegate.retrieveAsync(storageKey).whenComplete((source, ex) -> {
+                if (ex == null) {
+                    start(storageKey, attached.download(), source);
+                } else {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    abandon(storageKey, attached, cause instanceof RuntimeException re
+                            ? re
+                            : new StorageException("Failed to retrieve object", cause,
+                                    delegate.getProviderType(), storageKey));
+                }
+            });
+        }
+        return attached.download().opened.handle((ok, ex) -> {
+            if (ex != null) {
+                closeQuietly(attached.reader());
+                throw ex instanceof CompletionException ce ? ce : new CompletionException(ex);
+            }
+            return attached.reader();
+        });
+    }
+
+    /** Joins the running download for the key, or registers a new one with the caller as leader. */
+    private Attached attach(String storageKey) {
+        while (true) {
+            SharedDownload running = inFlight.get(storageKey);
+            if (running != null) {
+                InputStream reader = running.attach();
+                if (reader != null) return new Attached(running, reader, false);
+                // Released between lookup and attach
+                inFlight.remove(storageKey, running);
+                continue;
+            }
+            SharedDownload fresh = new SharedDownload(
+                    storageKey, properties.getMemoryThresholdBytes(), spillDirectory);
+            InputStream reader = fresh.attach();
+            if (inFlight.putIfAbsent(storageKey, fresh) == null) {
+                return new Attached(fresh, reader, true);
+            }
+        }
+    }
+
+    private void start(String storageKey, SharedDownload download, InputStream source) {
+        // Later requests start a fresh download once this one is drained or retired
+        Runnable retire = () -> inFlight.remove(storageKey, download);
+        download.begin(source, pump -> pumpThreads.newThread(() -> {
+            try {
+                pump.run();
+            } finally {
+                retire.run();
+            }
+        }).start(), retire);
+    }
+
+    private void abandon(String storageKey, Attached attached, RuntimeException ex) {
+        inFlight.remove(storageKey, attached.download());
+        attached.download().failOpen(ex);
+    }
+
+    private void awaitOpen(Attached attached) {
+        try {
+            attached.download().opened.join();
+        } catch (CompletionException ex) {
+            closeQuietly(attached.reader());
+            throw ex.getCause() instanceof RuntimeException re ? re : ex;
+        }
+    }
+
+    private record Attached(SharedDownload download, InputStream reader, boolean leader) {}
+
+    // ── Pass-through ─────────────────────────────────────────────────────────
+
+    @Override
+    public StorageResult save(InputStream inputStream, StorageMetadata metadata) throws StorageException {
+        return delegate.save(inputStream, metadata);
+    }
+
+    @Override
+    public CompletableFuture<StorageResult> saveAsync(InputStream inputStream, StorageMetadata metadata) {
+        return delegate.saveAsync(inputStream, metadata);
+    }
+
+    @Override
+    public boolean delete(String storageKey) throws StorageException {
+        return delegate.delete(storageKey);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteAsync(String storageKey) {
+        return delegate.deleteAsync(storageKey);
+    }
+
+    @Override
+    public boolean exists(String storageKey) {
+        return delegate.exists(storageKey);
+    }
+
+    @Override
+    public String getPublicUrl(String storageKey, Duration expiry) {
+        return delegate.getPublicUrl(storageKey, expiry);
+    }
+
+    @Override
+    public StorageProviderType getProviderType() {
+        return delegate.getProviderType();
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ex) {
+            log.debug("Failed to close shared reader: {}", ex.getMessage());
+        }
+    }
+}
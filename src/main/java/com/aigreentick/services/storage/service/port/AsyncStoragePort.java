@@ -0,0 +1,22 @@
+package com.aigreentick.services.storage.service.port;
+
+import com.aigreentick.services.storage.dto.storage.StorageMetadata;
+import com.aigreentick.services.storage.dto.storage.StorageResult;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking extension of {@link StoragePort}.
+ * Futures are completed from provider I/O callbacks, so callers can compose
+ * them instead of parking a pool thread for the whole transfer.
+ *
+ * Failures complete the future exceptionally with a StorageException.
+ * For saveAsync the caller keeps ownership of the stream and must not close
+ * it before the returned future completes.
+ */
+public interface AsyncStoragePort extends StoragePort {
+    CompletableFuture<StorageResult> saveAsync(InputStream inputStream, StorageMetadata metadata);
+    CompletableFuture<InputStream> retrieveAsync(String storageKey);
+    CompletableFuture<Boolean> deleteAsync(String storageKey);
+}
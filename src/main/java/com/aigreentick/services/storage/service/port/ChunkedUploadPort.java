@@ -0,0 +1,34 @@
+package com.aigreentick.services.storage.service.port;
+
+import com.aigreentick.services.storage.dto.storage.ChunkPart;
+import com.aigreentick.services.storage.dto.storage.StorageMetadata;
+import com.aigreentick.services.storage.dto.storage.StorageResult;
+import com.aigreentick.services.storage.exception.StorageException;
+
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Provider side of resumable uploads: the object is assembled from
+ * independently written parts and only becomes visible at completion.
+ * S3 maps this onto multipart uploads, local storage onto a preallocated
+ * staging file written at part offsets.
+ */
+public interface ChunkedUploadPort {
+
+    /** Starts an upload for {@code storageKey}; returns the provider upload id. */
+    String initiateChunked(String storageKey, StorageMetadata metadata) throws StorageException;
+
+    /**
+     * Writes exactly {@code part.size} bytes from {@code data} as the given part.
+     * Writing the same part again replaces it. Returns the part token (may be null).
+     */
+    String writeChunk(String storageKey, String uploadId, ChunkPart part, InputStream data) throws StorageException;
+
+    /** Assembles the parts (sorted by part number) into the final object. */
+    StorageResult completeChunked(String storageKey, String uploadId, StorageMetadata metadata,
+                                  List<ChunkPart> parts) throws StorageException;
+
+    /** Discards all parts written so far. Safe to call more than once. */
+    void abortChunked(String storageKey, String uploadId);
+}
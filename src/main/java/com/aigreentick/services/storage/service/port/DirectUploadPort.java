@@ -0,0 +1,38 @@
+package com.aigreentick.services.storage.service.port;
+
+import com.aigreentick.services.storage.dto.storage.ObjectHead;
+import com.aigreentick.services.storage.dto.storage.PresignedUpload;
+import com.aigreentick.services.storage.dto.storage.StorageMetadata;
+import com.aigreentick.services.storage.dto.storage.StorageResult;
+import com.aigreentick.services.storage.enums.StorageProviderType;
+import com.aigreentick.services.storage.exception.StorageException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Providers that let clients write objects directly (presigned URLs),
+ * so the bytes never pass through this service. Multipart variants reuse
+ * {@link ChunkedUploadPort} to create and complete the upload.
+ */
+public interface DirectUploadPort {
+
+    /**
+     * Presigns a single PUT of exactly metadata.fileSize bytes with metadata.contentType.
+     * If {@code checksumSha256} (base64) is given, S3 rejects a body that does not match it.
+     */
+    PresignedUpload presignPut(String storageKey, StorageMetadata metadata, String checksumSha256,
+                               Duration expiry) throws StorageException;
+
+    /** Presigns the PUT of one part of an upload started with ChunkedUploadPort.initiateChunked. */
+    PresignedUpload presignPart(String storageKey, String uploadId, int partNumber, long partSize,
+                                Duration expiry) throws StorageException;
+
+    /** Size / type / checksum of a stored object; empty if it does not exist (yet). */
+    Optional<ObjectHead> headObject(String storageKey) throws StorageException;
+
+    /** Location details for an object that was written directly. */
+    StorageResult describe(String storageKey, StorageMetadata metadata);
+
+    StorageProviderType getProviderType();
+}
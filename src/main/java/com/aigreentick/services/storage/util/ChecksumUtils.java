@@ -2,8 +2,6 @@ package com.aigreentick.services.storage.util;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 
 /**
  * Utility for computing file checksums.
@@ -11,28 +9,33 @@ import java.security.NoSuchAlgorithmException;
  */
 public final class ChecksumUtils {
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
     private ChecksumUtils() {}
 
     /**
      * Compute SHA-256 hex digest of the given input stream.
      * Reads the stream fully — caller must not reuse the stream afterwards.
+     * Prefer wrapping the upload stream in {@link DigestingInputStream} when
+     * the bytes are being read anyway.
      */
     public static String sha256(InputStream inputStream) throws IOException {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] buf = new byte[8192];
-            int read;
-            while ((read = inputStream.read(buf)) != -1) {
-                digest.update(buf, 0, read);
-            }
-            byte[] hash = digest.digest();
-            StringBuilder hex = new StringBuilder(64);
-            for (byte b : hash) {
-                hex.append(String.format("%02x", b));
-            }
-            return hex.toString();
-        } catch (NoSuchAlgorithmException ex) {
-            throw new IllegalStateException("SHA-256 algorithm not available", ex);
+        DigestingInputStream digesting = new DigestingInputStream(inputStream);
+        byte[] buf = new byte[8192];
+        while (digesting.read(buf) != -1) {
+            // digest is updated as a side effect of reading
+        }
+        return digesting.getSha256Hex();
+    }
+
+    /** Lower-case hex, two chars per byte, via a lookup table. */
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xFF;
+            out[i * 2] = HEX[v >>> 4];
+            out[i * 2 + 1] = HEX[v & 0x0F];
         }
+        return new String(out);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+package com.aigreentick.services.storage.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+
+/**
+ * Pass-through stream that meters whatever the consumer reads from it:
+ * SHA-256, byte count and (optionally) CRC32C, all in the same pass that
+ * feeds the storage provider.
+ *
+ * Digests are updated straight from the consumer's buffer — nothing is
+ * allocated per read. Only bytes actually read are hashed, so callers must
+ * let the consumer drain the stream before asking for the results.
+ *
+ * Not thread-safe; mark/reset is not supported.
+ */
+public class DigestingInputStream extends FilterInputStream {
+
+    private final MessageDigest sha256;
+    private final CRC32C crc32c;
+    private long byteCount;
+    private String sha256Hex;
+    private byte[] skipBuffer;
+
+    public DigestingInputStream(InputStream in) {
+        this(in, false);
+    }
+
+    public DigestingInputStream(InputStream in, boolean computeCrc32c) {
+        super(in);
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 algorithm not available", ex);
+        }
+        this.crc32c = computeCrc32c ? new CRC32C() : null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            sha256.update((byte) b);
+            if (crc32c != null) crc32c.update(b);
+            byteCount++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            sha256.update(b, off, n);
+            if (crc32c != null) crc32c.update(b, off, n);
+            byteCount += n;
+        }
+        return n;
+    }
+
+    /** Skipped bytes are read through so the digests still cover them. */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        if (skipBuffer == null) skipBuffer = new byte[8192];
+        long remaining = n;
+        while (remaining > 0) {
+            int read = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
+            if (read < 0) break;
+            remaining -= read;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // not supported — reset would double-count bytes
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /** Finalises the SHA-256 on first call; later reads are no longer covered. */
+    public String getSha256Hex() {
+        if (sha256Hex == null) {
+            sha256Hex = ChecksumUtils.toHex(sha256.digest());
+        }
+        return sha256Hex;
+    }
+
+    /** Base64 of the big-endian CRC32C, the format S3's x-amz-checksum-crc32c expects. */
+    public String getCrc32cBase64() {
+        if (crc32c == null) {
+            throw new IllegalStateException("CRC32C was not enabled for this stream");
+        }
+        int value = (int) crc32c.getValue();
+        byte[] bytes = {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
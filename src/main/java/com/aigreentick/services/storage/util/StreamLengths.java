@@ -0,0 +1,36 @@
+package com.aigreentick.services.storage.util;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Remaining length of a provider stream, when the provider has already said
+ * it: the content-length of an S3 GetObject, or what is left of a local file.
+ */
+public class StreamLengths {
+
+    private StreamLengths() {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /** Bytes left in a freshly retrieved stream, or -1 if not known before reading. */
+    public static long known(InputStream in) {
+        if (in instanceof ResponseInputStream<?> response
+                && response.response() instanceof GetObjectResponse head
+                && head.contentLength() != null) {
+            return head.contentLength();
+        }
+        if (in instanceof FileInputStream file) {
+            try {
+                return file.getChannel().size() - file.getChannel().position();
+            } catch (IOException ex) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,93 @@
+package com.aigreentick.services.storage.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Pass-through stream that copies whatever the consumer reads into a side
+ * sink (e.g. a cache file), in the same pass.
+ *
+ * A failing sink never fails the consumer: the copy is abandoned and
+ * {@link #isSinkFailed()} reports it. The sink is not closed by this stream.
+ *
+ * Not thread-safe; mark/reset is not supported.
+ */
+public class TeeInputStream extends FilterInputStream {
+
+    private final OutputStream sink;
+    private boolean sinkFailed;
+    private long copied;
+
+    public TeeInputStream(InputStream in, OutputStream sink) {
+        super(in);
+        this.sink = sink;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1 && !sinkFailed) {
+            try {
+                sink.write(b);
+                copied++;
+            } catch (IOException ex) {
+                sinkFailed = true;
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0 && !sinkFailed) {
+            try {
+                sink.write(b, off, n);
+                copied += n;
+            } catch (IOException ex) {
+                sinkFailed = true;
+            }
+        }
+        return n;
+    }
+
+    /** Skipped bytes are read through so the copy stays complete. */
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) return 0;
+        byte[] buffer = new byte[(int) Math.min(8192, n)];
+        long remaining = n;
+        while (remaining > 0) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) break;
+            remaining -= read;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // not supported — reset would duplicate bytes in the sink
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    public boolean isSinkFailed() {
+        return sinkFailed;
+    }
+
+    /** Bytes written to the sink. */
+    public long getCopied() {
+        return copied;
+    }
+}
@@ -31,27 +31,42 @@ public class MediaValidator {
             throw new InvalidMediaException("File is empty or null");
         }
 
-        validateFileSize(file);
-        validateContentType(file);
-        validateFilename(file);
+        validateFileSize(file.getSize(), properties.getUploadMaxSize());
+        validateContentType(file.getContentType());
+        validateFilename(file.getOriginalFilename());
+    }
+
+    /**
+     * Validates a file described by the client whose bytes arrive later
+     * (chunked sessions, direct-to-storage uploads).
+     *
+     * @param maxSize size ceiling for this upload mode
+     * @throws InvalidMediaException if validation fails
+     */
+    public void validateDeclaredFile(String filename, String contentType, long size, long maxSize) {
+        if (size <= 0) {
+            throw new InvalidMediaException("File size must be greater than zero");
+        }
+
+        validateFileSize(size, maxSize);
+        validateContentType(contentType);
+        validateFilename(filename);
     }
 
     /**
      * Validates the file size.
      */
-    private void validateFileSize(MultipartFile file) {
-        if (file.getSize() > properties.getUploadMaxSize()) {
+    private void validateFileSize(long size, long maxSize) {
+        if (size > maxSize) {
             throw new InvalidMediaException(
-                    String.format("File size exceeds maximum allowed size of %d bytes", properties.getUploadMaxSize()));
+                    String.format("File size exceeds maximum allowed size of %d bytes", maxSize));
         }
     }
 
     /**
      * Validates the content type (MIME type).
      */
-    private void validateContentType(MultipartFile file) {
-        String contentType = file.getContentType();
-
+    private void validateContentType(String contentType) {
         if (contentType == null || contentType.isEmpty()) {
             throw new InvalidMediaException("Content type is missing");
         }
@@ -73,9 +88,7 @@ public class MediaValidator {
     /**
      * Validates the filename for security concerns.
      */
-    private void validateFilename(MultipartFile file) {
-        String filename = file.getOriginalFilename();
-
+    private void validateFilename(String filename) {
         if (filename == null || filename.isEmpty()) {
             throw new InvalidMediaException("Filename is missing");
         }
@@ -104,6 +104,179 @@ ALTER TABLE org_storage ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
 ALTER TABLE project_storage ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
 
 
+-- Content-addressed deduplication: SHA-256 of the stored bytes and the number
+-- of uploads sharing the object. Existing rows keep a NULL checksum.
+ALTER TABLE media
+    ADD COLUMN checksum  VARCHAR(64)  NULL AFTER file_size,
+    ADD COLUMN ref_count INT          NOT NULL DEFAULT 1 AFTER checksum,
+    ADD INDEX idx_media_org_project_checksum (organisation_id, project_id, checksum);
+
+
+-- ============================================================================
+-- Resumable chunked upload sessions
+-- Quota for total_size is reserved while a session is ACTIVE/COMPLETING.
+-- ============================================================================
+CREATE TABLE upload_session (
+    id                  VARCHAR(36)     NOT NULL,
+    original_filename   VARCHAR(255)    NOT NULL,
+    mime_type           VARCHAR(100)    NOT NULL,
+    media_type          VARCHAR(50)     NOT NULL,
+    total_size          BIGINT          NOT NULL,
+    chunk_size          BIGINT          NOT NULL,
+    storage_provider    VARCHAR(50)     NOT NULL,
+    storage_key         VARCHAR(1000)   NOT NULL,
+    provider_upload_id  VARCHAR(1024)   NOT NULL,
+    waba_id             VARCHAR(255),
+    organisation_id     BIGINT          NOT NULL,
+    project_id          BIGINT          NOT NULL,
+    status              VARCHAR(50)     NOT NULL DEFAULT 'ACTIVE',
+    created_at          DATETIME(6)     NOT NULL,
+    updated_at          DATETIME(6),
+    expires_at          DATETIME(6)     NOT NULL,
+
+    PRIMARY KEY (id),
+    INDEX idx_upload_session_status_expires (status, expires_at),
+    INDEX idx_upload_session_org_project    (organisation_id, project_id, status)
+
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE upload_session_part (
+    id                  BIGINT          NOT NULL AUTO_INCREMENT,
+    session_id          VARCHAR(36)     NOT NULL,
+    part_number         INT             NOT NULL,
+    size_bytes          BIGINT          NOT NULL,
+    etag                VARCHAR(255),
+    created_at          DATETIME(6)     NOT NULL,
+
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_upload_session_part (session_id, part_number),
+
+    CONSTRAINT fk_upload_session_part_session
+        FOREIGN KEY (session_id) REFERENCES upload_session (id)
+        ON DELETE CASCADE
+
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Presigned direct-to-S3 uploads reuse upload_session. A single presigned PUT
+-- has no provider upload id; expected_checksum is the client's base64 SHA-256.
+ALTER TABLE upload_session
+    MODIFY provider_upload_id VARCHAR(1024) NULL,
+    ADD COLUMN upload_mode       VARCHAR(30) NOT NULL DEFAULT 'CHUNKED' AFTER provider_upload_id,
+    ADD COLUMN expected_checksum VARCHAR(64) NULL AFTER upload_mode;
+
+-- Chunk writes in flight. complete only moves a session to COMPLETING when
+-- none are (or the last claim is older than chunk-write-timeout).
+ALTER TABLE upload_session
+    ADD COLUMN active_writers    INT         NOT NULL DEFAULT 0 AFTER status,
+    ADD COLUMN writer_claimed_at DATETIME(6) NULL AFTER active_writers;
+
+-- ============================================================================
+-- Quota ledger checkpoint
+-- Last journal segment of the in-memory quota ledger already applied to
+-- org_storage / project_storage. Updated in the same transaction as the deltas.
+-- ============================================================================
+CREATE TABLE quota_ledger_checkpoint (
+    ledger_id           VARCHAR(64)     NOT NULL,
+    flushed_segment     BIGINT          NOT NULL,
+    updated_at          DATETIME(6)     NOT NULL,
+
+    PRIMARY KEY (ledger_id)
+
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================================================
+-- Quota headroom leases
+-- Unused bytes a replica has claimed from project_storage/org_storage. The
+-- bytes are already in used_bytes; reconciliation keeps counting rows whose
+-- expires_at is still in the future (refreshed by the node's heartbeat).
+-- ============================================================================
+CREATE TABLE quota_lease (
+    node_id             VARCHAR(100)    NOT NULL,
+    org_id              BIGINT          NOT NULL,
+    project_id          BIGINT          NOT NULL,
+    leased_bytes        BIGINT          NOT NULL,
+    expires_at          DATETIME(6)     NOT NULL,
+    updated_at          DATETIME(6)     NOT NULL,
+
+    PRIMARY KEY (node_id, org_id, project_id),
+    INDEX idx_quota_lease_project (org_id, project_id, expires_at)
+
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- ============================================================================
+-- Quota delta outbox
+-- Media inserts/deletes and failed quota rollbacks, written in the same
+-- transaction as the change. The drift worker releases failed rollbacks and
+-- re-verifies touched projects within seconds instead of waiting for the
+-- nightly reconciliation.
+-- ============================================================================
+CREATE TABLE quota_delta_outbox (
+    id                      BIGINT          NOT NULL AUTO_INCREMENT,
+    org_id                  BIGINT          NOT NULL,
+    project_id              BIGINT          NOT NULL,
+    delta_type              VARCHAR(30)     NOT NULL,
+    delta_bytes             BIGINT          NOT NULL,
+    status                  VARCHAR(20)     NOT NULL DEFAULT 'PENDING',
+    attempts                INT             NOT NULL DEFAULT 0,
+    observed_used_bytes     BIGINT          NULL,
+    observed_expected_bytes BIGINT          NULL,
+    next_attempt_at         DATETIME(6)     NOT NULL,
+    created_at              DATETIME(6)     NOT NULL,
+    processed_at            DATETIME(6)     NULL,
+
+    PRIMARY KEY (id),
+    INDEX idx_quota_delta_status_next (status, next_attempt_at)
+
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+
+-- ============================================================================
+-- Serving lookups by storage key (media metadata index misses).
+-- Prefix index: utf8mb4 VARCHAR(1000) exceeds the InnoDB key length limit,
+-- and generated keys are unique well within 255 characters.
+-- ============================================================================
+ALTER TABLE media ADD INDEX idx_media_storage_key (storage_key(255));
+
+
+-- ============================================================================
+-- Shared stored objects (deduplication)
+-- Each deduplicated upload has its own media row with the object's
+-- storage_key; ref_count counts those rows and the object's bytes are charged
+-- once. The row is deleted with its last reference.
+-- ============================================================================
+CREATE TABLE media_object (
+    id                  BIGINT          NOT NULL AUTO_INCREMENT,
+    organisation_id     BIGINT          NOT NULL,
+    project_id          BIGINT          NOT NULL,
+    checksum            VARCHAR(64)     NOT NULL,
+    storage_provider    VARCHAR(50)     NOT NULL,
+    storage_key         VARCHAR(1000)   NOT NULL,
+    storage_bucket      VARCHAR(255),
+    storage_region      VARCHAR(100),
+    media_url           VARCHAR(2048),
+    file_size           BIGINT          NOT NULL,
+    ref_count           INT             NOT NULL DEFAULT 1,
+    created_at          DATETIME(6)     NOT NULL,
+    updated_at          DATETIME(6),
+
+    PRIMARY KEY (id),
+    INDEX idx_media_object_org_project_checksum (organisation_id, project_id, checksum),
+    INDEX idx_media_object_storage_key (storage_key(255))
+
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Existing deduplicated rows become objects with one reference: earlier hits
+-- never got a row of their own, so there is nothing else to count.
+INSERT INTO media_object (organisation_id, project_id, checksum, storage_provider, storage_key,
+                          storage_bucket, storage_region, media_url, file_size, ref_count, created_at)
+SELECT organisation_id, project_id, checksum, storage_provider, storage_key,
+       storage_bucket, storage_region, media_url, file_size, 1, created_at
+FROM media
+WHERE status = 'ACTIVE' AND checksum IS NOT NULL;
+
+ALTER TABLE media DROP COLUMN ref_count;
+
+
 -- V3__seed_quota_data.sql
 -- Seed quota data for development/testing.
 -- Adjust org_id and project_id to match your X-Org-Id / X-Project-Id headers.
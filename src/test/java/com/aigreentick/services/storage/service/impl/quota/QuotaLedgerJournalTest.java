@@ -0,0 +1,71 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QuotaLedgerJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsEveryIntactRecordAndIgnoresATornTail() throws IOException {
+        Path segment = writeSegment(3);
+        // A crash mid-append leaves part of a record behind
+        Files.write(segment, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, StandardOpenOption.APPEND);
+
+        List<QuotaLedgerJournal.Entry> entries = QuotaLedgerJournal.read(segment);
+
+        assertThat(entries).containsExactly(
+                new QuotaLedgerJournal.Entry(1, 10, 100, 100),
+                new QuotaLedgerJournal.Entry(1, 10, 200, 200),
+                new QuotaLedgerJournal.Entry(1, 10, 300, 300));
+    }
+
+    @Test
+    void stopsAtTheFirstRecordFailingItsCrc() throws IOException {
+        Path segment = writeSegment(3);
+        byte[] bytes = Files.readAllBytes(segment);
+        // Flip one byte of the second record's project delta
+        bytes[QuotaLedgerJournal.RECORD_SIZE + 20] ^= 0x40;
+        Files.write(segment, bytes);
+
+        assertThat(QuotaLedgerJournal.read(segment))
+                .containsExactly(new QuotaLedgerJournal.Entry(1, 10, 100, 100));
+    }
+
+    @Test
+    void rotationKeepsSegmentsUntilTheyAreDeleted() throws IOException {
+        try (QuotaLedgerJournal journal = new QuotaLedgerJournal(dir, 5, false)) {
+            journal.append(1, 10, 100, 100);
+            assertThat(journal.rotate()).isEqualTo(5);
+            journal.append(1, 10, -40, -40);
+
+            assertThat(QuotaLedgerJournal.listSegments(dir))
+                    .extracting(QuotaLedgerJournal::segmentNumber)
+                    .containsExactly(5L, 6L);
+
+            journal.deleteUpTo(5);
+            assertThat(QuotaLedgerJournal.listSegments(dir))
+                    .extracting(QuotaLedgerJournal::segmentNumber)
+                    .containsExactly(6L);
+        }
+    }
+
+    private Path writeSegment(int records) throws IOException {
+        try (QuotaLedgerJournal journal = new QuotaLedgerJournal(dir, 1, false)) {
+            for (int i = 1; i <= records; i++) {
+                journal.append(1, 10, i * 100L, i * 100L);
+            }
+        }
+        return QuotaLedgerJournal.listSegments(dir).get(0);
+    }
+}
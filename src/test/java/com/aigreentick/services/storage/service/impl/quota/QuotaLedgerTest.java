@@ -0,0 +1,148 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import com.aigreentick.services.storage.config.properties.QuotaLedgerProperties;
+import com.aigreentick.services.storage.domain.OrgStorage;
+import com.aigreentick.services.storage.domain.ProjectStorage;
+import com.aigreentick.services.storage.domain.ProjectStorageId;
+import com.aigreentick.services.storage.exception.StorageLimitExceededException;
+import com.aigreentick.services.storage.repository.OrgStorageRepository;
+import com.aigreentick.services.storage.repository.ProjectStorageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuotaLedgerTest {
+
+    private static final long ORG = 1L;
+    private static final long PROJECT = 10L;
+    private static final ProjectStorageId PROJECT_ID = new ProjectStorageId(ORG, PROJECT);
+
+    @TempDir
+    Path dir;
+
+    private final QuotaLedgerProperties properties = new QuotaLedgerProperties();
+    private final QuotaLedgerStore store = mock(QuotaLedgerStore.class);
+    private final OrgStorageRepository orgRepo = mock(OrgStorageRepository.class);
+    private final ProjectStorageRepository projectRepo = mock(ProjectStorageRepository.class);
+    private final List<QuotaLedger> started = new ArrayList<>();
+
+    /** used_bytes as the database holds it */
+    private long databaseUsed;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        properties.setJournalDir(dir.toString());
+        properties.setFsync(false);
+        properties.setFlushInterval(Duration.ofHours(1));
+
+        when(projectRepo.findByOrgAndProject(ORG, PROJECT)).thenAnswer(inv -> Optional.of(project()));
+        when(orgRepo.findByOrgId(ORG)).thenAnswer(inv -> Optional.of(org()));
+        when(projectRepo.findAll()).thenAnswer(inv -> List.of(project()));
+        when(orgRepo.findAll()).thenAnswer(inv -> List.of(org()));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (QuotaLedger ledger : started) ledger.stop();
+    }
+
+    @Test
+    void replaysSegmentsAboveTheCheckpointOnStartup() throws IOException {
+        try (QuotaLedgerJournal journal = new QuotaLedgerJournal(dir, 1, false)) {
+            journal.append(ORG, PROJECT, 500, 500);   // segment 1: already checkpointed
+            journal.rotate();
+            journal.append(ORG, PROJECT, 100, 100);   // segment 2
+            journal.rotate();
+            journal.append(ORG, PROJECT, -30, -30);   // segment 3
+        }
+        // Torn record from the crash at the end of the last segment
+        Files.write(QuotaLedgerJournal.listSegments(dir).get(2), new byte[]{9, 9, 9}, StandardOpenOption.APPEND);
+        when(store.flushedSegment("default")).thenReturn(1L);
+
+        start();
+
+        verify(store).apply("default", 3, Map.of(PROJECT_ID, 70L), Map.of(ORG, 70L));
+        // Replayed segments are gone; the journal continues after them
+        assertThat(QuotaLedgerJournal.listSegments(dir))
+                .extracting(QuotaLedgerJournal::segmentNumber)
+                .containsExactly(4L);
+    }
+
+    @Test
+    void reservationsSurviveACrashBeforeTheirFlush() throws IOException {
+        QuotaLedger crashed = new QuotaLedger(properties, store, orgRepo, projectRepo);
+        crashed.start();
+        crashed.reserve(ORG, PROJECT, 100);
+        crashed.reserve(ORG, PROJECT, 50);
+        crashed.release(ORG, PROJECT, 20);
+        // No flush and no stop: the process dies here
+
+        start();
+
+        verify(store).apply(eq("default"), anyLong(), eq(Map.of(PROJECT_ID, 130L)), eq(Map.of(ORG, 130L)));
+    }
+
+    @Test
+    void reconcilingUnderFlushedDeltasNeverCountsAReservationTwice() throws IOException {
+        databaseUsed = 0;
+        QuotaLedger ledger = start();
+        ledger.reserve(ORG, PROJECT, 100);
+
+        ledger.withFlushedDeltas(() -> {
+            // The pending reservation reached the rows before reconciliation reads them,
+            // and its upload is among the bytes reconciliation counts
+            databaseUsed = 100;
+            return null;
+        });
+        verify(store).apply(eq("default"), anyLong(), eq(Map.of(PROJECT_ID, 100L)), eq(Map.of(ORG, 100L)));
+
+        ledger.reload();
+        ledger.flush();
+        verify(store, never()).apply(any(), anyLong(), eq(Map.of(PROJECT_ID, 200L)), anyMap());
+
+        // 100 used of 1000: 900 more fit, one byte beyond does not
+        ledger.reserve(ORG, PROJECT, 900);
+        assertThatThrownBy(() -> ledger.reserve(ORG, PROJECT, 1))
+                .isInstanceOf(StorageLimitExceededException.class);
+    }
+
+    private QuotaLedger start() throws IOException {
+        QuotaLedger ledger = new QuotaLedger(properties, store, orgRepo, projectRepo);
+        ledger.start();
+        started.add(ledger);
+        return ledger;
+    }
+
+    private ProjectStorage project() {
+        return ProjectStorage.builder().orgId(ORG).projectId(PROJECT)
+                .maxBytes(1000L).usedBytes(databaseUsed).version(0L).build();
+    }
+
+    private OrgStorage org() {
+        return OrgStorage.builder().orgId(ORG)
+                .maxBytes(10_000L).usedBytes(databaseUsed).version(0L).build();
+    }
+}
@@ -0,0 +1,138 @@
+package com.aigreentick.services.storage.service.impl.quota;
+
+import com.aigreentick.services.storage.config.properties.QuotaCoalescingProperties;
+import com.aigreentick.services.storage.dto.quota.QuotaHeadroom;
+import com.aigreentick.services.storage.enums.QuotaReservationResult;
+import com.aigreentick.services.storage.repository.ProjectStorageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QuotaReservationCoalescerTest {
+
+    private static final long ORG = 1L;
+    private static final long PROJECT = 2L;
+
+    private final ProjectStorageRepository repo = mock(ProjectStorageRepository.class);
+    private final QuotaCoalescingProperties properties = new QuotaCoalescingProperties();
+    private final AtomicLong used = new AtomicLong();
+    private final List<Long> statements = new CopyOnWriteArrayList<>();
+    private long max;
+
+    private QuotaReservationCoalescer coalescer;
+    private ExecutorService threads;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        coalescer = new QuotaReservationCoalescer(properties, repo, mock(PlatformTransactionManager.class));
+        threads = Executors.newVirtualThreadPerTaskExecutor();
+
+        // A project row with 'max' bytes and an org row that never limits
+        when(repo.incrementProjectAndOrgUsage(eq(ORG), eq(PROJECT), anyLong())).thenAnswer(inv -> {
+            long size = inv.getArgument(2);
+            statements.add(size);
+            synchronized (used) {
+                if (used.get() + size > max) return 0;
+                used.addAndGet(size);
+                return 1;
+            }
+        });
+        when(repo.findHeadroom(ORG, PROJECT)).thenAnswer(inv -> headroom(used.get(), max));
+    }
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void partialFitAdmitsWaitersInArrivalOrderWhileTheyFit() throws Exception {
+        max = 100;
+        properties.setMaxBatch(3);
+        properties.setWindow(Duration.ofSeconds(5));
+
+        List<Future<QuotaReservationResult>> results = new ArrayList<>();
+        for (long size : new long[]{60, 60, 30}) {
+            results.add(threads.submit(() -> coalescer.reserve(ORG, PROJECT, size)));
+        }
+
+        List<QuotaReservationResult> outcomes = new ArrayList<>();
+        for (Future<QuotaReservationResult> f : results) outcomes.add(f.get(5, TimeUnit.SECONDS));
+
+        // Whatever the arrival order, greedy admission keeps one 60 out
+        assertThat(outcomes).containsOnlyOnce(QuotaReservationResult.PROJECT_LIMIT_EXCEEDED);
+        assertThat(outcomes.get(2)).isEqualTo(QuotaReservationResult.RESERVED);
+        assertThat(used.get()).isEqualTo(90);
+        // The whole batch first, then the admitted part in one statement
+        assertThat(statements).containsExactly(150L, 90L);
+    }
+
+    @Test
+    void batchesNeverExceedMaxBatch() throws Exception {
+        max = Long.MAX_VALUE;
+        properties.setMaxBatch(4);
+        properties.setWindow(Duration.ofMillis(20));
+
+        int reservations = 200;
+        List<Future<QuotaReservationResult>> results = new ArrayList<>();
+        for (int i = 0; i < reservations; i++) {
+            results.add(threads.submit(() -> coalescer.reserve(ORG, PROJECT, 1)));
+        }
+        for (Future<QuotaReservationResult> f : results) {
+            assertThat(f.get(10, TimeUnit.SECONDS)).isEqualTo(QuotaReservationResult.RESERVED);
+        }
+
+        assertThat(statements).allSatisfy(size -> assertThat(size).isLessThanOrEqualTo(4L));
+        assertThat(used.get()).isEqualTo(reservations);
+    }
+
+    @Test
+    void leaderErrorCompletesEveryWaiter() throws Exception {
+        max = Long.MAX_VALUE;
+        properties.setMaxBatch(3);
+        properties.setWindow(Duration.ofSeconds(5));
+        when(repo.incrementProjectAndOrgUsage(eq(ORG), eq(PROJECT), anyLong()))
+                .thenThrow(new StackOverflowError("simulated"));
+
+        List<Future<QuotaReservationResult>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(threads.submit(() -> coalescer.reserve(ORG, PROJECT, 10)));
+        }
+
+        // Leader rethrows the Error; followers get it through their outcome
+        for (Future<QuotaReservationResult> f : results) {
+            assertThatThrownBy(() -> f.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasRootCauseInstanceOf(StackOverflowError.class);
+        }
+    }
+
+    private static QuotaHeadroom headroom(long projectUsed, long projectMax) {
+        return new QuotaHeadroom() {
+            public Long getProjectUsed() { return projectUsed; }
+            public Long getProjectMax() { return projectMax; }
+            public Long getOrgUsed() { return 0L; }
+            public Long getOrgMax() { return Long.MAX_VALUE; }
+        };
+    }
+}